@@ -0,0 +1,597 @@
+package tagcloud;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * JMH benchmark of each stage of the {@link TagCloud} pipeline on its own,
+ * so a regression can be pinned to the stage it is in:
+ * <ul>
+ * <li>tokenize: {@link WordScanner} over the decoded text, no counting,
+ * without and with case folding, and with the {@link UnicodeTokenizer}
+ * instead of the separator list</li>
+ * <li>scan: {@link MappedWordCounter} finding the words of the file without
+ * counting them, classifying one byte at a time and with the
+ * {@link SeparatorScanner} of the Vector API</li>
+ * <li>count: {@link MappedWordCounter} on one thread, byte by byte and
+ * vectorized, with the stop words of {@code data/stopwords.txt}, stemmed
+ * with {@link Stemming#PORTER}, with the {@link UnicodeTokenizer}, as two-
+ * and three-word phrases, approximately with {@link HeavyHitters} and
+ * within a small memory budget with {@link SpillingWordCounts}, then
+ * {@link ParallelWordCounter} on all processors</li>
+ * <li>select: {@link TagCloud#selectTop} of the top {@code words}</li>
+ * <li>sort: {@link TagCloud#sortAlphabetically} of the selection</li>
+ * <li>render: {@link TagCloud#printCloud} into a discarding channel, in
+ * every {@link OutputFormat}</li>
+ * </ul>
+ *
+ * <p>
+ * The corpus is {@code data/BeeMovie.txt} itself, or a copy of it scaled by
+ * repetition to a size with a K, M or G suffix, written to a temporary
+ * directory that is removed afterwards. The default sizes keep a run short;
+ * larger corpora are asked for on the command line. Run from the repository
+ * root:
+ * </p>
+ *
+ * <pre>
+ * mvn -P jmh package
+ * java --add-modules jdk.incubator.vector -jar target/benchmarks.jar \
+ *     [-p size=source,1M,100M,1G] [-p words=100] [regexp]
+ * </pre>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Fork(value = 2, jvmArgsAppend = {"--add-modules", "jdk.incubator.vector"})
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+public class StageBenchmark {
+
+    /**
+     * Size standing for the source text itself.
+     */
+    private static final String SOURCE_SIZE = "source";
+
+    /**
+     * Source text that scaled corpora are made of.
+     */
+    private static final Path SOURCE = Paths.get("data", "BeeMovie.txt");
+
+    /**
+     * Stop word list of the filtered count stage.
+     */
+    private static final Path STOP_WORDS = Paths.get("data", "stopwords.txt");
+
+    /**
+     * Number of characters decoded at a time by the tokenize stages.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Candidates kept by the approximate count stage.
+     */
+    private static final int APPROX_CANDIDATES = 1024;
+
+    /**
+     * Relative error bound of the approximate count stage.
+     */
+    private static final double APPROX_EPSILON = 1e-4;
+
+    /**
+     * Failure probability of the approximate count stage.
+     */
+    private static final double APPROX_DELTA = 0.01;
+
+    /**
+     * Memory budget of the spilling count stage, small enough to spill the
+     * vocabulary of the source text several times.
+     */
+    private static final long SPILL_BUDGET = 64 << 10;
+
+    /**
+     * Corpus size: {@code source} for the source text, or a size with a K,
+     * M or G suffix.
+     */
+    @Param({SOURCE_SIZE, "1M"})
+    private String size;
+
+    /**
+     * Number of words selected and rendered.
+     */
+    @Param({"100"})
+    private int words;
+
+    /**
+     * Temporary directory for the scaled corpus and the spilled runs.
+     */
+    private Path directory;
+
+    /**
+     * The corpus.
+     */
+    private Path corpus;
+
+    /**
+     * Tokenizer of the command-line tool.
+     */
+    private final Tokenizer separators = new SeparatorSet(
+            TagCloud.SEPARATORS);
+
+    /**
+     * Tokenizer by Unicode category.
+     */
+    private final Tokenizer unicode = new UnicodeTokenizer();
+
+    /**
+     * Vectorized scanner of the separators of {@code separators}.
+     */
+    private SeparatorScanner vector;
+
+    /**
+     * Stop words of the filtered count stage.
+     */
+    private StopWords stopWords;
+
+    /**
+     * Number of processors counted on in parallel.
+     */
+    private final int processors = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Counts of the corpus, the input of the select stage.
+     */
+    private WordCounts counts;
+
+    /**
+     * Number of words selected: {@code words}, or fewer if the corpus has
+     * fewer.
+     */
+    private int selected;
+
+    /**
+     * Most frequent words of the corpus, the input of the sort stage.
+     */
+    private TopWords top;
+
+    /**
+     * Most frequent words in alphabetical order, the input of the render
+     * stage.
+     */
+    private List<Entry<String, Long>> alphabetical;
+
+    /**
+     * Channel discarding the rendered clouds.
+     */
+    private final WritableByteChannel discard = Channels
+            .newChannel(OutputStream.nullOutputStream());
+
+    /**
+     * Format of the render stage.
+     */
+    @State(Scope.Benchmark)
+    public static class Rendering {
+
+        /**
+         * The format rendered.
+         */
+        @Param({"HTML", "JSON", "CSV", "SVG"})
+        private OutputFormat format;
+
+    }
+
+    /**
+     * Writes copies of {@code source} to {@code target} until it holds at
+     * least {@code bytes} bytes.
+     *
+     * @param source
+     *            the text to repeat
+     * @param target
+     *            the corpus to create
+     * @param bytes
+     *            the minimum corpus size in bytes
+     * @throws IOException
+     *             if the corpus cannot be written
+     */
+    private static void scale(byte[] source, Path target, long bytes)
+            throws IOException {
+        try (OutputStream out = Files.newOutputStream(target)) {
+            long written = 0;
+            while (written < bytes) {
+                out.write(source);
+                out.write('\n');
+                written += source.length + 1;
+            }
+        }
+    }
+
+    /**
+     * Parses a size such as {@code 512K}, {@code 100M} or {@code 1G}.
+     *
+     * @param size
+     *            the size
+     * @return the size in bytes
+     * @throws NumberFormatException
+     *             if {@code size} is not a valid size
+     */
+    private static long parseSize(String size) {
+        final int kiloShift = 10;
+        final int megaShift = 20;
+        final int gigaShift = 30;
+        char unit = Character.toUpperCase(size.charAt(size.length() - 1));
+        String digits = size.substring(0, size.length() - 1);
+        switch (unit) {
+            case 'K':
+                return Long.parseLong(digits) << kiloShift;
+            case 'M':
+                return Long.parseLong(digits) << megaShift;
+            case 'G':
+                return Long.parseLong(digits) << gigaShift;
+            default:
+                return Long.parseLong(size);
+        }
+    }
+
+    /**
+     * Prepares the corpus and the input of every stage.
+     *
+     * @throws IOException
+     *             if the corpus cannot be read or written
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        this.vector = SeparatorScanner.vectorized(this.separators);
+        if (this.vector == null) {
+            throw new IllegalStateException(
+                    "The Vector API scanner is not available");
+        }
+        this.directory = Files.createTempDirectory("tagcloud-jmh");
+        if (this.size.equals(SOURCE_SIZE)) {
+            this.corpus = SOURCE;
+        } else {
+            this.corpus = this.directory
+                    .resolve("corpus-" + this.size + ".txt");
+            scale(Files.readAllBytes(SOURCE), this.corpus,
+                    parseSize(this.size));
+        }
+        this.stopWords = StopWords.read(STOP_WORDS, this.separators,
+                CaseFolding.UNICODE);
+        this.counts = this.countParallel();
+        this.selected = Math.min(this.words, this.counts.size());
+        this.top = TagCloud.selectTop(this.counts, this.selected);
+        this.alphabetical = TagCloud.sortAlphabetically(this.top);
+    }
+
+    /**
+     * Removes the scaled corpus and the temporary directory.
+     *
+     * @throws IOException
+     *             if they cannot be removed
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        if (!this.corpus.equals(SOURCE)) {
+            Files.delete(this.corpus);
+        }
+        Files.delete(this.directory);
+    }
+
+    /**
+     * Splits the decoded corpus into words with a {@link WordScanner}
+     * without counting them.
+     *
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @return the number of words found
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    private long tokenize(Tokenizer tokenizer, CaseFolding folding)
+            throws IOException {
+        WordScanner scanner = new WordScanner(tokenizer, folding);
+        char[] buffer = new char[BUFFER_SIZE];
+        long tokens = 0;
+        try (BufferedReader in = Files.newBufferedReader(this.corpus,
+                StandardCharsets.UTF_8)) {
+            int read = in.read(buffer);
+            while (read >= 0) {
+                scanner.reset(buffer, 0, read);
+                while (scanner.next()) {
+                    tokens++;
+                }
+                read = in.read(buffer);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * Counts the corpus into {@code sink} with a {@link MappedWordCounter}
+     * on one thread.
+     *
+     * @param <T>
+     *            the type of the sink
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param scanner
+     *            the vectorized separator scanner, or {@code null} to
+     *            classify one byte at a time
+     * @param sink
+     *            the sink receiving the words
+     * @return {@code sink}
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    private <T extends TokenSink> T count(Tokenizer tokenizer,
+            SeparatorScanner scanner, T sink) throws IOException {
+        new MappedWordCounter(tokenizer, CaseFolding.UNICODE, sink, scanner)
+                .countFile(this.corpus);
+        return sink;
+    }
+
+    /**
+     * Measures tokenizing on the separator list.
+     *
+     * @return the number of words found
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public long tokenize() throws IOException {
+        return this.tokenize(this.separators, CaseFolding.NONE);
+    }
+
+    /**
+     * Measures tokenizing on the separator list and folding case.
+     *
+     * @return the number of words found
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public long tokenizeFolded() throws IOException {
+        return this.tokenize(this.separators, CaseFolding.UNICODE);
+    }
+
+    /**
+     * Measures tokenizing by Unicode category.
+     *
+     * @return the number of words found
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public long tokenizeUnicode() throws IOException {
+        return this.tokenize(this.unicode, CaseFolding.NONE);
+    }
+
+    /**
+     * Measures finding the words of the file one byte at a time.
+     *
+     * @return the number of words found
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public long scan() throws IOException {
+        long[] tokens = new long[1];
+        this.count(this.separators, null,
+                (text, offset, length) -> tokens[0]++);
+        return tokens[0];
+    }
+
+    /**
+     * Measures finding the words of the file with the vectorized scanner.
+     *
+     * @return the number of words found
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public long scanVector() throws IOException {
+        long[] tokens = new long[1];
+        this.count(this.separators, this.vector,
+                (text, offset, length) -> tokens[0]++);
+        return tokens[0];
+    }
+
+    /**
+     * Measures counting on one thread, one byte at a time.
+     *
+     * @return the counts
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public WordCounts count() throws IOException {
+        return this.count(this.separators, null, new WordCounts());
+    }
+
+    /**
+     * Measures counting on one thread with the vectorized scanner.
+     *
+     * @return the counts
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public WordCounts countVector() throws IOException {
+        return this.count(this.separators, this.vector, new WordCounts());
+    }
+
+    /**
+     * Measures counting without the stop words.
+     *
+     * @return the counts
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public WordCounts countStopWords() throws IOException {
+        WordCounts result = new WordCounts();
+        this.count(this.separators, null, this.stopWords.filter(result));
+        return result;
+    }
+
+    /**
+     * Measures counting stems.
+     *
+     * @return the counts
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public WordCounts countStemmed() throws IOException {
+        WordCounts result = new WordCounts();
+        this.count(this.separators, null, Stemming.PORTER.filter(result));
+        return result;
+    }
+
+    /**
+     * Measures counting words split by Unicode category.
+     *
+     * @return the counts
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public WordCounts countUnicode() throws IOException {
+        return this.count(this.unicode, null, new WordCounts());
+    }
+
+    /**
+     * Measures counting two-word phrases.
+     *
+     * @return the counts
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public WordCounts countBigrams() throws IOException {
+        WordCounts result = new WordCounts();
+        this.count(this.separators, null,
+                new PhraseSink(2, StopWords.NONE, result));
+        return result;
+    }
+
+    /**
+     * Measures counting three-word phrases.
+     *
+     * @return the counts
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public WordCounts countTrigrams() throws IOException {
+        final int phraseWords = 3;
+        WordCounts result = new WordCounts();
+        this.count(this.separators, null,
+                new PhraseSink(phraseWords, StopWords.NONE, result));
+        return result;
+    }
+
+    /**
+     * Measures counting approximately.
+     *
+     * @return the heavy hitters
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public HeavyHitters countApproximate() throws IOException {
+        return this.count(this.separators, null, new HeavyHitters(
+                APPROX_CANDIDATES, APPROX_EPSILON, APPROX_DELTA));
+    }
+
+    /**
+     * Measures counting within a memory budget and selecting the top words
+     * from the spilled runs.
+     *
+     * @return the number of distinct words
+     * @throws IOException
+     *             if the corpus cannot be read or a run cannot be written
+     */
+    @Benchmark
+    public long countSpilling() throws IOException {
+        try (SpillingWordCounts spilling = new SpillingWordCounts(
+                SPILL_BUDGET, this.directory)) {
+            this.count(this.separators, null, spilling);
+            return spilling.select(new TopWords(this.selected));
+        }
+    }
+
+    /**
+     * Measures counting on all processors.
+     *
+     * @return the counts
+     * @throws IOException
+     *             if the corpus cannot be read
+     */
+    @Benchmark
+    public WordCounts countParallel() throws IOException {
+        return ParallelWordCounter.countFile(this.corpus, this.separators,
+                CaseFolding.UNICODE, StopWords.NONE, this.processors);
+    }
+
+    /**
+     * Measures selecting the top words.
+     *
+     * @return the selected words
+     */
+    @Benchmark
+    public TopWords select() {
+        return TagCloud.selectTop(this.counts, this.selected);
+    }
+
+    /**
+     * Measures sorting the top words.
+     *
+     * @return the sorted words
+     */
+    @Benchmark
+    public List<Entry<String, Long>> sort() {
+        return TagCloud.sortAlphabetically(this.top);
+    }
+
+    /**
+     * Measures rendering the cloud.
+     *
+     * @param rendering
+     *            the format to render
+     * @return the number of words rendered
+     * @throws IOException
+     *             if rendering fails
+     */
+    @Benchmark
+    public int render(Rendering rendering) throws IOException {
+        TagCloud.printCloud(this.alphabetical, this.discard,
+                this.corpus.toString(), rendering.format);
+        return this.alphabetical.size();
+    }
+
+}
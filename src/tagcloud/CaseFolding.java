@@ -0,0 +1,102 @@
+package tagcloud;
+
+/**
+ * How the characters of a word are folded to one case before it is counted.
+ *
+ * <p>
+ * Folding is applied by the scanners to each word in place, as it is found,
+ * so the text is never copied just to normalize its case. ASCII characters
+ * are folded through a table; everything else uses
+ * {@link Character#toLowerCase(int)}, which does not depend on the default
+ * locale.
+ * </p>
+ */
+public enum CaseFolding {
+
+    /**
+     * Words are counted exactly as written.
+     */
+    NONE,
+
+    /**
+     * Only {@code A-Z} are lowercased; other characters are left as written.
+     */
+    ASCII,
+
+    /**
+     * Every character with a lowercase form is lowercased.
+     */
+    UNICODE;
+
+    /**
+     * Number of ASCII characters.
+     */
+    private static final int ASCII_CHARS = 128;
+
+    /**
+     * Lowercase form of each ASCII character.
+     */
+    private static final char[] LOWER = new char[ASCII_CHARS];
+
+    static {
+        for (char c = 0; c < ASCII_CHARS; c++) {
+            LOWER[c] = Character.toLowerCase(c);
+        }
+    }
+
+    /**
+     * Returns {@code c} folded.
+     *
+     * @param c
+     *            the character
+     * @return the folded character
+     */
+    public char fold(char c) {
+        char folded = c;
+        if (c < ASCII_CHARS) {
+            if (this != NONE) {
+                folded = LOWER[c];
+            }
+        } else if (this == UNICODE) {
+            folded = Character.toLowerCase(c);
+        }
+        return folded;
+    }
+
+    /**
+     * Folds {@code text[from, to)} in place.
+     *
+     * @param text
+     *            the characters to fold
+     * @param from
+     *            the first index to fold
+     * @param to
+     *            the end (exclusive) of the range to fold
+     * @updates text
+     * @requires 0 <= from <= to <= |text|
+     */
+    public void fold(char[] text, int from, int to) {
+        if (this != NONE) {
+            for (int i = from; i < to; i++) {
+                char c = text[i];
+                if (c < ASCII_CHARS) {
+                    text[i] = LOWER[c];
+                } else if (this == UNICODE) {
+                    if (Character.isHighSurrogate(c) && i + 1 < to
+                            && Character.isLowSurrogate(text[i + 1])) {
+                        /* Supplementary character: fold the code point */
+                        int lower = Character.toLowerCase(
+                                Character.toCodePoint(c, text[i + 1]));
+                        if (Character.isSupplementaryCodePoint(lower)) {
+                            Character.toChars(lower, text, i);
+                        }
+                        i++;
+                    } else {
+                        text[i] = Character.toLowerCase(c);
+                    }
+                }
+            }
+        }
+    }
+
+}
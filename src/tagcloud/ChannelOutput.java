@@ -0,0 +1,307 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Buffered UTF-8 output to a {@link WritableByteChannel}.
+ *
+ * <p>
+ * Text and numbers are encoded straight into one reusable {@link ByteBuffer},
+ * which is written to the channel whenever it fills up; nothing is built as
+ * an intermediate {@code String}, so output of any length uses a fixed amount
+ * of memory. Text in a markup or data format is written with
+ * {@link #writeEscaped}, given the escape table of the format.
+ * </p>
+ */
+public final class ChannelOutput {
+
+    /**
+     * Escape table of a text format.
+     */
+    @FunctionalInterface
+    public interface Escapes {
+
+        /**
+         * Returns the escape of {@code c}.
+         *
+         * @param c
+         *            the character
+         * @return the encoded escape, or {@code null} if {@code c} is
+         *         written as is
+         */
+        byte[] escape(char c);
+    }
+
+    /**
+     * Default buffer size in bytes.
+     */
+    private static final int DEFAULT_CAPACITY = 1 << 16;
+
+    /**
+     * Longest UTF-8 encoding of one {@code char} (or surrogate pair), and of a
+     * decimal {@code long}.
+     */
+    private static final int MAX_ENCODED = 20;
+
+    /**
+     * Channel written to.
+     */
+    private final WritableByteChannel channel;
+
+    /**
+     * Pending output.
+     */
+    private final ByteBuffer buffer;
+
+    /**
+     * Scratch space for the digits of a number, least significant first.
+     */
+    private final byte[] digits = new byte[MAX_ENCODED];
+
+    /**
+     * Creates an output with the default buffer size.
+     *
+     * @param channel
+     *            the channel to write to
+     */
+    public ChannelOutput(WritableByteChannel channel) {
+        this(channel, DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an output with a buffer of {@code capacity} bytes.
+     *
+     * @param channel
+     *            the channel to write to
+     * @param capacity
+     *            the buffer size in bytes
+     * @requires capacity >= 20
+     */
+    public ChannelOutput(WritableByteChannel channel, int capacity) {
+        assert channel != null : "Violation of: channel is not null";
+        assert capacity >= MAX_ENCODED : "Violation of: capacity >= 20";
+
+        this.channel = channel;
+        this.buffer = ByteBuffer.allocate(capacity);
+    }
+
+    /**
+     * Returns {@code text} encoded as UTF-8, for the fixed fragments of a
+     * format.
+     *
+     * @param text
+     *            the text
+     * @return the UTF-8 bytes of {@code text}
+     */
+    public static byte[] bytes(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Makes room for at least {@code bytes} more bytes in the buffer.
+     *
+     * @param bytes
+     *            the number of bytes about to be written
+     * @throws IOException
+     *             if flushing fails
+     */
+    private void reserve(int bytes) throws IOException {
+        if (this.buffer.remaining() < bytes) {
+            this.flush();
+        }
+    }
+
+    /**
+     * Writes raw bytes, typically a precomputed fragment.
+     *
+     * @param bytes
+     *            the bytes to write
+     * @return this output
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    public ChannelOutput write(byte[] bytes) throws IOException {
+        int offset = 0;
+        while (offset < bytes.length) {
+            if (!this.buffer.hasRemaining()) {
+                this.flush();
+            }
+            int length = Math.min(bytes.length - offset,
+                    this.buffer.remaining());
+            this.buffer.put(bytes, offset, length);
+            offset += length;
+        }
+        return this;
+    }
+
+    /**
+     * Writes a single ASCII character.
+     *
+     * @param c
+     *            the character
+     * @return this output
+     * @throws IOException
+     *             if writing to the channel fails
+     * @requires c < 128
+     */
+    public ChannelOutput write(char c) throws IOException {
+        this.reserve(1);
+        this.buffer.put((byte) c);
+        return this;
+    }
+
+    /**
+     * Writes {@code text} encoded as UTF-8.
+     *
+     * @param text
+     *            the text to write
+     * @return this output
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    public ChannelOutput write(CharSequence text) throws IOException {
+        return this.write(text, 0, text.length());
+    }
+
+    /**
+     * Writes {@code text[from, to)} encoded as UTF-8.
+     *
+     * @param text
+     *            the text to write
+     * @param from
+     *            the index of the first character to write
+     * @param to
+     *            the end (exclusive) of the characters to write
+     * @return this output
+     * @throws IOException
+     *             if writing to the channel fails
+     * @requires 0 <= from <= to <= |text|
+     */
+    private ChannelOutput write(CharSequence text, int from, int to)
+            throws IOException {
+        final int oneByte = 0x80;
+        final int twoBytes = 0x800;
+        final int sixBits = 6;
+        final int twelveBits = 12;
+        final int eighteenBits = 18;
+        final int lead2 = 0xC0;
+        final int lead3 = 0xE0;
+        final int lead4 = 0xF0;
+        final int continuation = 0x80;
+        final int payload = 0x3F;
+
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < oneByte) {
+                if (!this.buffer.hasRemaining()) {
+                    this.flush();
+                }
+                this.buffer.put((byte) c);
+            } else {
+                this.reserve(4);
+                if (c < twoBytes) {
+                    this.buffer.put((byte) (lead2 | (c >> sixBits)));
+                    this.buffer.put((byte) (continuation | (c & payload)));
+                } else if (Character.isHighSurrogate(c) && i + 1 < to
+                        && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int cp = Character.toCodePoint(c, text.charAt(i + 1));
+                    i++;
+                    this.buffer.put((byte) (lead4 | (cp >> eighteenBits)));
+                    this.buffer.put((byte) (continuation
+                            | ((cp >> twelveBits) & payload)));
+                    this.buffer.put((byte) (continuation
+                            | ((cp >> sixBits) & payload)));
+                    this.buffer.put((byte) (continuation | (cp & payload)));
+                } else if (Character.isSurrogate(c)) {
+                    /* Unpaired surrogate: written as '?' like String */
+                    this.buffer.put((byte) '?');
+                } else {
+                    this.buffer.put((byte) (lead3 | (c >> twelveBits)));
+                    this.buffer.put((byte) (continuation
+                            | ((c >> sixBits) & payload)));
+                    this.buffer.put((byte) (continuation | (c & payload)));
+                }
+            }
+        }
+        return this;
+    }
+
+    /**
+     * Writes {@code text} encoded as UTF-8, with every character that has an
+     * escape in {@code escapes} replaced by it. The runs of characters
+     * between escapes are encoded straight from {@code text}.
+     *
+     * @param text
+     *            the text to write
+     * @param escapes
+     *            the escape table of the format written
+     * @return this output
+     * @throws IOException
+     *             if writing to the channel fails
+     * @requires escapes only escapes characters below U+D800
+     */
+    public ChannelOutput writeEscaped(CharSequence text, Escapes escapes)
+            throws IOException {
+        int from = 0;
+        int length = text.length();
+        for (int i = 0; i < length; i++) {
+            byte[] escape = escapes.escape(text.charAt(i));
+            if (escape != null) {
+                this.write(text, from, i).write(escape);
+                from = i + 1;
+            }
+        }
+        return this.write(text, from, length);
+    }
+
+    /**
+     * Writes {@code value} in decimal.
+     *
+     * @param value
+     *            the number to write
+     * @return this output
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    public ChannelOutput write(long value) throws IOException {
+        final int radix = 10;
+        if (value == Long.MIN_VALUE) {
+            return this.write(Long.toString(value));
+        }
+        this.reserve(MAX_ENCODED);
+        long v = value;
+        if (v < 0) {
+            this.buffer.put((byte) '-');
+            v = -v;
+        }
+        int n = 0;
+        do {
+            this.digits[n] = (byte) ('0' + (int) (v % radix));
+            n++;
+            v /= radix;
+        } while (v != 0);
+        while (n > 0) {
+            n--;
+            this.buffer.put(this.digits[n]);
+        }
+        return this;
+    }
+
+    /**
+     * Writes everything buffered so far to the channel.
+     *
+     * @throws IOException
+     *             if writing to the channel fails
+     */
+    public void flush() throws IOException {
+        this.buffer.flip();
+        while (this.buffer.hasRemaining()) {
+            this.channel.write(this.buffer);
+        }
+        this.buffer.clear();
+    }
+
+}
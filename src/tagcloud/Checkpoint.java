@@ -0,0 +1,420 @@
+package tagcloud;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * Incremental counting of a file that only ever grows, such as a log.
+ *
+ * <p>
+ * A checkpoint file records how many bytes of the input have been counted,
+ * a fingerprint of the bytes just before that offset, and the counts so far.
+ * A rerun loads it, checks that the input still starts with the same bytes,
+ * and only tokenizes what was appended since, so refreshing costs time
+ * proportional to the new data. The checkpoint always ends right after a
+ * separator: an unterminated last word is counted for the current run but
+ * left out of the checkpoint, to be read again once it is complete. If the
+ * input shrank or its fingerprint changed (rotated or rewritten), it is
+ * counted again from the start, as it is when the checkpoint was taken with
+ * a different tokenizer, case folding, stop word list or stemming, or is
+ * not a checkpoint of the current version; the checkpoint is then replaced.
+ * Which of these happened is returned with the counts as an
+ * {@link Outcome}, for the caller to report.
+ * </p>
+ *
+ * <p>
+ * Layout, all big-endian: magic {@code "TCKP"}, int version, long offset,
+ * long fingerprint, long tokenizer fingerprint, int case folding ordinal,
+ * long filter fingerprint, int number of words, then for each word an int
+ * UTF-8 length, the UTF-8 bytes and a long count.
+ * </p>
+ */
+public final class Checkpoint {
+
+    /**
+     * First four bytes of every checkpoint file, "TCKP".
+     */
+    private static final int MAGIC = 0x54434B50;
+
+    /**
+     * Current layout version.
+     */
+    private static final int VERSION = 4;
+
+    /**
+     * Number of bytes before the offset covered by the fingerprint.
+     */
+    private static final int FINGERPRINT_SIZE = 4096;
+
+    /**
+     * Number of ASCII characters.
+     */
+    private static final int ASCII = 128;
+
+    /**
+     * How a run used the checkpoint it was given.
+     */
+    public enum Outcome {
+
+        /**
+         * There was no checkpoint; the whole file was counted.
+         */
+        CREATED(null),
+
+        /**
+         * Counting resumed from the checkpoint.
+         */
+        RESUMED(null),
+
+        /**
+         * The checkpoint is not a checkpoint of the current version.
+         */
+        OTHER_VERSION("is not a version " + VERSION
+                + " tag cloud checkpoint"),
+
+        /**
+         * The checkpoint was taken with other settings.
+         */
+        OTHER_SETTINGS("was taken with other tokenizer, case folding, stop"
+                + " words or stemming"),
+
+        /**
+         * The input shrank or was rewritten since the checkpoint.
+         */
+        INPUT_CHANGED("does not match the input file any more"),
+
+        /**
+         * The checkpoint ends before its counts do.
+         */
+        TRUNCATED("is truncated");
+
+        /**
+         * Why the file was counted from the start, or {@code null}.
+         */
+        private final String reason;
+
+        /**
+         * Creates an outcome.
+         *
+         * @param reason
+         *            why the file was counted from the start, or
+         *            {@code null} if there is nothing to report
+         */
+        Outcome(String reason) {
+            this.reason = reason;
+        }
+
+        /**
+         * Returns why an existing checkpoint was not used, to follow the
+         * name of the checkpoint in a message.
+         *
+         * @return the reason the file was counted from the start, or
+         *         {@code null} if there was no checkpoint or it was used
+         */
+        public String reason() {
+            return this.reason;
+        }
+
+    }
+
+    /**
+     * Counts of the whole file.
+     */
+    private final WordCounts counts;
+
+    /**
+     * How the checkpoint was used.
+     */
+    private final Outcome outcome;
+
+    /**
+     * Creates the result of a run.
+     *
+     * @param counts
+     *            the counts of the whole file
+     * @param outcome
+     *            how the checkpoint was used
+     */
+    private Checkpoint(WordCounts counts, Outcome outcome) {
+        this.counts = counts;
+        this.outcome = outcome;
+    }
+
+    /**
+     * Returns the counts of the whole file.
+     *
+     * @return table of words with counts
+     */
+    public WordCounts counts() {
+        return this.counts;
+    }
+
+    /**
+     * Returns how the checkpoint was used.
+     *
+     * @return whether counting resumed from the checkpoint, and why not
+     */
+    public Outcome outcome() {
+        return this.outcome;
+    }
+
+    /**
+     * Counts all words in {@code file}, resuming from {@code checkpoint} when
+     * it matches the file, and updates {@code checkpoint} to cover the file
+     * as it is now.
+     *
+     * @param file
+     *            the UTF-8 input file
+     * @param checkpoint
+     *            the checkpoint file; created if it does not exist
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param threads
+     *            the maximum number of threads to count new data on
+     * @return the counts of the whole file, and how the checkpoint was used
+     * @throws IOException
+     *             if the input cannot be read, or the checkpoint cannot be
+     *             read or written
+     * @requires threads > 0
+     */
+    public static Checkpoint countIncrementally(Path file, Path checkpoint,
+            Tokenizer tokenizer, CaseFolding folding, TokenFilter filter,
+            int threads) throws IOException {
+        assert file != null : "Violation of: file is not null";
+        assert checkpoint != null : "Violation of: checkpoint is not null";
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+        assert filter != null : "Violation of: filter is not null";
+        assert threads > 0 : "Violation of: threads > 0";
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            long size = channel.size();
+            long offset = 0;
+            WordCounts counts = new WordCounts();
+            Outcome outcome;
+            try (DataInputStream in = new DataInputStream(
+                    new BufferedInputStream(
+                            Files.newInputStream(checkpoint)))) {
+                int magic = in.readInt();
+                int version = in.readInt();
+                if (magic != MAGIC || version != VERSION) {
+                    outcome = Outcome.OTHER_VERSION;
+                } else {
+                    long savedOffset = in.readLong();
+                    long savedFingerprint = in.readLong();
+                    long savedTokenizer = in.readLong();
+                    int savedFolding = in.readInt();
+                    long savedFilter = in.readLong();
+                    if (savedTokenizer != tokenizer.fingerprint()
+                            || savedFolding != folding.ordinal()
+                            || savedFilter != filter.fingerprint()) {
+                        outcome = Outcome.OTHER_SETTINGS;
+                    } else if (savedOffset <= size && savedFingerprint
+                            == fingerprint(channel, savedOffset)) {
+                        counts = readCounts(in);
+                        offset = savedOffset;
+                        outcome = Outcome.RESUMED;
+                    } else {
+                        outcome = Outcome.INPUT_CHANGED;
+                    }
+                }
+            } catch (NoSuchFileException e) {
+                /* First run: count the whole file */
+                offset = 0;
+                outcome = Outcome.CREATED;
+            } catch (EOFException e) {
+                offset = 0;
+                outcome = Outcome.TRUNCATED;
+            }
+
+            /* Counts the new data up to its last separator and saves it */
+            long boundary = lastBoundary(channel, offset, size, tokenizer);
+            counts.addAll(ParallelWordCounter.countRange(channel, offset,
+                    boundary, tokenizer, folding, filter, threads));
+            write(checkpoint, boundary, fingerprint(channel, boundary),
+                    tokenizer, folding, filter, counts);
+
+            /* Counts the unterminated tail for this run only */
+            if (boundary < size) {
+                counts.addAll(ParallelWordCounter.countRange(channel,
+                        boundary, size, tokenizer, folding, filter, 1));
+            }
+            return new Checkpoint(counts, outcome);
+        }
+    }
+
+    /**
+     * Returns the position just after the last ASCII separator in
+     * {@code [from, to)} of {@code channel}, or {@code from} if there is none.
+     *
+     * @param channel
+     *            the file
+     * @param from
+     *            the start of the search
+     * @param to
+     *            the end (exclusive) of the search
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @return the position after the last separator
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static long lastBoundary(FileChannel channel, long from, long to,
+            Tokenizer tokenizer) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(FINGERPRINT_SIZE);
+        long end = to;
+        while (end > from) {
+            long start = Math.max(from, end - probe.capacity());
+            probe.clear();
+            probe.limit((int) (end - start));
+            while (probe.hasRemaining()
+                    && channel.read(probe, start + probe.position()) > 0) {
+                continue;
+            }
+            for (int i = probe.position() - 1; i >= 0; i--) {
+                int b = probe.get(i);
+                if (b >= 0 && b < ASCII && tokenizer.isSeparator((char) b)) {
+                    return start + i + 1;
+                }
+            }
+            end = start;
+        }
+        return from;
+    }
+
+    /**
+     * Returns a checksum of the bytes just before {@code offset}, used to
+     * recognize that the file was not replaced since a checkpoint.
+     *
+     * @param channel
+     *            the file
+     * @param offset
+     *            the end (exclusive) of the fingerprinted bytes
+     * @return the fingerprint
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static long fingerprint(FileChannel channel, long offset)
+            throws IOException {
+        long start = Math.max(0, offset - FINGERPRINT_SIZE);
+        ByteBuffer bytes = ByteBuffer.allocate((int) (offset - start));
+        while (bytes.hasRemaining()
+                && channel.read(bytes, start + bytes.position()) > 0) {
+            continue;
+        }
+        bytes.flip();
+        CRC32 crc = new CRC32();
+        crc.update(bytes);
+        return crc.getValue();
+    }
+
+    /**
+     * Reads the counts section of a checkpoint.
+     *
+     * @param in
+     *            the checkpoint, positioned at the counts
+     * @return the counts read
+     * @throws IOException
+     *             if the checkpoint is truncated or cannot be read
+     */
+    private static WordCounts readCounts(DataInputStream in)
+            throws IOException {
+        int size = in.readInt();
+        WordCounts counts = new WordCounts(size);
+        byte[] bytes = new byte[0];
+        for (int i = 0; i < size; i++) {
+            int length = in.readInt();
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            in.readFully(bytes, 0, length);
+            counts.add(new String(bytes, 0, length, StandardCharsets.UTF_8),
+                    in.readLong());
+        }
+        return counts;
+    }
+
+    /**
+     * Writes a checkpoint, replacing any previous one only once the new one
+     * is complete.
+     *
+     * @param checkpoint
+     *            the checkpoint file
+     * @param offset
+     *            the number of input bytes counted
+     * @param fingerprint
+     *            the fingerprint of the bytes before {@code offset}
+     * @param tokenizer
+     *            the tokenizer the counts were taken with
+     * @param folding
+     *            the case folding the counts were taken with
+     * @param filter
+     *            the filter the counts were taken with
+     * @param counts
+     *            the counts of the first {@code offset} bytes
+     * @throws IOException
+     *             if the checkpoint cannot be written
+     */
+    private static void write(Path checkpoint, long offset, long fingerprint,
+            Tokenizer tokenizer, CaseFolding folding, TokenFilter filter,
+            WordCounts counts) throws IOException {
+        Path temporary = checkpoint
+                .resolveSibling(checkpoint.getFileName() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(offset);
+            out.writeLong(fingerprint);
+            out.writeLong(tokenizer.fingerprint());
+            out.writeInt(folding.ordinal());
+            out.writeLong(filter.fingerprint());
+            out.writeInt(counts.size());
+            WordArena arena = counts.arena();
+            byte[] bytes = new byte[0];
+            for (int slot = 0; slot < counts.capacity(); slot++) {
+                int length = counts.keyLength(slot);
+                if (length != 0) {
+                    /* Encodes the word straight from the arena */
+                    int start = counts.keyStart(slot);
+                    int size = arena.utf8Length(start, length);
+                    if (bytes.length < size) {
+                        bytes = new byte[size];
+                    }
+                    arena.encode(start, length, bytes, 0);
+                    out.writeInt(size);
+                    out.write(bytes, 0, size);
+                    out.writeLong(counts.countAt(slot));
+                }
+            }
+        }
+        try {
+            Files.move(temporary, checkpoint,
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, checkpoint,
+                    StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+}
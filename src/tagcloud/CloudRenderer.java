@@ -0,0 +1,33 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Writer of a tag cloud in one output format, such as an HTML page or a JSON
+ * document, chosen with {@link OutputFormat}.
+ *
+ * <p>
+ * Renderers stream the cloud through a {@link ChannelOutput}: fixed text is
+ * encoded once and each word is encoded straight into the output buffer, so
+ * a cloud of any size is written with memory bounded by the buffer and
+ * never built as a {@code String}.
+ * </p>
+ */
+public interface CloudRenderer {
+
+    /**
+     * Renders the cloud of {@code words} and flushes it.
+     *
+     * @param words
+     *            the words to render with their counts, in alphabetical order
+     * @param inputName
+     *            the name of the input
+     * @throws IOException
+     *             if writing fails
+     */
+    void render(List<Entry<String, Long>> words, String inputName)
+            throws IOException;
+
+}
@@ -0,0 +1,295 @@
+package tagcloud;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Counts a corpus of many files into one aggregated table.
+ *
+ * <p>
+ * Files are streamed from a directory walk or glob match straight into a
+ * fixed pool of worker threads through a bounded queue; when the queue is
+ * full the submitting thread counts the next file itself, so discovery never
+ * runs far ahead of counting. Each thread owns one counter and one table that
+ * it reuses for every file it is given, and the per-thread tables are merged
+ * once all files are done. Only the files currently being counted are mapped
+ * at any time.
+ * </p>
+ */
+public final class CorpusCounter {
+
+    /**
+     * Characters that make an input name a glob pattern.
+     */
+    private static final String GLOB_CHARACTERS = "*?[{";
+
+    /**
+     * Queued files per worker thread.
+     */
+    private static final int QUEUE_PER_THREAD = 4;
+
+    /**
+     * Separator characters.
+     */
+    private final Tokenizer tokenizer;
+
+    /**
+     * Case folding applied to each word.
+     */
+    private final CaseFolding folding;
+
+    /**
+     * Filter words pass through before they are counted.
+     */
+    private final TokenFilter filter;
+
+    /**
+     * Charset of the files.
+     */
+    private final Charset charset;
+
+    /**
+     * A counter and the table it fills, used by a single thread.
+     */
+    private final class Worker {
+
+        /**
+         * Table receiving the counts of every file this worker counts.
+         */
+        private final WordCounts counts = new WordCounts();
+
+        /**
+         * Filtering sink in front of the table, shared by both counters.
+         */
+        private final TokenSink sink = CorpusCounter.this.filter
+                .filter(this.counts);
+
+        /**
+         * Counter for memory-mapped UTF-8 files.
+         */
+        private final MappedWordCounter mapped = new MappedWordCounter(
+                CorpusCounter.this.tokenizer, CorpusCounter.this.folding,
+                this.sink);
+
+        /**
+         * Counter for files in other charsets.
+         */
+        private final ReaderWordCounter reader = new ReaderWordCounter(
+                CorpusCounter.this.tokenizer, CorpusCounter.this.folding,
+                this.sink);
+
+        /**
+         * Counts {@code file} into this worker's table.
+         *
+         * @param file
+         *            the file to count
+         * @throws IOException
+         *             if the file cannot be read
+         */
+        void count(Path file) throws IOException {
+            if (StandardCharsets.UTF_8.equals(CorpusCounter.this.charset)) {
+                this.mapped.countFile(file);
+            } else {
+                try (Reader in = new BufferedReader(new InputStreamReader(
+                        Files.newInputStream(file),
+                        CorpusCounter.this.charset))) {
+                    this.reader.count(in);
+                }
+            }
+        }
+    }
+
+    /**
+     * Creates a corpus counter.
+     *
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param charset
+     *            the charset of the files
+     */
+    public CorpusCounter(Tokenizer tokenizer, CaseFolding folding,
+            TokenFilter filter, Charset charset) {
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+        assert filter != null : "Violation of: filter is not null";
+        assert charset != null : "Violation of: charset is not null";
+
+        this.tokenizer = tokenizer;
+        this.folding = folding;
+        this.filter = filter;
+        this.charset = charset;
+    }
+
+    /**
+     * Reports whether {@code input} names more than one file: a directory or
+     * a glob pattern.
+     *
+     * @param input
+     *            the input name
+     * @return true iff {@code input} is a directory or contains a glob
+     *         character
+     */
+    public static boolean isCorpus(String input) {
+        return Files.isDirectory(Paths.get(input)) || isGlob(input);
+    }
+
+    /**
+     * Reports whether {@code input} contains a glob character.
+     *
+     * @param input
+     *            the input name
+     * @return true iff {@code input} contains one of the characters in
+     *         {@code GLOB_CHARACTERS}
+     */
+    private static boolean isGlob(String input) {
+        for (int i = 0; i < input.length(); i++) {
+            if (GLOB_CHARACTERS.indexOf(input.charAt(i)) >= 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the regular files named by {@code input}: the file itself, every
+     * file under a directory, or every file matching a glob pattern such as
+     * {@code logs/**.txt}. The stream must be closed after use.
+     *
+     * @param input
+     *            the input name
+     * @return the files named by {@code input}, discovered lazily
+     * @throws IOException
+     *             if the starting directory cannot be read
+     */
+    public static Stream<Path> files(String input) throws IOException {
+        if (!isGlob(input)) {
+            return Files.walk(Paths.get(input))
+                    .filter(Files::isRegularFile);
+        }
+        /* Walks from the longest leading path without glob characters */
+        int firstGlob = 0;
+        while (GLOB_CHARACTERS.indexOf(input.charAt(firstGlob)) < 0) {
+            firstGlob++;
+        }
+        int slash = Math.max(input.lastIndexOf('/', firstGlob),
+                input.lastIndexOf(File.separatorChar, firstGlob));
+        Path base = slash < 0 ? Paths.get("")
+                : Paths.get(input.substring(0, slash + 1));
+        PathMatcher matcher = FileSystems.getDefault()
+                .getPathMatcher("glob:" + input);
+        return Files.walk(base).filter(Files::isRegularFile)
+                .filter(path -> matcher.matches(path.normalize()));
+    }
+
+    /**
+     * Counts every file named by {@code inputs} on up to {@code threads}
+     * threads and returns the aggregated counts. If counting any file
+     * fails, the first failure is thrown once every file is done, whichever
+     * thread it happened on.
+     *
+     * @param inputs
+     *            files, directories and glob patterns to count
+     * @param threads
+     *            the number of worker threads
+     * @return table of words with counts across all files
+     * @throws IOException
+     *             if any file cannot be read
+     * @requires threads > 0
+     */
+    public WordCounts count(List<String> inputs, int threads)
+            throws IOException {
+        assert inputs != null : "Violation of: inputs is not null";
+        assert threads > 0 : "Violation of: threads > 0";
+
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 0,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(threads * QUEUE_PER_THREAD),
+                new ThreadPoolExecutor.CallerRunsPolicy());
+        /* Each thread, including the caller, gets its own worker */
+        List<Worker> workers = new ArrayList<>();
+        ThreadLocal<Worker> worker = ThreadLocal.withInitial(() -> {
+            Worker created = new Worker();
+            synchronized (workers) {
+                workers.add(created);
+            }
+            return created;
+        });
+        /*
+         * Failures are collected rather than thrown by the task, so that they
+         * reach the caller the same way whichever thread counted the file
+         */
+        List<Exception> failures = new ArrayList<>();
+        try {
+            for (String input : inputs) {
+                try (Stream<Path> files = files(input)) {
+                    files.forEach(file -> pool.execute(() -> {
+                        try {
+                            worker.get().count(file);
+                        } catch (IOException | RuntimeException e) {
+                            synchronized (failures) {
+                                failures.add(e);
+                            }
+                        }
+                    }));
+                } catch (UncheckedIOException e) {
+                    throw e.getCause();
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        try {
+            while (!pool.awaitTermination(1, TimeUnit.SECONDS)) {
+                continue;
+            }
+        } catch (InterruptedException e) {
+            pool.shutdownNow();
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while counting");
+        }
+        if (!failures.isEmpty()) {
+            Exception failure = failures.get(0);
+            if (failure instanceof IOException) {
+                throw (IOException) failure;
+            }
+            throw (RuntimeException) failure;
+        }
+
+        /* Merges the per-thread tables into the largest one */
+        WordCounts total = new WordCounts();
+        for (Worker w : workers) {
+            if (w.counts.size() > total.size()) {
+                total = w.counts;
+            }
+        }
+        for (Worker w : workers) {
+            if (w.counts != total) {
+                total.addAll(w.counts);
+            }
+        }
+        return total;
+    }
+
+}
@@ -0,0 +1,228 @@
+package tagcloud;
+
+/**
+ * Count-Min Sketch: approximate counts of an unbounded stream of keys in a
+ * fixed-size table.
+ *
+ * <p>
+ * The table has {@code depth} rows of {@code width} counters; every key maps
+ * to one counter per row, and its estimate is the smallest of those. An
+ * estimate is never below the true count and, with probability at least
+ * {@code 1 - delta}, exceeds it by at most {@code epsilon} times the total
+ * of all counts, for {@code width = e / epsilon} and
+ * {@code depth = ln(1 / delta)}. Updates are conservative: only the counters
+ * that are below the new estimate are raised, which keeps the same guarantee
+ * with a smaller overestimate in practice.
+ * </p>
+ *
+ * <p>
+ * Keys are given as 64-bit hashes; the row indexes are derived from the two
+ * halves of the hash, so the caller hashes each key once.
+ * </p>
+ */
+public final class CountMinSketch {
+
+    /**
+     * Largest counter table a sketch may have, in bytes; tighter bounds would
+     * take more memory than exact counting.
+     */
+    public static final long MAX_BYTES = 256L << 20;
+
+    /**
+     * Counters, row after row.
+     */
+    private final long[] counters;
+
+    /**
+     * Number of rows.
+     */
+    private final int depth;
+
+    /**
+     * Number of counters per row, a power of two.
+     */
+    private final int width;
+
+    /**
+     * Relative error bound.
+     */
+    private final double epsilon;
+
+    /**
+     * Probability of exceeding the error bound.
+     */
+    private final double delta;
+
+    /**
+     * Sum of all counts added.
+     */
+    private long total;
+
+    /**
+     * Creates an empty sketch whose estimates exceed the true counts by at
+     * most {@code epsilon} times the total count, with probability at least
+     * {@code 1 - delta}.
+     *
+     * @param epsilon
+     *            the relative error bound
+     * @param delta
+     *            the probability of exceeding the bound
+     * @requires <pre>
+     * 0 < epsilon < 1  and  0 < delta < 1  and
+     * bytes(epsilon, delta) <= MAX_BYTES
+     * </pre>
+     */
+    public CountMinSketch(double epsilon, double delta) {
+        assert 0 < epsilon && epsilon < 1 : "Violation of: 0 < epsilon < 1";
+        assert 0 < delta && delta < 1 : "Violation of: 0 < delta < 1";
+        assert bytes(epsilon, delta) <= MAX_BYTES
+                : "Violation of: bytes(epsilon, delta) <= MAX_BYTES";
+
+        this.width = width(epsilon);
+        this.depth = depth(delta);
+        this.counters = new long[Math
+                .toIntExact((long) this.width * this.depth)];
+        this.epsilon = epsilon;
+        this.delta = delta;
+    }
+
+    /**
+     * Returns the number of counters per row for the error bound
+     * {@code epsilon}: {@code e / epsilon} rounded up to a power of two.
+     *
+     * @param epsilon
+     *            the relative error bound
+     * @return the width
+     * @requires 0 < epsilon < 1
+     */
+    private static int width(double epsilon) {
+        int minWidth = (int) Math.min(Integer.MAX_VALUE >>> 2,
+                Math.ceil(Math.E / epsilon));
+        return Integer.highestOneBit(Math.max(minWidth, 2) * 2 - 1);
+    }
+
+    /**
+     * Returns the number of rows for the probability {@code delta} of
+     * exceeding the error bound: {@code ln(1 / delta)} rounded up.
+     *
+     * @param delta
+     *            the probability of exceeding the bound
+     * @return the depth
+     * @requires 0 < delta < 1
+     */
+    private static int depth(double delta) {
+        return Math.max(1, (int) Math.ceil(Math.log(1 / delta)));
+    }
+
+    /**
+     * Returns the size in bytes of the counter table of a sketch with error
+     * bound {@code epsilon} and probability {@code delta} of exceeding it,
+     * without creating it.
+     *
+     * @param epsilon
+     *            the relative error bound
+     * @param delta
+     *            the probability of exceeding the bound
+     * @return the memory the counters would use
+     * @requires 0 < epsilon < 1 and 0 < delta < 1
+     */
+    public static long bytes(double epsilon, double delta) {
+        return (long) width(epsilon) * depth(delta) * Long.BYTES;
+    }
+
+    /**
+     * Returns the index in {@code counters} of the key with hash {@code hash}
+     * in row {@code row}.
+     *
+     * @param hash
+     *            the 64-bit hash of the key
+     * @param row
+     *            the row
+     * @return the counter index
+     */
+    private int index(long hash, int row) {
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> Integer.SIZE) | 1;
+        return row * this.width + ((h1 + row * h2) & (this.width - 1));
+    }
+
+    /**
+     * Adds {@code count} occurrences of the key with hash {@code hash} and
+     * returns its new estimate.
+     *
+     * @param hash
+     *            the 64-bit hash of the key
+     * @param count
+     *            the number of occurrences to add
+     * @return the estimated count of the key
+     * @requires count > 0
+     */
+    public long add(long hash, long count) {
+        this.total += count;
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < this.depth; row++) {
+            estimate = Math.min(estimate, this.counters[this.index(hash, row)]);
+        }
+        estimate += count;
+        for (int row = 0; row < this.depth; row++) {
+            int i = this.index(hash, row);
+            if (this.counters[i] < estimate) {
+                this.counters[i] = estimate;
+            }
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the estimated count of the key with hash {@code hash}.
+     *
+     * @param hash
+     *            the 64-bit hash of the key
+     * @return the estimate, never below the true count
+     */
+    public long estimate(long hash) {
+        long estimate = Long.MAX_VALUE;
+        for (int row = 0; row < this.depth; row++) {
+            estimate = Math.min(estimate, this.counters[this.index(hash, row)]);
+        }
+        return estimate;
+    }
+
+    /**
+     * Returns the sum of all counts added.
+     *
+     * @return the total count
+     */
+    public long total() {
+        return this.total;
+    }
+
+    /**
+     * Returns the largest amount by which an estimate exceeds the true count,
+     * with probability at least {@code 1 - delta()}.
+     *
+     * @return {@code epsilon} times the total count, rounded up
+     */
+    public long errorBound() {
+        return (long) Math.ceil(this.epsilon * this.total);
+    }
+
+    /**
+     * Returns the probability that an estimate exceeds the error bound.
+     *
+     * @return delta
+     */
+    public double delta() {
+        return this.delta;
+    }
+
+    /**
+     * Returns the size of the counter table in bytes.
+     *
+     * @return the memory used by the counters
+     */
+    public long bytes() {
+        return (long) this.counters.length * Long.BYTES;
+    }
+
+}
@@ -0,0 +1,139 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Renders the words of a tag cloud as CSV, in UTF-8, through a
+ * {@link ChannelOutput}, for spreadsheets and dashboards.
+ *
+ * <pre>
+ * word,count,fontClass
+ * bee,42,48
+ * </pre>
+ *
+ * <p>
+ * One row per word, in the order given, after a header row; lines end with
+ * CRLF as RFC 4180 specifies. A word holding a comma, a double quote or a
+ * line break is quoted, with its double quotes doubled. The input name has
+ * no place in the table and is left out.
+ * </p>
+ */
+public final class CsvRenderer implements CloudRenderer {
+
+    /**
+     * Header row.
+     */
+    private static final byte[] HEADER = ChannelOutput
+            .bytes("word,count,fontClass\r\n");
+
+    /**
+     * Separator between the fields of a row.
+     */
+    private static final char COMMA = ',';
+
+    /**
+     * Quote around a field.
+     */
+    private static final char QUOTE = '"';
+
+    /**
+     * Escape of a quote inside a quoted field.
+     */
+    private static final byte[] DOUBLED_QUOTE = ChannelOutput.bytes("\"\"");
+
+    /**
+     * End of a row.
+     */
+    private static final byte[] ROW_END = ChannelOutput.bytes("\r\n");
+
+    /**
+     * Output written to.
+     */
+    private final ChannelOutput out;
+
+    /**
+     * Creates a renderer writing to {@code out}.
+     *
+     * @param out
+     *            the output to write to
+     */
+    public CsvRenderer(ChannelOutput out) {
+        assert out != null : "Violation of: out is not null";
+        this.out = out;
+    }
+
+    /**
+     * Returns the escape of {@code c} inside a quoted CSV field.
+     *
+     * @param c
+     *            the character
+     * @return the encoded escape, or {@code null} if {@code c} needs none
+     */
+    private static byte[] escape(char c) {
+        byte[] escape = null;
+        if (c == QUOTE) {
+            escape = DOUBLED_QUOTE;
+        }
+        return escape;
+    }
+
+    /**
+     * Reports whether {@code text} must be quoted to be a CSV field.
+     *
+     * @param text
+     *            the field
+     * @return true iff {@code text} holds a comma, a quote or a line break
+     */
+    private static boolean needsQuotes(String text) {
+        boolean needs = false;
+        for (int i = 0; i < text.length() && !needs; i++) {
+            char c = text.charAt(i);
+            needs = c == COMMA || c == QUOTE || c == '\n' || c == '\r';
+        }
+        return needs;
+    }
+
+    /**
+     * Writes {@code text} as a CSV field, quoted only if needed.
+     *
+     * @param text
+     *            the field to write
+     * @throws IOException
+     *             if writing fails
+     */
+    private void writeField(String text) throws IOException {
+        if (!needsQuotes(text)) {
+            this.out.write(text);
+        } else {
+            this.out.write(QUOTE).writeEscaped(text, CsvRenderer::escape)
+                    .write(QUOTE);
+        }
+    }
+
+    /**
+     * Renders {@code words} as CSV rows and flushes them.
+     *
+     * @param words
+     *            the words to render with their counts
+     * @param inputName
+     *            the name of the input, which is not written
+     * @throws IOException
+     *             if writing fails
+     */
+    @Override
+    public void render(List<Entry<String, Long>> words, String inputName)
+            throws IOException {
+        FontScale scale = new FontScale(words);
+        this.out.write(HEADER);
+        for (Entry<String, Long> pair : words) {
+            long count = pair.getValue();
+            this.writeField(pair.getKey());
+            this.out.write(COMMA).write(count).write(COMMA)
+                    .write(scale.fontClass(count)).write(ROW_END);
+        }
+        this.out.flush();
+    }
+
+}
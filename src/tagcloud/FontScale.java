@@ -0,0 +1,99 @@
+package tagcloud;
+
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Font classes of the words of a cloud, from 11 for the lowest count to 48
+ * for the highest, shared by every {@link CloudRenderer} so all formats size
+ * words alike.
+ *
+ * <pre>
+ * Format Class: ((count - minimum) / (maximum - minimum)) * 37 + 11
+ * </pre>
+ *
+ * <p>
+ * The class of a word is also its font size in pixels. When every word of a
+ * cloud has the same count, a cloud of one word included, there is no range
+ * to scale over and every word gets the largest class.
+ * </p>
+ */
+public final class FontScale {
+
+    /**
+     * Smallest font class.
+     */
+    public static final int MIN_FONT = 11;
+
+    /**
+     * Largest font class.
+     */
+    public static final int MAX_FONT = 48;
+
+    /**
+     * Lowest count in the cloud.
+     */
+    private final long minCount;
+
+    /**
+     * Highest count in the cloud.
+     */
+    private final long maxCount;
+
+    /**
+     * Creates the scale of the cloud of {@code words}.
+     *
+     * @param words
+     *            the words of the cloud with their counts
+     */
+    public FontScale(List<Entry<String, Long>> words) {
+        assert words != null : "Violation of: words is not null";
+
+        long max = 0;
+        long min = Long.MAX_VALUE;
+        for (Entry<String, Long> pair : words) {
+            max = Math.max(max, pair.getValue());
+            min = Math.min(min, pair.getValue());
+        }
+        this.minCount = min;
+        this.maxCount = max;
+    }
+
+    /**
+     * Returns the font class of a word with {@code count} occurrences when
+     * the counts in the cloud range from {@code minCount} to
+     * {@code maxCount}.
+     *
+     * @param count
+     *            the count of the word
+     * @param minCount
+     *            the lowest count in the cloud
+     * @param maxCount
+     *            the highest count in the cloud
+     * @return the font class, {@code MAX_FONT} if all counts are equal
+     * @requires minCount <= count <= maxCount
+     */
+    public static int fontClass(long count, long minCount, long maxCount) {
+        int fontClass = MAX_FONT;
+        /* Equal counts leave no range to scale over, and 0 / 0 is NaN */
+        if (minCount < maxCount) {
+            fontClass = (int) ((double) (count - minCount)
+                    / (maxCount - minCount) * (MAX_FONT - MIN_FONT)
+                    + MIN_FONT);
+        }
+        return fontClass;
+    }
+
+    /**
+     * Returns the font class of a word of this cloud with {@code count}
+     * occurrences.
+     *
+     * @param count
+     *            the count of the word
+     * @return the font class
+     */
+    public int fontClass(long count) {
+        return fontClass(count, this.minCount, this.maxCount);
+    }
+
+}
@@ -0,0 +1,341 @@
+package tagcloud;
+
+/**
+ * Approximate top-k of an unbounded stream of words in fixed memory.
+ *
+ * <p>
+ * Every word is counted in a {@link CountMinSketch}. Alongside it a bounded
+ * list of candidate words is kept in a min-heap on their estimates: a word
+ * already in the list has its estimate refreshed; a new word enters while
+ * there is room, or by evicting the lowest candidate once its estimate is
+ * higher. Words are looked up by span, so only words that enter the list are
+ * ever copied into a {@code String}. Memory is the sketch plus the candidate
+ * list, however many distinct words the input holds.
+ * </p>
+ */
+public final class HeavyHitters implements TokenSink {
+
+    /**
+     * Counts of all words.
+     */
+    private final CountMinSketch sketch;
+
+    /**
+     * Candidate words, in heap order of their estimates.
+     */
+    private final String[] words;
+
+    /**
+     * Hashes of the candidates, parallel to {@code words}.
+     */
+    private final long[] hashes;
+
+    /**
+     * Estimates of the candidates, parallel to {@code words}.
+     */
+    private final long[] counts;
+
+    /**
+     * Slot of {@code index} holding each candidate, parallel to
+     * {@code words}.
+     */
+    private final int[] slots;
+
+    /**
+     * Open-addressing index from word to heap position plus one; 0 marks an
+     * empty slot. Its length is a power of two at least twice the number of
+     * candidates.
+     */
+    private final int[] index;
+
+    /**
+     * Number of candidates.
+     */
+    private int size;
+
+    /**
+     * Creates an empty counter keeping up to {@code candidates} words, with
+     * estimates within {@code epsilon} times the total count of the true
+     * counts with probability at least {@code 1 - delta}.
+     *
+     * @param candidates
+     *            the number of candidate words kept
+     * @param epsilon
+     *            the relative error bound
+     * @param delta
+     *            the probability of exceeding the bound
+     * @requires <pre>
+     * candidates > 0  and  0 < epsilon < 1  and  0 < delta < 1  and
+     * CountMinSketch.bytes(epsilon, delta) <= CountMinSketch.MAX_BYTES
+     * </pre>
+     */
+    public HeavyHitters(int candidates, double epsilon, double delta) {
+        assert candidates > 0 : "Violation of: candidates > 0";
+
+        this.sketch = new CountMinSketch(epsilon, delta);
+        this.words = new String[candidates];
+        this.hashes = new long[candidates];
+        this.counts = new long[candidates];
+        this.slots = new int[candidates];
+        this.index = new int[Integer.highestOneBit(candidates * 2 - 1) << 1];
+    }
+
+    /**
+     * Returns the home slot in {@code index} of a word with hash
+     * {@code hash}.
+     *
+     * @param hash
+     *            the hash of the word
+     * @return the slot where probing starts
+     */
+    private int home(long hash) {
+        return (int) (hash >>> Integer.SIZE) & (this.index.length - 1);
+    }
+
+    /**
+     * Reports whether candidate {@code i} is the word
+     * {@code text[offset, offset + length)}.
+     *
+     * @param i
+     *            the heap position of the candidate
+     * @param hash
+     *            the hash of the word
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character
+     * @param length
+     *            the number of characters
+     * @return true iff the candidate equals the word
+     */
+    private boolean matches(int i, long hash, char[] text, int offset,
+            int length) {
+        String word = this.words[i];
+        boolean equal = this.hashes[i] == hash && word.length() == length;
+        for (int k = 0; k < length && equal; k++) {
+            equal = word.charAt(k) == text[offset + k];
+        }
+        return equal;
+    }
+
+    /**
+     * Counts the word in the sketch and updates the candidate list.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @requires 0 <= offset and 0 < length and offset + length <= |text|
+     */
+    @Override
+    public void accept(char[] text, int offset, int length) {
+        long hash = SpanHash.hash(text, offset, length);
+        long estimate = this.sketch.add(hash, 1);
+
+        int mask = this.index.length - 1;
+        int slot = this.home(hash);
+        int found = -1;
+        while (this.index[slot] != 0 && found < 0) {
+            int i = this.index[slot] - 1;
+            if (this.matches(i, hash, text, offset, length)) {
+                found = i;
+            } else {
+                slot = (slot + 1) & mask;
+            }
+        }
+
+        if (found >= 0) {
+            /* A higher estimate can only move the candidate down */
+            this.counts[found] = estimate;
+            this.siftDown(found);
+        } else if (this.size < this.words.length) {
+            int i = this.size;
+            this.size++;
+            this.place(i, new String(text, offset, length), hash, estimate,
+                    slot);
+            this.siftUp(i);
+        } else if (estimate > this.counts[0]) {
+            /* Evicts the lowest candidate; the new word takes its place */
+            this.remove(this.slots[0]);
+            slot = this.home(hash);
+            while (this.index[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            this.place(0, new String(text, offset, length), hash, estimate,
+                    slot);
+            this.siftDown(0);
+        }
+    }
+
+    /**
+     * Puts a candidate at heap position {@code i} and indexes it.
+     *
+     * @param i
+     *            the heap position
+     * @param word
+     *            the word
+     * @param hash
+     *            the hash of the word
+     * @param count
+     *            the estimate of the word
+     * @param slot
+     *            the free slot of {@code index} for the word
+     */
+    private void place(int i, String word, long hash, long count, int slot) {
+        this.words[i] = word;
+        this.hashes[i] = hash;
+        this.counts[i] = count;
+        this.slots[i] = slot;
+        this.index[slot] = i + 1;
+    }
+
+    /**
+     * Empties {@code slot} of {@code index}, shifting later entries of its
+     * probe run back so that every word stays reachable.
+     *
+     * @param slot
+     *            the slot to empty
+     */
+    private void remove(int slot) {
+        int mask = this.index.length - 1;
+        int hole = slot;
+        int next = (hole + 1) & mask;
+        while (this.index[next] != 0) {
+            int i = this.index[next] - 1;
+            int home = this.home(this.hashes[i]);
+            /* Moves the entry back unless its home lies after the hole */
+            if (((next - home) & mask) >= ((next - hole) & mask)) {
+                this.index[hole] = this.index[next];
+                this.slots[i] = hole;
+                hole = next;
+            }
+            next = (next + 1) & mask;
+        }
+        this.index[hole] = 0;
+    }
+
+    /**
+     * Swaps the candidates at heap positions {@code a} and {@code b}.
+     *
+     * @param a
+     *            a heap position
+     * @param b
+     *            another heap position
+     */
+    private void swap(int a, int b) {
+        String word = this.words[a];
+        long hash = this.hashes[a];
+        long count = this.counts[a];
+        int slot = this.slots[a];
+        this.words[a] = this.words[b];
+        this.hashes[a] = this.hashes[b];
+        this.counts[a] = this.counts[b];
+        this.slots[a] = this.slots[b];
+        this.words[b] = word;
+        this.hashes[b] = hash;
+        this.counts[b] = count;
+        this.slots[b] = slot;
+        this.index[this.slots[a]] = a + 1;
+        this.index[this.slots[b]] = b + 1;
+    }
+
+    /**
+     * Moves the candidate at {@code i} up while it is below its parent.
+     *
+     * @param i
+     *            the heap position
+     */
+    private void siftUp(int i) {
+        int child = i;
+        int parent = (child - 1) >>> 1;
+        while (child > 0 && this.counts[child] < this.counts[parent]) {
+            this.swap(child, parent);
+            child = parent;
+            parent = (child - 1) >>> 1;
+        }
+    }
+
+    /**
+     * Moves the candidate at {@code i} down while it is above a child.
+     *
+     * @param i
+     *            the heap position
+     */
+    private void siftDown(int i) {
+        int parent = i;
+        boolean done = false;
+        while (!done) {
+            int child = 2 * parent + 1;
+            if (child + 1 < this.size
+                    && this.counts[child + 1] < this.counts[child]) {
+                child++;
+            }
+            if (child < this.size && this.counts[child] < this.counts[parent]) {
+                this.swap(child, parent);
+                parent = child;
+            } else {
+                done = true;
+            }
+        }
+    }
+
+    /**
+     * Returns the {@code k} candidates with the highest estimates, each with
+     * its final estimate.
+     *
+     * @param k
+     *            the number of words wanted
+     * @return the top words by estimated count
+     * @requires k >= 0
+     */
+    public TopWords top(int k) {
+        TopWords top = new TopWords(k);
+        for (int i = 0; i < this.size; i++) {
+            long estimate = this.sketch.estimate(this.hashes[i]);
+            if (top.accepts(estimate)) {
+                top.offer(this.words[i], estimate);
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the number of candidate words kept.
+     *
+     * @return the number of candidates
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of words counted.
+     *
+     * @return the total count
+     */
+    public long total() {
+        return this.sketch.total();
+    }
+
+    /**
+     * Returns the largest amount by which an estimate exceeds the true count,
+     * with probability at least {@code 1 - delta()}.
+     *
+     * @return the error bound
+     */
+    public long errorBound() {
+        return this.sketch.errorBound();
+    }
+
+    /**
+     * Returns the probability that an estimate exceeds the error bound.
+     *
+     * @return delta
+     */
+    public double delta() {
+        return this.sketch.delta();
+    }
+
+}
@@ -0,0 +1,198 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Renders a tag cloud as an HTML page, in UTF-8, through a
+ * {@link ChannelOutput}. The page links the course style sheet, which sizes
+ * each word by its font class.
+ *
+ * <p>
+ * Every fixed piece of markup, including the opening of a span for each font
+ * class, is encoded to bytes once; per word only the count and the word
+ * itself are encoded, straight into the output buffer. A cloud of any size is
+ * rendered in one pass with memory bounded by the buffer. Words and the input
+ * name are escaped, so text from any source can be rendered.
+ * </p>
+ */
+public final class HtmlRenderer implements CloudRenderer {
+
+    /**
+     * Start of the page up to the number of words in the title.
+     */
+    private static final byte[] TITLE = ChannelOutput.bytes("<html><head>"
+            + System.lineSeparator() + "<title>Top ");
+
+    /**
+     * Text between the number of words and the input name.
+     */
+    private static final byte[] WORDS_IN = ChannelOutput.bytes(" words in ");
+
+    /**
+     * End of the title, the style sheet and the start of the heading.
+     */
+    private static final byte[] HEAD = ChannelOutput.bytes("</title>"
+            + System.lineSeparator()
+            + "<link href=\"http://web.cse.ohio-state.edu/software/2231/web-"
+            + "sw2/assignments/projects/tag-cloud-generator/data/"
+            + "tagcloud.css\" rel=\"stylesheet\" type=\"text/css\">"
+            + System.lineSeparator() + "</head>" + System.lineSeparator()
+            + "<body> <h2> Top ");
+
+    /**
+     * End of the heading and start of the cloud.
+     */
+    private static final byte[] BODY = ChannelOutput.bytes("</h2>"
+            + System.lineSeparator()
+            + "<hr> <div class=\"cdiv\"> <p class=\"cbox\">"
+            + System.lineSeparator());
+
+    /**
+     * Text between a word's count and the word.
+     */
+    private static final byte[] SPAN_WORD = ChannelOutput.bytes("\">");
+
+    /**
+     * End of a word's span.
+     */
+    private static final byte[] SPAN_END = ChannelOutput.bytes("</span>"
+            + System.lineSeparator());
+
+    /**
+     * End of the page.
+     */
+    private static final byte[] END = ChannelOutput
+            .bytes("</p></div></body></html>" + System.lineSeparator());
+
+    /**
+     * Escape of '&amp;'.
+     */
+    private static final byte[] AMPERSAND = ChannelOutput.bytes("&amp;");
+
+    /**
+     * Escape of '&lt;'.
+     */
+    private static final byte[] LESS_THAN = ChannelOutput.bytes("&lt;");
+
+    /**
+     * Escape of '&gt;'.
+     */
+    private static final byte[] GREATER_THAN = ChannelOutput.bytes("&gt;");
+
+    /**
+     * Escape of '"'.
+     */
+    private static final byte[] QUOTE = ChannelOutput.bytes("&quot;");
+
+    /**
+     * Opening of a span up to the count, by font class.
+     */
+    private static final byte[][] SPAN_OPEN = new byte[FontScale.MAX_FONT
+            + 1][];
+
+    static {
+        for (int i = 0; i < SPAN_OPEN.length; i++) {
+            SPAN_OPEN[i] = spanOpen(i);
+        }
+    }
+
+    /**
+     * Output written to.
+     */
+    private final ChannelOutput out;
+
+    /**
+     * Creates a renderer writing to {@code out}.
+     *
+     * @param out
+     *            the output to write to
+     */
+    public HtmlRenderer(ChannelOutput out) {
+        assert out != null : "Violation of: out is not null";
+        this.out = out;
+    }
+
+    /**
+     * Returns the opening of a span of font class {@code formatClass}, up to
+     * where its count goes.
+     *
+     * @param formatClass
+     *            the font class
+     * @return the encoded opening
+     */
+    private static byte[] spanOpen(int formatClass) {
+        return ChannelOutput.bytes("<span style=\"cursor:default\" class=\"f"
+                + formatClass + "\" title=\"count: ");
+    }
+
+    /**
+     * Returns the escape of {@code c} in HTML text and attribute values,
+     * which is also its escape in XML.
+     *
+     * @param c
+     *            the character
+     * @return the encoded escape, or {@code null} if {@code c} needs none
+     */
+    static byte[] escape(char c) {
+        byte[] escape = null;
+        switch (c) {
+            case '&':
+                escape = AMPERSAND;
+                break;
+            case '<':
+                escape = LESS_THAN;
+                break;
+            case '>':
+                escape = GREATER_THAN;
+                break;
+            case '"':
+                escape = QUOTE;
+                break;
+            default:
+                break;
+        }
+        return escape;
+    }
+
+    /**
+     * Renders the cloud of {@code alphabetical} as an HTML page and flushes
+     * it.
+     *
+     * @param alphabetical
+     *            the words to render with their counts, in alphabetical order
+     * @param inputName
+     *            the name of the input file
+     * @throws IOException
+     *             if writing fails
+     */
+    @Override
+    public void render(List<Entry<String, Long>> alphabetical,
+            String inputName) throws IOException {
+        int localNum = alphabetical.size();
+        FontScale scale = new FontScale(alphabetical);
+
+        this.out.write(TITLE).write(localNum).write(WORDS_IN);
+        this.out.writeEscaped(inputName, HtmlRenderer::escape);
+        this.out.write(HEAD).write(localNum).write(WORDS_IN);
+        this.out.writeEscaped(inputName, HtmlRenderer::escape);
+        this.out.write(BODY);
+        for (Entry<String, Long> pair : alphabetical) {
+            long count = pair.getValue();
+            int formatClass = scale.fontClass(count);
+            byte[] open;
+            if (formatClass >= 0 && formatClass < SPAN_OPEN.length) {
+                open = SPAN_OPEN[formatClass];
+            } else {
+                open = spanOpen(formatClass);
+            }
+            this.out.write(open).write(count).write(SPAN_WORD);
+            this.out.writeEscaped(pair.getKey(), HtmlRenderer::escape);
+            this.out.write(SPAN_END);
+        }
+        this.out.write(END);
+        this.out.flush();
+    }
+
+}
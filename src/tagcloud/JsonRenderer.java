@@ -0,0 +1,151 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map.Entry;
+
+/**
+ * Renders the words of a tag cloud as a JSON object, in UTF-8, through a
+ * {@link ChannelOutput}.
+ *
+ * <pre>
+ * {"source":"input","words":[{"word":"bee","count":42,"fontClass":48},...]}
+ * </pre>
+ *
+ * <p>
+ * The words keep the order they are given in, and {@code fontClass} is the
+ * {@link FontScale} class the HTML page gives them. Like
+ * {@link HtmlRenderer}, fixed text is encoded once and each word is written
+ * straight into the output buffer.
+ * </p>
+ */
+public final class JsonRenderer implements CloudRenderer {
+
+    /**
+     * Start of the object up to the source name.
+     */
+    private static final byte[] SOURCE = ChannelOutput.bytes("{\"source\":\"");
+
+    /**
+     * End of the source name and start of the words.
+     */
+    private static final byte[] WORDS = ChannelOutput.bytes("\",\"words\":[");
+
+    /**
+     * Start of a word.
+     */
+    private static final byte[] WORD = ChannelOutput.bytes("{\"word\":\"");
+
+    /**
+     * Text between a word and its count.
+     */
+    private static final byte[] COUNT = ChannelOutput.bytes("\",\"count\":");
+
+    /**
+     * Text between a word's count and its font class.
+     */
+    private static final byte[] FONT_CLASS = ChannelOutput
+            .bytes(",\"fontClass\":");
+
+    /**
+     * End of a word.
+     */
+    private static final byte[] WORD_END = ChannelOutput.bytes("}");
+
+    /**
+     * Separator between words.
+     */
+    private static final byte[] COMMA = ChannelOutput.bytes(",");
+
+    /**
+     * End of the object.
+     */
+    private static final byte[] END = ChannelOutput
+            .bytes("]}" + System.lineSeparator());
+
+    /**
+     * Escape of '"'.
+     */
+    private static final byte[] QUOTE = ChannelOutput.bytes("\\\"");
+
+    /**
+     * Escape of '\'.
+     */
+    private static final byte[] BACKSLASH = ChannelOutput.bytes("\\\\");
+
+    /**
+     * First character that needs no escape.
+     */
+    private static final char FIRST_PLAIN = ' ';
+
+    /**
+     * Output written to.
+     */
+    private final ChannelOutput out;
+
+    /**
+     * Creates a renderer writing to {@code out}.
+     *
+     * @param out
+     *            the output to write to
+     */
+    public JsonRenderer(ChannelOutput out) {
+        assert out != null : "Violation of: out is not null";
+        this.out = out;
+    }
+
+    /**
+     * Returns the escape of {@code c} in a JSON string.
+     *
+     * @param c
+     *            the character
+     * @return the encoded escape, or {@code null} if {@code c} needs none
+     */
+    private static byte[] escape(char c) {
+        byte[] escape = null;
+        if (c == '"') {
+            escape = QUOTE;
+        } else if (c == '\\') {
+            escape = BACKSLASH;
+        } else if (c < FIRST_PLAIN) {
+            escape = ChannelOutput
+                    .bytes(String.format(Locale.ROOT, "\\u%04x", (int) c));
+        }
+        return escape;
+    }
+
+    /**
+     * Renders {@code words} as a JSON object and flushes it.
+     *
+     * @param words
+     *            the words to render with their counts
+     * @param inputName
+     *            the name of the input
+     * @throws IOException
+     *             if writing fails
+     */
+    @Override
+    public void render(List<Entry<String, Long>> words, String inputName)
+            throws IOException {
+        FontScale scale = new FontScale(words);
+        this.out.write(SOURCE);
+        this.out.writeEscaped(inputName, JsonRenderer::escape);
+        this.out.write(WORDS);
+        boolean first = true;
+        for (Entry<String, Long> pair : words) {
+            if (!first) {
+                this.out.write(COMMA);
+            }
+            first = false;
+            this.out.write(WORD);
+            this.out.writeEscaped(pair.getKey(), JsonRenderer::escape);
+            long count = pair.getValue();
+            this.out.write(COUNT).write(count).write(FONT_CLASS)
+                    .write(scale.fontClass(count)).write(WORD_END);
+        }
+        this.out.write(END);
+        this.out.flush();
+    }
+
+}
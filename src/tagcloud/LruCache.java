@@ -0,0 +1,196 @@
+package tagcloud;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.ToLongFunction;
+
+/**
+ * Thread-safe cache bounded by the total size of its values, evicting the
+ * least recently used entries first.
+ *
+ * <p>
+ * The size of each value is given by a weigher, for example its estimated
+ * memory in bytes. Hits, misses and evictions are counted for monitoring. A
+ * value larger than the whole cache is not stored.
+ * </p>
+ *
+ * @param <K>
+ *            type of the keys
+ * @param <V>
+ *            type of the values
+ */
+public final class LruCache<K, V> {
+
+    /**
+     * Entries from least to most recently used.
+     */
+    private final LinkedHashMap<K, V> entries = new LinkedHashMap<>(16, 0.75f,
+            true);
+
+    /**
+     * Size of a value.
+     */
+    private final ToLongFunction<V> weigher;
+
+    /**
+     * Largest total size of the values.
+     */
+    private final long capacity;
+
+    /**
+     * Total size of the values.
+     */
+    private long size;
+
+    /**
+     * Number of lookups that found a value.
+     */
+    private long hits;
+
+    /**
+     * Number of lookups that found nothing.
+     */
+    private long misses;
+
+    /**
+     * Number of entries evicted to make room.
+     */
+    private long evictions;
+
+    /**
+     * Creates an empty cache holding values of total size up to
+     * {@code capacity}.
+     *
+     * @param capacity
+     *            the largest total size of the values
+     * @param weigher
+     *            the size of a value
+     * @requires capacity >= 0
+     */
+    public LruCache(long capacity, ToLongFunction<V> weigher) {
+        assert capacity >= 0 : "Violation of: capacity >= 0";
+        assert weigher != null : "Violation of: weigher is not null";
+
+        this.capacity = capacity;
+        this.weigher = weigher;
+    }
+
+    /**
+     * Returns the value cached for {@code key}, making it the most recently
+     * used.
+     *
+     * @param key
+     *            the key
+     * @return the value, or {@code null} if none is cached
+     */
+    public synchronized V get(K key) {
+        V value = this.entries.get(key);
+        if (value == null) {
+            this.misses++;
+        } else {
+            this.hits++;
+        }
+        return value;
+    }
+
+    /**
+     * Caches {@code value} for {@code key}, evicting the least recently used
+     * entries until it fits.
+     *
+     * @param key
+     *            the key
+     * @param value
+     *            the value
+     */
+    public synchronized void put(K key, V value) {
+        assert key != null : "Violation of: key is not null";
+        assert value != null : "Violation of: value is not null";
+
+        long weight = this.weigher.applyAsLong(value);
+        if (weight <= this.capacity) {
+            V previous = this.entries.put(key, value);
+            if (previous != null) {
+                this.size -= this.weigher.applyAsLong(previous);
+            }
+            this.size += weight;
+            Iterator<Map.Entry<K, V>> oldest = this.entries.entrySet()
+                    .iterator();
+            while (this.size > this.capacity) {
+                V evicted = oldest.next().getValue();
+                oldest.remove();
+                this.size -= this.weigher.applyAsLong(evicted);
+                this.evictions++;
+            }
+        }
+    }
+
+    /**
+     * Reports whether a value weighing {@code weight} would be kept by
+     * {@code put}, so that a caller can avoid building one that would not.
+     *
+     * @param weight
+     *            the size of the value
+     * @return true iff the value is no larger than the capacity
+     */
+    public boolean fits(long weight) {
+        return weight <= this.capacity;
+    }
+
+    /**
+     * Returns the number of entries.
+     *
+     * @return the number of cached values
+     */
+    public synchronized int entries() {
+        return this.entries.size();
+    }
+
+    /**
+     * Returns the total size of the cached values.
+     *
+     * @return the size, at most the capacity
+     */
+    public synchronized long size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of lookups that found a value.
+     *
+     * @return the number of hits
+     */
+    public synchronized long hits() {
+        return this.hits;
+    }
+
+    /**
+     * Returns the number of lookups that found nothing.
+     *
+     * @return the number of misses
+     */
+    public synchronized long misses() {
+        return this.misses;
+    }
+
+    /**
+     * Returns the number of entries evicted to make room.
+     *
+     * @return the number of evictions
+     */
+    public synchronized long evictions() {
+        return this.evictions;
+    }
+
+    /**
+     * Returns the counters of this cache as a JSON object.
+     *
+     * @return the JSON text
+     */
+    public synchronized String toJson() {
+        return "{\"hits\":" + this.hits + ",\"misses\":" + this.misses
+                + ",\"evictions\":" + this.evictions + ",\"entries\":"
+                + this.entries.size() + ",\"bytes\":" + this.size + "}";
+    }
+
+}
@@ -0,0 +1,491 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Counts the words of a UTF-8 (or ASCII) file by memory-mapping it and
+ * scanning the bytes directly.
+ *
+ * <p>
+ * Nothing is decoded to lines or {@code String}s: ASCII words are case-folded
+ * byte by byte into a reusable scratch buffer and handed to a
+ * {@link TokenSink}, normally a {@link WordCounts} table. Only words
+ * containing non-ASCII bytes go through a UTF-8 decode, after which the word
+ * is re-split on any non-ASCII separators and each part folded by the
+ * scanner. Files larger than a mapping window are mapped one window at a
+ * time, each window ending on a separator so no word is cut.
+ * </p>
+ *
+ * <p>
+ * Each byte is classified through a table. When a vectorized
+ * {@link SeparatorScanner} is given instead, separators are found a block of
+ * bytes at a time and the boundaries of each word are read off the block's
+ * separator bits. That path is only taken when asked for (the {@code -V}
+ * option): it has not yet been measured faster end to end.
+ * </p>
+ */
+public final class MappedWordCounter {
+
+    /**
+     * Largest number of bytes mapped at once.
+     */
+    private static final int MAX_WINDOW = 1 << 30;
+
+    /**
+     * Byte class of an ASCII character that is part of a word.
+     */
+    private static final byte WORD = 0;
+
+    /**
+     * Byte class of an ASCII separator.
+     */
+    private static final byte SEPARATOR = 1;
+
+    /**
+     * Byte class of any byte of a multi-byte UTF-8 sequence.
+     */
+    private static final byte NON_ASCII = 2;
+
+    /**
+     * Number of distinct byte values.
+     */
+    private static final int BYTE_VALUES = 256;
+
+    /**
+     * Number of ASCII characters.
+     */
+    private static final int ASCII = 128;
+
+    /**
+     * Replacement for malformed UTF-8 input.
+     */
+    private static final char REPLACEMENT = '\uFFFD';
+
+    /**
+     * Class of each byte value: {@code WORD}, {@code SEPARATOR} or
+     * {@code NON_ASCII}.
+     */
+    private final byte[] classes = new byte[BYTE_VALUES];
+
+    /**
+     * Case-folded character for each ASCII byte.
+     */
+    private final char[] folded = new char[ASCII];
+
+    /**
+     * Scanner used to re-split decoded non-ASCII words.
+     */
+    private final WordScanner scanner;
+
+    /**
+     * Sink receiving the words.
+     */
+    private final TokenSink sink;
+
+    /**
+     * Scratch buffer holding the current word.
+     */
+    private char[] word = new char[64];
+
+    /**
+     * Vectorized separator scanner, or {@code null} to scan byte by byte.
+     */
+    private final SeparatorScanner vector;
+
+    /**
+     * Creates a counter splitting words with {@code tokenizer}, folding them
+     * with {@code folding} and passing them to {@code sink}, classifying each
+     * byte through a table.
+     *
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param sink
+     *            the sink receiving the words, normally a {@link WordCounts}
+     */
+    public MappedWordCounter(Tokenizer tokenizer, CaseFolding folding,
+            TokenSink sink) {
+        this(tokenizer, folding, sink, null);
+    }
+
+    /**
+     * Creates a counter splitting words with {@code tokenizer}, finding the
+     * separators with {@code vector}, folding the words with {@code folding}
+     * and passing them to {@code sink}.
+     *
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param sink
+     *            the sink receiving the words, normally a {@link WordCounts}
+     * @param vector
+     *            the scanner of the ASCII separators of {@code tokenizer}, or
+     *            {@code null} to classify each byte through a table
+     */
+    public MappedWordCounter(Tokenizer tokenizer, CaseFolding folding,
+            TokenSink sink, SeparatorScanner vector) {
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+        assert sink != null : "Violation of: sink is not null";
+
+        this.scanner = new WordScanner(tokenizer, folding);
+        this.sink = sink;
+        this.vector = vector;
+        for (int b = 0; b < BYTE_VALUES; b++) {
+            if (b >= ASCII) {
+                this.classes[b] = NON_ASCII;
+            } else if (tokenizer.isSeparator((char) b)) {
+                this.classes[b] = SEPARATOR;
+            } else {
+                this.classes[b] = WORD;
+                this.folded[b] = folding.fold((char) b);
+            }
+        }
+    }
+
+    /**
+     * Counts every word in {@code file}.
+     *
+     * @param file
+     *            the file to count
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     */
+    public void countFile(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            this.countRange(channel, 0, channel.size());
+        }
+    }
+
+    /**
+     * Counts every word in bytes {@code [from, to)} of {@code channel},
+     * mapping at most one window of the range at a time.
+     *
+     * @param channel
+     *            the file to count
+     * @param from
+     *            the first byte of the range
+     * @param to
+     *            the end (exclusive) of the range
+     * @throws IOException
+     *             if the range cannot be mapped
+     * @requires <pre>
+     * 0 <= from <= to <= size(channel)  and
+     * from and to do not fall inside a word
+     * </pre>
+     */
+    public void countRange(FileChannel channel, long from, long to)
+            throws IOException {
+        this.countRange(channel, from, to, MAX_WINDOW);
+    }
+
+    /**
+     * Counts every word in bytes {@code [from, to)} of {@code channel},
+     * mapping at most {@code maxWindow} bytes at a time.
+     *
+     * @param channel
+     *            the file to count
+     * @param from
+     *            the first byte of the range
+     * @param to
+     *            the end (exclusive) of the range
+     * @param maxWindow
+     *            the largest number of bytes mapped at once
+     * @throws IOException
+     *             if the range cannot be mapped
+     * @requires <pre>
+     * 0 <= from <= to <= size(channel)  and  maxWindow > 0  and
+     * from and to do not fall inside a word
+     * </pre>
+     */
+    void countRange(FileChannel channel, long from, long to, int maxWindow)
+            throws IOException {
+        assert maxWindow > 0 : "Violation of: maxWindow > 0";
+
+        long position = from;
+        while (position < to) {
+            int length = (int) Math.min(to - position, maxWindow);
+            MappedByteBuffer window = channel
+                    .map(FileChannel.MapMode.READ_ONLY, position, length);
+            int end = length;
+            if (position + length < to) {
+                /* Ends the window after its last separator */
+                int boundary = this.lastSeparator(window, length);
+                if (boundary > 0) {
+                    end = boundary;
+                }
+            }
+            this.count(window, 0, end);
+            position += end;
+        }
+    }
+
+    /**
+     * Returns the index just past the last separator in
+     * {@code bytes[0, limit)}.
+     *
+     * @param bytes
+     *            the bytes to search
+     * @param limit
+     *            the end (exclusive) of the search
+     * @return the index after the last separator, 0 if there is none
+     */
+    private int lastSeparator(ByteBuffer bytes, int limit) {
+        int i = limit;
+        while (i > 0 && this.classes[bytes.get(i - 1) & 0xFF] != SEPARATOR) {
+            i--;
+        }
+        return i;
+    }
+
+    /**
+     * Counts every word in {@code bytes[from, to)}.
+     *
+     * @param bytes
+     *            the UTF-8 bytes to count
+     * @param from
+     *            the first index to scan
+     * @param to
+     *            the end (exclusive) of the range to scan
+     * @requires <pre>
+     * 0 <= from <= to <= limit(bytes)  and
+     * from and to do not fall inside a word
+     * </pre>
+     */
+    public void count(ByteBuffer bytes, int from, int to) {
+        if (this.vector != null) {
+            this.countBlocks(bytes, from, to);
+            return;
+        }
+        int i = from;
+        while (i < to) {
+            /* Skips the separators before the next word */
+            while (i < to && this.classes[bytes.get(i) & 0xFF] == SEPARATOR) {
+                i++;
+            }
+            if (i < to) {
+                /* Copies the word case-folded while it stays ASCII */
+                int start = i;
+                int length = 0;
+                boolean ascii = true;
+                byte cls = this.classes[bytes.get(i) & 0xFF];
+                while (cls != SEPARATOR) {
+                    if (cls == NON_ASCII) {
+                        ascii = false;
+                    } else if (ascii) {
+                        if (length == this.word.length) {
+                            this.growWord();
+                        }
+                        this.word[length] = this.folded[bytes.get(i)];
+                        length++;
+                    }
+                    i++;
+                    cls = i < to ? this.classes[bytes.get(i) & 0xFF]
+                            : SEPARATOR;
+                }
+                if (ascii) {
+                    this.sink.accept(this.word, 0, length);
+                } else {
+                    this.countDecoded(bytes, start, i);
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the separators among the bytes of {@code bytes} from
+     * {@code from} up to {@code to} and at most {@link SeparatorScanner#BLOCK}
+     * bytes: bit {@code k} is set iff byte {@code from + k} is a separator or
+     * lies at or past {@code to}. Blocks running past the end of
+     * {@code bytes} are classified byte by byte.
+     *
+     * @param bytes
+     *            the UTF-8 bytes
+     * @param from
+     *            the index of the first byte of the block
+     * @param to
+     *            the end (exclusive) of the range being counted
+     * @return the separator bits of the block
+     */
+    private long separators(ByteBuffer bytes, int from, int to) {
+        long separators;
+        if (from + SeparatorScanner.BLOCK <= bytes.limit()) {
+            separators = this.vector.separators(bytes, from);
+        } else {
+            separators = 0;
+            for (int k = 0; k < SeparatorScanner.BLOCK
+                    && from + k < bytes.limit(); k++) {
+                if (this.classes[bytes.get(from + k) & 0xFF] == SEPARATOR) {
+                    separators |= 1L << k;
+                }
+            }
+        }
+        if (to - from < SeparatorScanner.BLOCK) {
+            separators |= -1L << (to - from);
+        }
+        return separators;
+    }
+
+    /**
+     * Counts the word {@code bytes[from, to)}, folding it byte by byte while
+     * it is ASCII and decoding it otherwise.
+     *
+     * @param bytes
+     *            the UTF-8 bytes
+     * @param from
+     *            the first byte of the word
+     * @param to
+     *            the end (exclusive) of the word
+     */
+    private void countWord(ByteBuffer bytes, int from, int to) {
+        int length = to - from;
+        while (length > this.word.length) {
+            this.growWord();
+        }
+        int k = 0;
+        while (k < length && bytes.get(from + k) >= 0) {
+            this.word[k] = this.folded[bytes.get(from + k)];
+            k++;
+        }
+        if (k == length) {
+            this.sink.accept(this.word, 0, length);
+        } else {
+            this.countDecoded(bytes, from, to);
+        }
+    }
+
+    /**
+     * Counts every word in {@code bytes[from, to)}, as
+     * {@link #count(ByteBuffer, int, int)}, with the vectorized scanner.
+     *
+     * <p>
+     * Each block is classified at once; the words starting in it are the set
+     * bits of its word bits that do not follow a word byte, and the words
+     * ending in it the separators that do, so the boundaries are found by
+     * counting trailing zeros instead of testing every byte.
+     * </p>
+     *
+     * @param bytes
+     *            the UTF-8 bytes to count
+     * @param from
+     *            the first index to scan
+     * @param to
+     *            the end (exclusive) of the range to scan
+     */
+    private void countBlocks(ByteBuffer bytes, int from, int to) {
+        int start = from;
+        long inWord = 0;
+        for (int block = from; block < to; block += SeparatorScanner.BLOCK) {
+            long words = ~this.separators(bytes, block, to);
+            long previous = (words << 1) | inWord;
+            long starts = words & ~previous;
+            long ends = ~words & previous;
+            long boundaries = starts | ends;
+            while (boundaries != 0) {
+                long lowest = boundaries & -boundaries;
+                int position = block + Long.numberOfTrailingZeros(lowest);
+                if ((starts & lowest) != 0) {
+                    start = position;
+                } else {
+                    this.countWord(bytes, start, position);
+                }
+                boundaries ^= lowest;
+            }
+            inWord = words >>> (SeparatorScanner.BLOCK - 1);
+        }
+        if (inWord != 0) {
+            /* The last word ends exactly at the end of the range */
+            this.countWord(bytes, start, to);
+        }
+    }
+
+    /**
+     * Decodes and case-folds the UTF-8 bytes {@code bytes[from, to)} and
+     * counts the words they contain.
+     *
+     * @param bytes
+     *            the UTF-8 bytes
+     * @param from
+     *            the first byte of the word
+     * @param to
+     *            the end (exclusive) of the word
+     */
+    private void countDecoded(ByteBuffer bytes, int from, int to) {
+        final int twoByteLead = 0xC0;
+        final int threeByteLead = 0xE0;
+        final int fourByteLead = 0xF0;
+        final int invalidLead = 0xF8;
+        final int continuationMask = 0xC0;
+        final int continuation = 0x80;
+        final int payload = 0x3F;
+        final int sixBits = 6;
+
+        int length = 0;
+        int i = from;
+        while (i < to) {
+            int b = bytes.get(i) & 0xFF;
+            int extra;
+            int codePoint;
+            if (b < continuation) {
+                extra = 0;
+                codePoint = b;
+            } else if (b >= twoByteLead && b < threeByteLead) {
+                extra = 1;
+                codePoint = b & 0x1F;
+            } else if (b >= threeByteLead && b < fourByteLead) {
+                extra = 2;
+                codePoint = b & 0x0F;
+            } else if (b >= fourByteLead && b < invalidLead) {
+                extra = 3;
+                codePoint = b & 0x07;
+            } else {
+                extra = -1;
+                codePoint = REPLACEMENT;
+            }
+            i++;
+            while (extra > 0) {
+                if (i < to && (bytes.get(i)
+                        & continuationMask) == continuation) {
+                    codePoint = (codePoint << sixBits)
+                            | (bytes.get(i) & payload);
+                    i++;
+                    extra--;
+                } else {
+                    /* Truncated sequence */
+                    codePoint = REPLACEMENT;
+                    extra = 0;
+                }
+            }
+            if (!Character.isValidCodePoint(codePoint)) {
+                codePoint = REPLACEMENT;
+            }
+            if (length + 2 > this.word.length) {
+                this.growWord();
+            }
+            length += Character.toChars(codePoint, this.word, length);
+        }
+        this.scanner.reset(this.word, 0, length);
+        while (this.scanner.next()) {
+            this.sink.accept(this.word, this.scanner.start(),
+                    this.scanner.length());
+        }
+    }
+
+    /**
+     * Doubles the size of the scratch word buffer.
+     */
+    private void growWord() {
+        char[] bigger = new char[this.word.length * 2];
+        System.arraycopy(this.word, 0, bigger, 0, this.word.length);
+        this.word = bigger;
+    }
+
+}
@@ -0,0 +1,104 @@
+package tagcloud;
+
+import java.util.Locale;
+
+/**
+ * Format a tag cloud is written in, each with its {@link CloudRenderer}.
+ */
+public enum OutputFormat {
+
+    /**
+     * HTML page styled by the course style sheet.
+     */
+    HTML("text/html"),
+
+    /**
+     * JSON object of the words with their counts and font classes.
+     */
+    JSON("application/json"),
+
+    /**
+     * CSV table of the words with their counts and font classes.
+     */
+    CSV("text/csv"),
+
+    /**
+     * Self-contained SVG image.
+     */
+    SVG("image/svg+xml");
+
+    /**
+     * Media type of the format, without parameters.
+     */
+    private final String mediaType;
+
+    /**
+     * Creates a format.
+     *
+     * @param mediaType
+     *            the media type of the format
+     */
+    OutputFormat(String mediaType) {
+        this.mediaType = mediaType;
+    }
+
+    /**
+     * Returns the format named {@code name}, in any case.
+     *
+     * @param name
+     *            the name of the format, such as "html"
+     * @return the format
+     * @throws IllegalArgumentException
+     *             if no format has that name
+     */
+    public static OutputFormat named(String name) {
+        return valueOf(name.toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Returns a renderer of this format writing to {@code out}.
+     *
+     * @param out
+     *            the output to write to
+     * @return the renderer
+     */
+    public CloudRenderer renderer(ChannelOutput out) {
+        assert out != null : "Violation of: out is not null";
+
+        CloudRenderer renderer;
+        switch (this) {
+            case JSON:
+                renderer = new JsonRenderer(out);
+                break;
+            case CSV:
+                renderer = new CsvRenderer(out);
+                break;
+            case SVG:
+                renderer = new SvgRenderer(out);
+                break;
+            default:
+                renderer = new HtmlRenderer(out);
+                break;
+        }
+        return renderer;
+    }
+
+    /**
+     * Returns the value of the {@code Content-Type} header of this format.
+     *
+     * @return the media type, with the UTF-8 charset
+     */
+    public String contentType() {
+        return this.mediaType + "; charset=utf-8";
+    }
+
+    /**
+     * Returns the file name extension of this format, without the dot.
+     *
+     * @return the extension, such as "html"
+     */
+    public String extension() {
+        return this.name().toLowerCase(Locale.ROOT);
+    }
+
+}
@@ -0,0 +1,305 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Counts the words of a file on several threads.
+ *
+ * <p>
+ * The file is split into byte ranges of about equal size, each moved forward
+ * to the next ASCII separator so that no word straddles two ranges. Every
+ * range is counted by its own {@link MappedWordCounter} into its own
+ * {@link WordCounts}, and the partial tables are merged at the end, so the
+ * result is identical to counting the file sequentially.
+ * </p>
+ */
+public final class ParallelWordCounter {
+
+    /**
+     * Smallest range worth handing to a separate thread.
+     */
+    private static final long MIN_RANGE = 1 << 20;
+
+    /**
+     * Number of bytes read at a time while looking for a range boundary.
+     */
+    private static final int PROBE_SIZE = 4096;
+
+    /**
+     * Number of ASCII characters.
+     */
+    private static final int ASCII = 128;
+
+    /**
+     * No-argument constructor.
+     */
+    private ParallelWordCounter() {
+    }
+
+    /**
+     * Returns a table of all words counted in {@code file}, using up to
+     * {@code threads} threads that classify each byte through a table.
+     *
+     * @param file
+     *            the input file
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param threads
+     *            the maximum number of threads to count on
+     * @return table of words with counts
+     * @throws IOException
+     *             if the file cannot be read or mapped
+     * @requires threads > 0
+     */
+    public static WordCounts countFile(Path file, Tokenizer tokenizer,
+            CaseFolding folding, TokenFilter filter, int threads)
+            throws IOException {
+        return countFile(file, tokenizer, folding, filter, threads, null);
+    }
+
+    /**
+     * Returns a table of all words counted in {@code file}, using up to
+     * {@code threads} threads that find the separators with {@code vector}.
+     *
+     * @param file
+     *            the input file
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param threads
+     *            the maximum number of threads to count on
+     * @param vector
+     *            the scanner of the ASCII separators of {@code tokenizer},
+     *            shared by the threads, or {@code null} to classify each
+     *            byte through a table
+     * @return table of words with counts
+     * @throws IOException
+     *             if the file cannot be read or mapped
+     * @requires threads > 0
+     */
+    public static WordCounts countFile(Path file, Tokenizer tokenizer,
+            CaseFolding folding, TokenFilter filter, int threads,
+            SeparatorScanner vector) throws IOException {
+        assert file != null : "Violation of: file is not null";
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+        assert filter != null : "Violation of: filter is not null";
+        assert threads > 0 : "Violation of: threads > 0";
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            return countRange(channel, 0, channel.size(), tokenizer, folding,
+                    filter, threads, vector);
+        }
+    }
+
+    /**
+     * Returns a table of all words counted in bytes {@code [from, to)} of
+     * {@code channel}, using up to {@code threads} threads that classify
+     * each byte through a table.
+     *
+     * @param channel
+     *            the input file
+     * @param from
+     *            the first byte of the range
+     * @param to
+     *            the end (exclusive) of the range
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param threads
+     *            the maximum number of threads to count on
+     * @return table of words with counts
+     * @throws IOException
+     *             if the file cannot be read or mapped
+     * @requires <pre>
+     * threads > 0  and  0 <= from <= to <= size(channel)  and
+     * from and to do not fall inside a word
+     * </pre>
+     */
+    public static WordCounts countRange(FileChannel channel, long from,
+            long to, Tokenizer tokenizer, CaseFolding folding,
+            TokenFilter filter, int threads) throws IOException {
+        return countRange(channel, from, to, tokenizer, folding, filter,
+                threads, null);
+    }
+
+    /**
+     * Returns a table of all words counted in bytes {@code [from, to)} of
+     * {@code channel}, using up to {@code threads} threads that find the
+     * separators with {@code vector}.
+     *
+     * @param channel
+     *            the input file
+     * @param from
+     *            the first byte of the range
+     * @param to
+     *            the end (exclusive) of the range
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param threads
+     *            the maximum number of threads to count on
+     * @param vector
+     *            the scanner of the ASCII separators of {@code tokenizer},
+     *            shared by the threads, or {@code null} to classify each
+     *            byte through a table
+     * @return table of words with counts
+     * @throws IOException
+     *             if the file cannot be read or mapped
+     * @requires <pre>
+     * threads > 0  and  0 <= from <= to <= size(channel)  and
+     * from and to do not fall inside a word
+     * </pre>
+     */
+    public static WordCounts countRange(FileChannel channel, long from,
+            long to, Tokenizer tokenizer, CaseFolding folding,
+            TokenFilter filter, int threads, SeparatorScanner vector)
+            throws IOException {
+        assert channel != null : "Violation of: channel is not null";
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+        assert filter != null : "Violation of: filter is not null";
+        assert threads > 0 : "Violation of: threads > 0";
+        assert 0 <= from && from <= to : "Violation of: 0 <= from <= to";
+
+        long size = to - from;
+        int ranges = (int) Math.max(1, Math.min(threads, size / MIN_RANGE));
+        if (ranges == 1) {
+            WordCounts counts = new WordCounts();
+            new MappedWordCounter(tokenizer, folding, filter.filter(counts),
+                    vector).countRange(channel, from, to);
+            return counts;
+        }
+
+        /* Splits the range at separators near each equal share */
+        long[] bounds = new long[ranges + 1];
+        bounds[0] = from;
+        bounds[ranges] = to;
+        for (int k = 1; k < ranges; k++) {
+            long target = Math.max(from + size / ranges * k, bounds[k - 1]);
+            bounds[k] = nextSeparator(channel, target, to, tokenizer);
+        }
+
+        ExecutorService pool = Executors.newFixedThreadPool(ranges);
+        try {
+            List<Future<WordCounts>> parts = new ArrayList<>(ranges);
+            for (int k = 0; k < ranges; k++) {
+                long rangeFrom = bounds[k];
+                long rangeTo = bounds[k + 1];
+                parts.add(pool.submit(() -> {
+                    WordCounts counts = new WordCounts();
+                    new MappedWordCounter(tokenizer, folding,
+                            filter.filter(counts), vector).countRange(channel,
+                                    rangeFrom, rangeTo);
+                    return counts;
+                }));
+            }
+            return merge(parts);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Returns the position of the first ASCII separator at or after
+     * {@code from} and before {@code size}, or {@code size} if there is none.
+     *
+     * @param channel
+     *            the file
+     * @param from
+     *            the position to start looking at
+     * @param size
+     *            the end (exclusive) of the search
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @return the position of the next separator byte
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static long nextSeparator(FileChannel channel, long from,
+            long size, Tokenizer tokenizer) throws IOException {
+        ByteBuffer probe = ByteBuffer.allocate(PROBE_SIZE);
+        long position = from;
+        while (position < size) {
+            probe.clear();
+            int read = channel.read(probe, position);
+            if (read <= 0) {
+                return size;
+            }
+            for (int i = 0; i < read; i++) {
+                int b = probe.get(i);
+                if (b >= 0 && b < ASCII && tokenizer.isSeparator((char) b)) {
+                    return position + i;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * Waits for the partial counts and merges them into the largest one.
+     *
+     * @param parts
+     *            the pending partial counts
+     * @return the merged counts
+     * @throws IOException
+     *             if counting any part failed or the wait was interrupted
+     */
+    private static WordCounts merge(List<Future<WordCounts>> parts)
+            throws IOException {
+        List<WordCounts> tables = new ArrayList<>(parts.size());
+        try {
+            for (Future<WordCounts> part : parts) {
+                tables.add(part.get());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while counting");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException) {
+                throw (IOException) e.getCause();
+            }
+            throw new IOException(e.getCause());
+        }
+
+        WordCounts largest = tables.get(0);
+        for (WordCounts table : tables) {
+            if (table.size() > largest.size()) {
+                largest = table;
+            }
+        }
+        for (WordCounts table : tables) {
+            if (table != largest) {
+                largest.addAll(table);
+            }
+        }
+        return largest;
+    }
+
+}
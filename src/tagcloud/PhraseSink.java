@@ -0,0 +1,230 @@
+package tagcloud;
+
+import java.util.Arrays;
+
+/**
+ * Sink turning consecutive words into phrases of a fixed number of words, such
+ * as "new york" or "out of memory", and passing each phrase on to another
+ * sink.
+ *
+ * <p>
+ * The words of the current phrase are kept side by side in one buffer,
+ * separated by single spaces, so each phrase is handed on as one span. Its
+ * {@code String} hash code is kept up to date as words come and go: the hash
+ * of the next word is appended and the contribution of the first word is
+ * subtracted, so the characters of a phrase are hashed once however many
+ * phrases they are part of, and a {@link WordCounts} table receiving the
+ * phrases does not hash them again.
+ * </p>
+ *
+ * <p>
+ * Stop words may appear inside a phrase but a phrase that starts or ends
+ * with one is dropped, which keeps "out of memory" while leaving out "of
+ * the". Phrases never span the end of a text ({@link #endText()}).
+ * </p>
+ */
+public final class PhraseSink implements TokenSink {
+
+    /**
+     * Multiplier of the {@code String} hash code.
+     */
+    private static final int BASE = 31;
+
+    /**
+     * Separator between the words of a phrase.
+     */
+    private static final char SPACE = ' ';
+
+    /**
+     * Initial capacity of the phrase buffer in characters.
+     */
+    private static final int INITIAL_CAPACITY = 64;
+
+    /**
+     * Number of words in a phrase.
+     */
+    private final int words;
+
+    /**
+     * Words that may not start or end a phrase.
+     */
+    private final StopWords stopWords;
+
+    /**
+     * Sink receiving the phrases.
+     */
+    private final TokenSink next;
+
+    /**
+     * Current words, separated by spaces, in {@code phrase[0, used)}.
+     */
+    private char[] phrase = new char[INITIAL_CAPACITY];
+
+    /**
+     * Number of characters in use in {@code phrase}.
+     */
+    private int used;
+
+    /**
+     * Hash code of {@code phrase[0, used)}.
+     */
+    private int hash;
+
+    /**
+     * Lengths of the current words, oldest at {@code first}, in a ring.
+     */
+    private final int[] lengths;
+
+    /**
+     * Hash codes of the current words, parallel to {@code lengths}.
+     */
+    private final int[] hashes;
+
+    /**
+     * Whether each current word is a stop word, parallel to
+     * {@code lengths}.
+     */
+    private final boolean[] stops;
+
+    /**
+     * Ring index of the oldest current word.
+     */
+    private int first;
+
+    /**
+     * Number of current words.
+     */
+    private int size;
+
+    /**
+     * Creates a sink passing every phrase of {@code words} consecutive words
+     * to {@code next}.
+     *
+     * @param words
+     *            the number of words in a phrase
+     * @param stopWords
+     *            the words that may not start or end a phrase
+     * @param next
+     *            the sink receiving the phrases
+     * @requires words > 0
+     */
+    public PhraseSink(int words, StopWords stopWords, TokenSink next) {
+        assert words > 0 : "Violation of: words > 0";
+        assert stopWords != null : "Violation of: stopWords is not null";
+        assert next != null : "Violation of: next is not null";
+
+        this.words = words;
+        this.stopWords = stopWords;
+        this.next = next;
+        this.lengths = new int[words];
+        this.hashes = new int[words];
+        this.stops = new boolean[words];
+    }
+
+    /**
+     * Returns {@code BASE} to the power {@code exponent}, with the overflow
+     * of {@code int} arithmetic, as the hash code does.
+     *
+     * @param exponent
+     *            the exponent
+     * @return {@code BASE} to the power {@code exponent}
+     * @requires exponent >= 0
+     */
+    private static int power(int exponent) {
+        int result = 1;
+        int square = BASE;
+        int rest = exponent;
+        while (rest > 0) {
+            if ((rest & 1) != 0) {
+                result *= square;
+            }
+            square *= square;
+            rest >>>= 1;
+        }
+        return result;
+    }
+
+    /**
+     * Drops the oldest word from the front of the phrase, with the space
+     * after it if there is one.
+     */
+    private void dropFirst() {
+        if (this.size == 1) {
+            /* The only word has no space after it */
+            this.used = 0;
+            this.hash = 0;
+        } else {
+            int dropped = this.lengths[this.first] + 1;
+            int rest = this.used - dropped;
+            /* The first word and its space were multiplied by BASE^|rest| */
+            this.hash -= (this.hashes[this.first] * BASE + SPACE)
+                    * power(rest);
+            System.arraycopy(this.phrase, dropped, this.phrase, 0, rest);
+            this.used = rest;
+        }
+        this.first = (this.first + 1) % this.words;
+        this.size--;
+    }
+
+    /**
+     * Adds the word {@code text[offset, offset + length)} to the current
+     * phrase and, once it holds enough words, passes the phrase on unless it
+     * starts or ends with a stop word.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @requires 0 <= offset and 0 < length and offset + length <= |text|
+     */
+    @Override
+    public void accept(char[] text, int offset, int length) {
+        if (this.size == this.words) {
+            this.dropFirst();
+        }
+        int needed = this.used + 1 + length;
+        if (needed > this.phrase.length) {
+            this.phrase = Arrays.copyOf(this.phrase,
+                    Math.max(needed, 2 * this.phrase.length));
+        }
+        if (this.size > 0) {
+            this.phrase[this.used] = SPACE;
+            this.used++;
+            this.hash = BASE * this.hash + SPACE;
+        }
+        int wordHash = 0;
+        int phraseHash = this.hash;
+        for (int i = offset; i < offset + length; i++) {
+            char c = text[i];
+            this.phrase[this.used + i - offset] = c;
+            wordHash = BASE * wordHash + c;
+            phraseHash = BASE * phraseHash + c;
+        }
+        this.used += length;
+        this.hash = phraseHash;
+        int slot = (this.first + this.size) % this.words;
+        this.lengths[slot] = length;
+        this.hashes[slot] = wordHash;
+        this.stops[slot] = this.stopWords.contains(text, offset, length);
+        this.size++;
+        if (this.size == this.words && !this.stops[this.first]
+                && !this.stops[slot]) {
+            this.next.accept(this.phrase, 0, this.used, this.hash);
+        }
+    }
+
+    /**
+     * Forgets the current words, so the next phrase starts with the next
+     * word.
+     */
+    @Override
+    public void endText() {
+        this.used = 0;
+        this.hash = 0;
+        this.first = 0;
+        this.size = 0;
+    }
+
+}
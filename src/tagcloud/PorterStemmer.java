@@ -0,0 +1,480 @@
+package tagcloud;
+
+/**
+ * Porter stemmer, reducing an English word to its stem in place: "bees",
+ * "connected" and "connecting" become "bee", "connect" and "connect".
+ *
+ * <p>
+ * This is the algorithm of M. F. Porter, "An algorithm for suffix
+ * stripping" (1980), as in his reference implementation, with its two
+ * departures ("-bli" becomes "-ble" and "-logi" becomes "-log"). It works on
+ * a {@code char[]} span of lowercase ASCII letters and allocates nothing: no
+ * rule ever makes a word longer than it was before the rule that removed a
+ * suffix, so the stem always fits in the word's own characters.
+ * </p>
+ *
+ * <p>
+ * A stemmer keeps the word being stemmed in its fields, so it is used by a
+ * single thread.
+ * </p>
+ */
+public final class PorterStemmer {
+
+    /**
+     * Length of the longest word left as it is.
+     */
+    private static final int MIN_STEMMED = 2;
+
+    /**
+     * The word being stemmed, in {@code b[0, k]}.
+     */
+    private char[] b;
+
+    /**
+     * Index of the last character of the word.
+     */
+    private int k;
+
+    /**
+     * Index of the last character of the stem before the suffix found by
+     * {@link #ends(String)}.
+     */
+    private int j;
+
+    /**
+     * Reports whether {@code c} is a lowercase ASCII letter, the only
+     * characters the stemmer handles.
+     *
+     * @param c
+     *            the character
+     * @return true iff {@code c} is in {@code a-z}
+     */
+    public static boolean isLetter(char c) {
+        return c >= 'a' && c <= 'z';
+    }
+
+    /**
+     * Stems the word {@code word[0, length)} in place.
+     *
+     * @param word
+     *            the word, overwritten by its stem
+     * @param length
+     *            the number of characters in the word
+     * @return the number of characters in the stem
+     * @updates word
+     * @requires <pre>
+     * 0 < length <= |word|  and
+     * every character of word[0, length) is in a-z
+     * </pre>
+     * @ensures 0 < stem <= length
+     */
+    public int stem(char[] word, int length) {
+        assert word != null : "Violation of: word is not null";
+        assert 0 < length && length <= word.length
+                : "Violation of: 0 < length <= |word|";
+
+        int result = length;
+        if (length > MIN_STEMMED) {
+            this.b = word;
+            this.k = length - 1;
+            this.step1ab();
+            if (this.k > 0) {
+                this.step1c();
+                this.step2();
+                this.step3();
+                this.step4();
+                this.step5();
+            }
+            result = this.k + 1;
+            this.b = null;
+        }
+        return result;
+    }
+
+    /**
+     * Reports whether {@code b[i]} is a consonant: a letter other than a, e,
+     * i, o and u, and other than a y following a consonant.
+     *
+     * @param i
+     *            the index of the letter
+     * @return true iff the letter is a consonant
+     * @requires 0 <= i <= k
+     */
+    private boolean isConsonant(int i) {
+        boolean consonant;
+        switch (this.b[i]) {
+            case 'a':
+            case 'e':
+            case 'i':
+            case 'o':
+            case 'u':
+                consonant = false;
+                break;
+            case 'y':
+                consonant = i == 0 || !this.isConsonant(i - 1);
+                break;
+            default:
+                consonant = true;
+                break;
+        }
+        return consonant;
+    }
+
+    /**
+     * Returns the measure of {@code b[0, j]}: the number of vowel runs
+     * followed by a consonant run, not counting leading consonants.
+     *
+     * @return the measure of the stem
+     */
+    private int measure() {
+        int n = 0;
+        int i = 0;
+        /* Leading consonants do not count */
+        while (i <= this.j && this.isConsonant(i)) {
+            i++;
+        }
+        while (i <= this.j) {
+            while (i <= this.j && !this.isConsonant(i)) {
+                i++;
+            }
+            if (i <= this.j) {
+                n++;
+                while (i <= this.j && this.isConsonant(i)) {
+                    i++;
+                }
+            }
+        }
+        return n;
+    }
+
+    /**
+     * Reports whether {@code b[0, j]} contains a vowel.
+     *
+     * @return true iff the stem contains a vowel
+     */
+    private boolean vowelInStem() {
+        boolean found = false;
+        for (int i = 0; i <= this.j && !found; i++) {
+            found = !this.isConsonant(i);
+        }
+        return found;
+    }
+
+    /**
+     * Reports whether {@code b[i - 1, i]} is a double consonant.
+     *
+     * @param i
+     *            the index of the second letter
+     * @return true iff the two letters are the same consonant
+     * @requires i <= k
+     */
+    private boolean doubleConsonant(int i) {
+        return i >= 1 && this.b[i] == this.b[i - 1] && this.isConsonant(i);
+    }
+
+    /**
+     * Reports whether {@code b[i - 2, i]} is consonant, vowel, consonant,
+     * with a last consonant other than w, x or y, as in "hop" but not in
+     * "snow": such a stem ending gets its e back ("hop" to "hope").
+     *
+     * @param i
+     *            the index of the last letter
+     * @return true iff the three letters have that form
+     * @requires i <= k
+     */
+    private boolean cvc(int i) {
+        boolean cvc = i >= 2 && this.isConsonant(i)
+                && !this.isConsonant(i - 1) && this.isConsonant(i - 2);
+        if (cvc) {
+            char c = this.b[i];
+            cvc = c != 'w' && c != 'x' && c != 'y';
+        }
+        return cvc;
+    }
+
+    /**
+     * Reports whether the word ends with {@code suffix}, setting {@code j}
+     * to the end of the stem before it if so.
+     *
+     * @param suffix
+     *            the suffix
+     * @return true iff {@code b[0, k]} ends with {@code suffix}
+     */
+    private boolean ends(String suffix) {
+        int length = suffix.length();
+        int start = this.k - length + 1;
+        boolean ends = start >= 0;
+        for (int i = 0; i < length && ends; i++) {
+            ends = this.b[start + i] == suffix.charAt(i);
+        }
+        if (ends) {
+            this.j = this.k - length;
+        }
+        return ends;
+    }
+
+    /**
+     * Replaces the suffix after {@code b[0, j]} with {@code suffix}.
+     *
+     * @param suffix
+     *            the new suffix
+     * @requires j + |suffix| < |b|
+     */
+    private void setTo(String suffix) {
+        int length = suffix.length();
+        suffix.getChars(0, length, this.b, this.j + 1);
+        this.k = this.j + length;
+    }
+
+    /**
+     * Replaces the suffix after {@code b[0, j]} with {@code suffix} if the
+     * stem has a positive measure.
+     *
+     * @param suffix
+     *            the new suffix
+     * @requires j + |suffix| < |b|
+     */
+    private void replace(String suffix) {
+        if (this.measure() > 0) {
+            this.setTo(suffix);
+        }
+    }
+
+    /**
+     * Removes plurals and -ed or -ing: "caresses" to "caress", "ponies" to
+     * "poni", "cats" to "cat", "agreed" to "agree", "plastered" to "plaster",
+     * "motoring" to "motor", "hopping" to "hop" and "filing" to "file".
+     */
+    private void step1ab() {
+        if (this.b[this.k] == 's') {
+            if (this.ends("sses")) {
+                this.k -= 2;
+            } else if (this.ends("ies")) {
+                this.setTo("i");
+            } else if (this.b[this.k - 1] != 's') {
+                this.k--;
+            }
+        }
+        if (this.ends("eed")) {
+            if (this.measure() > 0) {
+                this.k--;
+            }
+        } else if ((this.ends("ed") || this.ends("ing"))
+                && this.vowelInStem()) {
+            this.k = this.j;
+            if (this.ends("at")) {
+                this.setTo("ate");
+            } else if (this.ends("bl")) {
+                this.setTo("ble");
+            } else if (this.ends("iz")) {
+                this.setTo("ize");
+            } else if (this.doubleConsonant(this.k)) {
+                char c = this.b[this.k];
+                if (c != 'l' && c != 's' && c != 'z') {
+                    this.k--;
+                }
+            } else if (this.measure() == 1 && this.cvc(this.k)) {
+                this.setTo("e");
+            }
+        }
+    }
+
+    /**
+     * Turns a final y into i when there is another vowel in the stem:
+     * "happy" to "happi" but "sky" stays.
+     */
+    private void step1c() {
+        if (this.ends("y") && this.vowelInStem()) {
+            this.b[this.k] = 'i';
+        }
+    }
+
+    /**
+     * Maps double suffixes to single ones: "relational" to "relate",
+     * "digitizer" to "digitize", "hopefulness" to "hopeful"; the stem must
+     * have a positive measure.
+     */
+    private void step2() {
+        switch (this.b[this.k - 1]) {
+            case 'a':
+                if (this.ends("ational")) {
+                    this.replace("ate");
+                } else if (this.ends("tional")) {
+                    this.replace("tion");
+                }
+                break;
+            case 'c':
+                if (this.ends("enci")) {
+                    this.replace("ence");
+                } else if (this.ends("anci")) {
+                    this.replace("ance");
+                }
+                break;
+            case 'e':
+                if (this.ends("izer")) {
+                    this.replace("ize");
+                }
+                break;
+            case 'l':
+                if (this.ends("bli")) {
+                    this.replace("ble");
+                } else if (this.ends("alli")) {
+                    this.replace("al");
+                } else if (this.ends("entli")) {
+                    this.replace("ent");
+                } else if (this.ends("eli")) {
+                    this.replace("e");
+                } else if (this.ends("ousli")) {
+                    this.replace("ous");
+                }
+                break;
+            case 'o':
+                if (this.ends("ization")) {
+                    this.replace("ize");
+                } else if (this.ends("ation") || this.ends("ator")) {
+                    this.replace("ate");
+                }
+                break;
+            case 's':
+                if (this.ends("alism")) {
+                    this.replace("al");
+                } else if (this.ends("iveness")) {
+                    this.replace("ive");
+                } else if (this.ends("fulness")) {
+                    this.replace("ful");
+                } else if (this.ends("ousness")) {
+                    this.replace("ous");
+                }
+                break;
+            case 't':
+                if (this.ends("aliti")) {
+                    this.replace("al");
+                } else if (this.ends("iviti")) {
+                    this.replace("ive");
+                } else if (this.ends("biliti")) {
+                    this.replace("ble");
+                }
+                break;
+            case 'g':
+                if (this.ends("logi")) {
+                    this.replace("log");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Handles -ic-, -full and -ness: "triplicate" to "triplic", "hopeful" to
+     * "hope", "goodness" to "good"; the stem must have a positive measure.
+     */
+    private void step3() {
+        switch (this.b[this.k]) {
+            case 'e':
+                if (this.ends("icate")) {
+                    this.replace("ic");
+                } else if (this.ends("ative")) {
+                    this.replace("");
+                } else if (this.ends("alize")) {
+                    this.replace("al");
+                }
+                break;
+            case 'i':
+                if (this.ends("iciti")) {
+                    this.replace("ic");
+                }
+                break;
+            case 'l':
+                if (this.ends("ical")) {
+                    this.replace("ic");
+                } else if (this.ends("ful")) {
+                    this.replace("");
+                }
+                break;
+            case 's':
+                if (this.ends("ness")) {
+                    this.replace("");
+                }
+                break;
+            default:
+                break;
+        }
+    }
+
+    /**
+     * Removes -ant, -ence and the like when the stem has a measure above
+     * one: "revival" to "reviv", "adjustment" to "adjust", "adoption" to
+     * "adopt".
+     */
+    private void step4() {
+        boolean found;
+        switch (this.b[this.k - 1]) {
+            case 'a':
+                found = this.ends("al");
+                break;
+            case 'c':
+                found = this.ends("ance") || this.ends("ence");
+                break;
+            case 'e':
+                found = this.ends("er");
+                break;
+            case 'i':
+                found = this.ends("ic");
+                break;
+            case 'l':
+                found = this.ends("able") || this.ends("ible");
+                break;
+            case 'n':
+                found = this.ends("ant") || this.ends("ement")
+                        || this.ends("ment") || this.ends("ent");
+                break;
+            case 'o':
+                found = this.ends("ion") && this.j >= 0
+                        && (this.b[this.j] == 's' || this.b[this.j] == 't')
+                        || this.ends("ou");
+                break;
+            case 's':
+                found = this.ends("ism");
+                break;
+            case 't':
+                found = this.ends("ate") || this.ends("iti");
+                break;
+            case 'u':
+                found = this.ends("ous");
+                break;
+            case 'v':
+                found = this.ends("ive");
+                break;
+            case 'z':
+                found = this.ends("ize");
+                break;
+            default:
+                found = false;
+                break;
+        }
+        if (found && this.measure() > 1) {
+            this.k = this.j;
+        }
+    }
+
+    /**
+     * Removes a final e and a double l when the stem is long enough:
+     * "probate" to "probat", "controll" to "control", but "rate" and "roll"
+     * stay.
+     */
+    private void step5() {
+        this.j = this.k;
+        if (this.b[this.k] == 'e') {
+            int m = this.measure();
+            if (m > 1 || m == 1 && !this.cvc(this.k - 1)) {
+                this.k--;
+            }
+        }
+        if (this.b[this.k] == 'l' && this.doubleConsonant(this.k)
+                && this.measure() > 1) {
+            this.k--;
+        }
+    }
+
+}
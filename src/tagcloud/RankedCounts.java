@@ -0,0 +1,109 @@
+package tagcloud;
+
+/**
+ * Immutable word counts in rank order (decreasing count, ties alphabetical),
+ * so the top {@code n} words for any {@code n} are the first {@code n}.
+ *
+ * <p>
+ * This is the in-memory counterpart of a {@link WordCountSnapshot}: the
+ * counts of a document are ranked once and can then give clouds of any size
+ * without counting or selecting again, which is what the result cache keeps.
+ * </p>
+ */
+public final class RankedCounts {
+
+    /**
+     * Estimated bytes used by one word besides its characters: the
+     * {@code String}, its array and the slots of both arrays.
+     */
+    private static final int WORD_OVERHEAD = 64;
+
+    /**
+     * Words in rank order.
+     */
+    private final String[] words;
+
+    /**
+     * Counts, parallel to {@code words}.
+     */
+    private final long[] counts;
+
+    /**
+     * Estimated size in bytes.
+     */
+    private final long bytes;
+
+    /**
+     * Ranks the words of {@code table}.
+     *
+     * @param table
+     *            the counts to rank
+     */
+    public RankedCounts(WordCounts table) {
+        assert table != null : "Violation of: table is not null";
+
+        int[] order = table.slotsByRank();
+        this.words = new String[order.length];
+        this.counts = new long[order.length];
+        for (int i = 0; i < order.length; i++) {
+            this.words[i] = table.keyAt(order[i]);
+            this.counts[i] = table.countAt(order[i]);
+        }
+        this.bytes = bytes(table);
+    }
+
+    /**
+     * Returns the estimated memory the ranked counts of {@code table} would
+     * use, without ranking them.
+     *
+     * @param table
+     *            the counts to rank
+     * @return the size in bytes
+     */
+    public static long bytes(WordCounts table) {
+        assert table != null : "Violation of: table is not null";
+
+        /* The arena holds the characters of each word once */
+        return (long) table.size() * WORD_OVERHEAD
+                + Character.BYTES * (long) table.arena().length();
+    }
+
+    /**
+     * Returns the number of distinct words.
+     *
+     * @return the number of words
+     */
+    public int size() {
+        return this.words.length;
+    }
+
+    /**
+     * Returns the estimated memory used by these counts.
+     *
+     * @return the size in bytes
+     */
+    public long bytes() {
+        return this.bytes;
+    }
+
+    /**
+     * Returns the {@code n} highest ranked words, or all of them if there are
+     * fewer.
+     *
+     * @param n
+     *            the number of words wanted
+     * @return the top words
+     * @requires n >= 0
+     */
+    public TopWords top(int n) {
+        assert n >= 0 : "Violation of: n >= 0";
+
+        int wanted = Math.min(n, this.words.length);
+        TopWords top = new TopWords(wanted);
+        for (int i = 0; i < wanted; i++) {
+            top.offer(this.words[i], this.counts[i]);
+        }
+        return top;
+    }
+
+}
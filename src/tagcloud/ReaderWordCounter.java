@@ -0,0 +1,108 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+/**
+ * Counts the words of a character stream, for inputs that cannot be
+ * memory-mapped as UTF-8 (standard input, other charsets).
+ *
+ * <p>
+ * The stream is read a buffer at a time into a reusable {@code char[]}; a
+ * word cut off at the end of one read is carried over to the start of the
+ * next, and every word is handed to a {@link TokenSink}, normally a
+ * {@link WordCounts} table, as a span of the buffer.
+ * </p>
+ */
+public final class ReaderWordCounter {
+
+    /**
+     * Number of characters read at a time.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Scanner splitting the buffer into words.
+     */
+    private final WordScanner scanner;
+
+    /**
+     * Sink receiving the words.
+     */
+    private final TokenSink sink;
+
+    /**
+     * Buffer holding the characters read.
+     */
+    private char[] buffer = new char[BUFFER_SIZE];
+
+    /**
+     * Creates a counter splitting words with {@code tokenizer}, folding them
+     * with {@code folding} and passing them to {@code sink}.
+     *
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param sink
+     *            the sink receiving the words, normally a {@link WordCounts}
+     */
+    public ReaderWordCounter(Tokenizer tokenizer, CaseFolding folding,
+            TokenSink sink) {
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+        assert sink != null : "Violation of: sink is not null";
+
+        this.scanner = new WordScanner(tokenizer, folding);
+        this.sink = sink;
+    }
+
+    /**
+     * Counts every word read from {@code in} up to the end of the stream.
+     * Words read before an I/O error stay counted.
+     *
+     * @param in
+     *            the character stream
+     * @throws IOException
+     *             if reading from {@code in} fails
+     */
+    public void count(Reader in) throws IOException {
+        assert in != null : "Violation of: in is not null";
+
+        /*
+         * buffer[0, kept) holds the tail of the previous read: a word that ran
+         * up to the end of the buffer and may continue in the next read
+         */
+        int kept = 0;
+        boolean endOfInput = false;
+        while (!endOfInput) {
+            int limit = kept;
+            int read = in.read(this.buffer, kept, this.buffer.length - kept);
+            if (read < 0) {
+                endOfInput = true;
+            } else {
+                limit += read;
+            }
+            /* Counts each word in the buffer without copying it */
+            this.scanner.reset(this.buffer, 0, limit);
+            kept = 0;
+            while (this.scanner.next()) {
+                if (!endOfInput && this.scanner.end() == limit) {
+                    kept = this.scanner.length();
+                    System.arraycopy(this.buffer, this.scanner.start(),
+                            this.buffer, 0, kept);
+                    if (kept == this.buffer.length) {
+                        /* A single word fills the buffer; make room */
+                        this.buffer = Arrays.copyOf(this.buffer,
+                                this.buffer.length * 2);
+                    }
+                } else {
+                    this.sink.accept(this.buffer, this.scanner.start(),
+                            this.scanner.length());
+                }
+            }
+        }
+    }
+
+}
@@ -0,0 +1,396 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Directory of cached results of batch runs, so counting a document that was
+ * counted before costs a read of it instead of a count.
+ *
+ * <p>
+ * A run is keyed by the SHA-256 digest of its input files' contents and of
+ * every option that changes the counts (tokenizer, case folding, stop
+ * words, stemming, charset and phrase length). The cache has two levels:
+ * the counts of a key, saved as a {@link WordCountSnapshot} from which a
+ * cloud of any size can be rendered, and rendered pages, keyed by the key,
+ * the number of words, the input name and the output format. Files are
+ * written under temporary names and moved into place, so concurrent runs
+ * sharing the directory never see a partial entry.
+ * </p>
+ *
+ * <p>
+ * The directory is kept under a size bound by deleting the least recently
+ * used entries; a hit marks an entry as used by updating its modification
+ * time.
+ * </p>
+ */
+public final class ResultCache {
+
+    /**
+     * Version of the key layout; changing it invalidates every entry.
+     */
+    private static final int KEY_VERSION = 3;
+
+    /**
+     * Largest window of a file mapped at once while digesting it.
+     */
+    private static final int MAX_WINDOW = 1 << 30;
+
+    /**
+     * Suffix of count entries.
+     */
+    private static final String COUNTS = ".counts";
+
+    /**
+     * Suffix of entries being written.
+     */
+    private static final String TEMPORARY = ".tmp";
+
+    /**
+     * Directory holding the entries.
+     */
+    private final Path directory;
+
+    /**
+     * Largest total size of the entries in bytes.
+     */
+    private final long capacity;
+
+    /**
+     * Creates a cache in {@code directory}, creating it if needed, holding
+     * up to {@code capacity} bytes of entries.
+     *
+     * @param directory
+     *            the cache directory
+     * @param capacity
+     *            the largest total size of the entries
+     * @throws IOException
+     *             if the directory cannot be created
+     * @requires capacity >= 0
+     */
+    public ResultCache(Path directory, long capacity) throws IOException {
+        assert directory != null : "Violation of: directory is not null";
+        assert capacity >= 0 : "Violation of: capacity >= 0";
+
+        this.directory = Files.createDirectories(directory);
+        this.capacity = capacity;
+    }
+
+    /**
+     * Returns a new SHA-256 digest.
+     *
+     * @return the digest
+     */
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            /* Every Java platform is required to support SHA-256 */
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Returns the hexadecimal digest of {@code text}.
+     *
+     * @param text
+     *            the text
+     * @return the SHA-256 digest of the UTF-8 bytes of {@code text}
+     */
+    private static String digest(String text) {
+        return HexFormat.of().formatHex(
+                sha256().digest(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * Returns the key of counting {@code inputs} with the given options: the
+     * digest of the contents of every input file, in order, and of the
+     * options. The files of a directory or glob are taken in path order.
+     *
+     * @param inputs
+     *            files, directories and glob patterns; not standard input
+     * @param tokenizer
+     *            the rule splitting text into words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param charset
+     *            the charset of the inputs
+     * @param phraseWords
+     *            the number of words in each counted phrase
+     * @return the key
+     * @throws IOException
+     *             if an input cannot be read
+     */
+    public static String key(List<String> inputs, Tokenizer tokenizer,
+            CaseFolding folding, TokenFilter filter, Charset charset,
+            int phraseWords) throws IOException {
+        MessageDigest digest = sha256();
+        digest.update(("tagcloud " + KEY_VERSION + ' '
+                + Long.toHexString(tokenizer.fingerprint()) + ' ' + folding
+                + ' ' + Long.toHexString(filter.fingerprint()) + ' '
+                + charset.name() + ' ' + phraseWords)
+                        .getBytes(StandardCharsets.UTF_8));
+        for (String input : inputs) {
+            List<Path> files = new ArrayList<>();
+            if (CorpusCounter.isCorpus(input)) {
+                try (Stream<Path> found = CorpusCounter.files(input)) {
+                    files.addAll(found.sorted().collect(Collectors.toList()));
+                }
+            } else {
+                files.add(Paths.get(input));
+            }
+            for (Path file : files) {
+                try (FileChannel channel = FileChannel.open(file,
+                        StandardOpenOption.READ)) {
+                    /* The length keeps file boundaries part of the key */
+                    long size = channel.size();
+                    digest.update(ByteBuffer.allocate(Long.BYTES)
+                            .putLong(0, size));
+                    long position = 0;
+                    while (position < size) {
+                        MappedByteBuffer window = channel.map(
+                                FileChannel.MapMode.READ_ONLY, position,
+                                Math.min(size - position, MAX_WINDOW));
+                        position += window.remaining();
+                        digest.update(window);
+                    }
+                }
+            }
+        }
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Returns the file of the counts entry of {@code key}.
+     *
+     * @param key
+     *            the key of the counted inputs
+     * @return the entry's file, which may not exist
+     */
+    private Path countsFile(String key) {
+        return this.directory.resolve(key + COUNTS);
+    }
+
+    /**
+     * Returns the file of the page entry of {@code key}, {@code n},
+     * {@code inputName} and {@code format}.
+     *
+     * @param key
+     *            the key of the counted inputs
+     * @param n
+     *            the number of words in the cloud
+     * @param inputName
+     *            the input name shown in the cloud
+     * @param format
+     *            the format of the page
+     * @return the entry's file, which may not exist
+     */
+    private Path pageFile(String key, int n, String inputName,
+            OutputFormat format) {
+        return this.directory.resolve(digest(key + '\n' + n + '\n' + inputName
+                + '\n' + format) + '.' + format.extension());
+    }
+
+    /**
+     * Reports whether {@code file} is an entry of the cache.
+     *
+     * @param file
+     *            a file of the cache directory
+     * @return true iff {@code file} holds counts or a page
+     */
+    private static boolean isEntry(Path file) {
+        String name = file.getFileName().toString();
+        boolean entry = name.endsWith(COUNTS);
+        for (OutputFormat format : OutputFormat.values()) {
+            entry = entry || name.endsWith('.' + format.extension());
+        }
+        return entry;
+    }
+
+    /**
+     * Returns the existing file {@code entry}, marking it as recently used.
+     *
+     * @param entry
+     *            the file of an entry
+     * @return {@code entry}, or {@code null} if it is not cached
+     * @throws IOException
+     *             if the entry cannot be marked as used
+     */
+    private static Path hit(Path entry) throws IOException {
+        Path result = entry;
+        try {
+            Files.setLastModifiedTime(entry,
+                    FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (NoSuchFileException e) {
+            result = null;
+        }
+        return result;
+    }
+
+    /**
+     * Returns the snapshot of the counts cached for {@code key}.
+     *
+     * @param key
+     *            the key of the counted inputs
+     * @return the snapshot file, or {@code null} if none is cached
+     * @throws IOException
+     *             if the cache cannot be accessed
+     */
+    public Path counts(String key) throws IOException {
+        return hit(this.countsFile(key));
+    }
+
+    /**
+     * Returns the page cached for {@code key}, {@code n}, {@code inputName}
+     * and {@code format}.
+     *
+     * @param key
+     *            the key of the counted inputs
+     * @param n
+     *            the number of words in the cloud
+     * @param inputName
+     *            the input name shown in the cloud
+     * @param format
+     *            the format of the page
+     * @return the page file, or {@code null} if none is cached
+     * @throws IOException
+     *             if the cache cannot be accessed
+     */
+    public Path page(String key, int n, String inputName, OutputFormat format)
+            throws IOException {
+        return hit(this.pageFile(key, n, inputName, format));
+    }
+
+    /**
+     * Caches {@code counts} for {@code key}.
+     *
+     * @param key
+     *            the key of the counted inputs
+     * @param counts
+     *            the counts
+     * @param inputName
+     *            the name of the counted inputs
+     * @throws IOException
+     *             if the entry cannot be written
+     */
+    public void putCounts(String key, WordCounts counts, String inputName)
+            throws IOException {
+        Path temporary = Files.createTempFile(this.directory, key, TEMPORARY);
+        try {
+            WordCountSnapshot.write(counts, inputName, temporary, false);
+            publish(temporary, this.countsFile(key));
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        this.trim();
+    }
+
+    /**
+     * Caches {@code page} for {@code key}, {@code n}, {@code inputName} and
+     * {@code format}.
+     *
+     * @param key
+     *            the key of the counted inputs
+     * @param n
+     *            the number of words in the cloud
+     * @param inputName
+     *            the input name shown in the cloud
+     * @param format
+     *            the format of the page
+     * @param page
+     *            the rendered page
+     * @throws IOException
+     *             if the entry cannot be written
+     */
+    public void putPage(String key, int n, String inputName,
+            OutputFormat format, byte[] page) throws IOException {
+        Path temporary = Files.createTempFile(this.directory, key, TEMPORARY);
+        try {
+            Files.write(temporary, page);
+            publish(temporary, this.pageFile(key, n, inputName, format));
+        } finally {
+            Files.deleteIfExists(temporary);
+        }
+        this.trim();
+    }
+
+    /**
+     * Moves the complete entry {@code temporary} to {@code entry}, replacing
+     * any entry already there.
+     *
+     * @param temporary
+     *            the written entry
+     * @param entry
+     *            the entry's file
+     * @throws IOException
+     *             if the entry cannot be moved
+     */
+    private static void publish(Path temporary, Path entry)
+            throws IOException {
+        try {
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(temporary, entry, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * Deletes the least recently used entries until the entries fit in the
+     * capacity. Entries deleted meanwhile by another run are skipped.
+     *
+     * @throws IOException
+     *             if the directory cannot be listed
+     */
+    private void trim() throws IOException {
+        List<Path> entries;
+        try (Stream<Path> files = Files.list(this.directory)) {
+            entries = files.filter(ResultCache::isEntry)
+                    .collect(Collectors.toList());
+        }
+        List<Entry<Path, BasicFileAttributes>> present = new ArrayList<>();
+        long total = 0;
+        for (Path entry : entries) {
+            try {
+                BasicFileAttributes attributes = Files.readAttributes(entry,
+                        BasicFileAttributes.class);
+                present.add(new SimpleImmutableEntry<>(entry, attributes));
+                total += attributes.size();
+            } catch (NoSuchFileException e) {
+                continue;
+            }
+        }
+        present.sort(Comparator.comparing(
+                entry -> entry.getValue().lastModifiedTime()));
+        for (int i = 0; i < present.size() && total > this.capacity; i++) {
+            Files.deleteIfExists(present.get(i).getKey());
+            total -= present.get(i).getValue().size();
+        }
+    }
+
+}
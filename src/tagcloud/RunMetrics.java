@@ -0,0 +1,258 @@
+package tagcloud;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Timings and counters of one run, for finding where the time goes and
+ * comparing runs.
+ *
+ * <p>
+ * Each stage of a run (counting, selecting, sorting, rendering, ...) is timed
+ * with {@link #start()} and {@link #stop(String, long)}, and sizes such as
+ * the number of input bytes and words are recorded with
+ * {@link #add(String, long)}; stages and counters keep the order in which
+ * they were first recorded. Reading, tokenizing and counting are fused into
+ * one pass over the input, so they are timed together as the
+ * {@value #COUNT} stage, which the throughput rates are based on. The
+ * metrics are written as a text summary or as a JSON object.
+ * </p>
+ *
+ * <p>
+ * Stages are timed from the thread driving the run, so a stage that counts
+ * on several threads is measured by its wall-clock time. Not thread safe.
+ * </p>
+ */
+public final class RunMetrics {
+
+    /**
+     * Stage reading, tokenizing and counting the inputs.
+     */
+    public static final String COUNT = "count";
+
+    /**
+     * Stage digesting the inputs into the key of the result cache.
+     */
+    public static final String DIGEST = "digest";
+
+    /**
+     * Stage reading the top words from a snapshot instead of counting.
+     */
+    public static final String READ_SNAPSHOT = "read_snapshot";
+
+    /**
+     * Stage saving the counts as a snapshot.
+     */
+    public static final String SAVE_SNAPSHOT = "save_snapshot";
+
+    /**
+     * Stage selecting the top words, including any merge of spilled runs.
+     */
+    public static final String SELECT = "select";
+
+    /**
+     * Stage sorting the top words alphabetically.
+     */
+    public static final String SORT = "sort";
+
+    /**
+     * Stage writing the cloud.
+     */
+    public static final String RENDER = "render";
+
+    /**
+     * Counter of the bytes of the input files.
+     */
+    public static final String INPUT_BYTES = "input_bytes";
+
+    /**
+     * Counter of the words counted, stop words excluded.
+     */
+    public static final String WORDS = "words";
+
+    /**
+     * Counter of the distinct words counted.
+     */
+    public static final String DISTINCT_WORDS = "distinct_words";
+
+    /**
+     * Counter of the words in the cloud.
+     */
+    public static final String CLOUD_WORDS = "cloud_words";
+
+    /**
+     * Counter of runs whose page was found in the result cache.
+     */
+    public static final String CACHE_PAGE_HITS = "cache_page_hits";
+
+    /**
+     * Counter of runs whose counts, but not page, were found in the result
+     * cache.
+     */
+    public static final String CACHE_COUNT_HITS = "cache_count_hits";
+
+    /**
+     * Counter of runs that found nothing in the result cache.
+     */
+    public static final String CACHE_MISSES = "cache_misses";
+
+    /**
+     * Nanoseconds per millisecond.
+     */
+    private static final double NANOS_PER_MILLI = 1e6;
+
+    /**
+     * Nanoseconds per second.
+     */
+    private static final double NANOS_PER_SECOND = 1e9;
+
+    /**
+     * Elapsed nanoseconds by stage.
+     */
+    private final Map<String, Long> stages = new LinkedHashMap<>();
+
+    /**
+     * Values by counter.
+     */
+    private final Map<String, Long> counters = new LinkedHashMap<>();
+
+    /**
+     * Returns the current time, to be passed to
+     * {@link #stop(String, long)} when the stage ends.
+     *
+     * @return the start time in nanoseconds
+     */
+    public long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * Adds the time since {@code started} to {@code stage}.
+     *
+     * @param stage
+     *            the stage name
+     * @param started
+     *            the value returned by {@link #start()} when the stage began
+     * @updates this
+     */
+    public void stop(String stage, long started) {
+        assert stage != null : "Violation of: stage is not null";
+
+        this.stages.merge(stage, System.nanoTime() - started, Long::sum);
+    }
+
+    /**
+     * Adds {@code value} to {@code counter}.
+     *
+     * @param counter
+     *            the counter name
+     * @param value
+     *            the amount to add
+     * @updates this
+     */
+    public void add(String counter, long value) {
+        assert counter != null : "Violation of: counter is not null";
+
+        this.counters.merge(counter, value, Long::sum);
+    }
+
+    /**
+     * Returns the time spent in {@code stage}.
+     *
+     * @param stage
+     *            the stage name
+     * @return the elapsed nanoseconds, 0 if the stage was not timed
+     */
+    public long nanos(String stage) {
+        return this.stages.getOrDefault(stage, 0L);
+    }
+
+    /**
+     * Returns the value of {@code counter}.
+     *
+     * @param counter
+     *            the counter name
+     * @return the value, 0 if nothing was recorded
+     */
+    public long counter(String counter) {
+        return this.counters.getOrDefault(counter, 0L);
+    }
+
+    /**
+     * Returns {@code counter} per second of the {@value #COUNT} stage.
+     *
+     * @param counter
+     *            the counter name
+     * @return the rate, or 0 if the stage was not timed
+     */
+    private double rate(String counter) {
+        long nanos = this.nanos(COUNT);
+        double rate = 0;
+        if (nanos > 0) {
+            rate = this.counter(counter) * NANOS_PER_SECOND / nanos;
+        }
+        return rate;
+    }
+
+    /**
+     * Returns the metrics as lines of text, one per stage, counter and rate.
+     *
+     * @return the summary
+     */
+    public String summary() {
+        StringBuilder summary = new StringBuilder();
+        String newline = System.lineSeparator();
+        for (Map.Entry<String, Long> stage : this.stages.entrySet()) {
+            summary.append(String.format(Locale.ROOT, "%-16s %12.3f ms",
+                    stage.getKey(), stage.getValue() / NANOS_PER_MILLI));
+            summary.append(newline);
+        }
+        for (Map.Entry<String, Long> counter : this.counters.entrySet()) {
+            summary.append(String.format(Locale.ROOT, "%-16s %12d",
+                    counter.getKey(), counter.getValue()));
+            summary.append(newline);
+        }
+        if (this.nanos(COUNT) > 0) {
+            summary.append(String.format(Locale.ROOT, "%-16s %12.0f /s",
+                    "bytes_per_sec", this.rate(INPUT_BYTES)));
+            summary.append(newline);
+            summary.append(String.format(Locale.ROOT, "%-16s %12.0f /s",
+                    "words_per_sec", this.rate(WORDS)));
+            summary.append(newline);
+        }
+        return summary.toString();
+    }
+
+    /**
+     * Returns the metrics as a JSON object with the stage times in
+     * milliseconds, the counters and the throughput rates.
+     *
+     * @return the JSON text
+     */
+    public String toJson() {
+        StringBuilder json = new StringBuilder("{\"stages_ms\":{");
+        String separator = "";
+        for (Map.Entry<String, Long> stage : this.stages.entrySet()) {
+            json.append(separator).append('"').append(stage.getKey())
+                    .append("\":").append(String.format(Locale.ROOT, "%.3f",
+                            stage.getValue() / NANOS_PER_MILLI));
+            separator = ",";
+        }
+        json.append("},\"counters\":{");
+        separator = "";
+        for (Map.Entry<String, Long> counter : this.counters.entrySet()) {
+            json.append(separator).append('"').append(counter.getKey())
+                    .append("\":").append(counter.getValue());
+            separator = ",";
+        }
+        json.append("},\"rates\":{\"bytes_per_sec\":")
+                .append(String.format(Locale.ROOT, "%.0f",
+                        this.rate(INPUT_BYTES)))
+                .append(",\"words_per_sec\":")
+                .append(String.format(Locale.ROOT, "%.0f", this.rate(WORDS)))
+                .append("}}");
+        return json.toString();
+    }
+
+}
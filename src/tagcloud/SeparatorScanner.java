@@ -0,0 +1,64 @@
+package tagcloud;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Classifier finding the ASCII separators of UTF-8 text a block of bytes at
+ * a time, so word boundaries can be found with bit operations on the result
+ * instead of a table lookup and a branch per byte.
+ *
+ * <p>
+ * The implementation, {@code VectorSeparatorScanner}, is built on the
+ * incubating Vector API, so it lives in its own source root ({@code vector/})
+ * that is only compiled, and only works, with
+ * {@code --add-modules jdk.incubator.vector}. It is therefore loaded
+ * reflectively by {@link #vectorized(Tokenizer)}, and only when the
+ * {@code -V} option asks for it; when it is not on the class path or the
+ * module is not available, counters keep scanning byte by byte.
+ * </p>
+ */
+public interface SeparatorScanner {
+
+    /**
+     * Number of bytes classified at once, one per bit of the result.
+     */
+    int BLOCK = Long.SIZE;
+
+    /**
+     * Returns the separators among bytes {@code [from, from + BLOCK)} of
+     * {@code bytes}: bit {@code k} of the result is set iff byte
+     * {@code from + k} is an ASCII separator.
+     *
+     * @param bytes
+     *            the UTF-8 bytes
+     * @param from
+     *            the index of the first byte of the block
+     * @return the separator bits of the block
+     * @requires 0 <= from and from + BLOCK <= limit(bytes)
+     */
+    long separators(ByteBuffer bytes, int from);
+
+    /**
+     * Returns the vectorized scanner for the ASCII separators of
+     * {@code tokenizer}, if the Vector API and the scanner are available.
+     *
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @return the scanner, or {@code null} to scan byte by byte
+     */
+    static SeparatorScanner vectorized(Tokenizer tokenizer) {
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+
+        SeparatorScanner scanner;
+        try {
+            scanner = (SeparatorScanner) Class
+                    .forName("tagcloud.VectorSeparatorScanner")
+                    .getConstructor(Tokenizer.class).newInstance(tokenizer);
+        } catch (ReflectiveOperationException | LinkageError e) {
+            /* Not compiled in, or run without the incubator module */
+            scanner = null;
+        }
+        return scanner;
+    }
+
+}
@@ -0,0 +1,104 @@
+package tagcloud;
+
+import java.util.function.IntPredicate;
+
+/**
+ * Set of separator characters backed by a bit table with one bit for every
+ * {@code char} value; the tokenizer splitting words on a fixed list of
+ * characters, such as {@link TagCloud#SEPARATORS}.
+ *
+ * <p>
+ * Replaces {@code TreeSet<Character>} for separator tests:
+ * {@link #isSeparator} is a shift, a mask and an array load, with no
+ * autoboxing and no tree walk. The whole table is 8 KiB regardless of how
+ * many separators there are.
+ * </p>
+ */
+public final class SeparatorSet implements Tokenizer {
+
+    /**
+     * Number of bits in a {@code long} word of the table, as a shift.
+     */
+    private static final int WORD_SHIFT = 6;
+
+    /**
+     * Mask selecting the bit index within a {@code long} word.
+     */
+    private static final int BIT_MASK = (1 << WORD_SHIFT) - 1;
+
+    /**
+     * One bit per {@code char} value; set iff the character is a separator.
+     */
+    private final long[] bits = new long[(Character.MAX_VALUE
+            + 1) >>> WORD_SHIFT];
+
+    /**
+     * Creates the set of characters in {@code str}.
+     *
+     * @param str
+     *            the separator characters
+     * @ensures entries(this) = entries(str)
+     */
+    public SeparatorSet(String str) {
+        assert str != null : "Violation of: str is not null";
+
+        for (int i = 0; i < str.length(); i++) {
+            this.add(str.charAt(i));
+        }
+    }
+
+    /**
+     * Creates the set of every {@code char} value satisfying
+     * {@code separator}, deciding each one once.
+     *
+     * @param separator
+     *            the test of a separator character
+     * @ensures entries(this) = {c: char | separator.test(c)}
+     */
+    public SeparatorSet(IntPredicate separator) {
+        assert separator != null : "Violation of: separator is not null";
+
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            if (separator.test(c)) {
+                this.add((char) c);
+            }
+        }
+    }
+
+    /**
+     * Adds {@code c} to this set.
+     *
+     * @param c
+     *            the separator character
+     */
+    private void add(char c) {
+        this.bits[c >>> WORD_SHIFT] |= 1L << (c & BIT_MASK);
+    }
+
+    /**
+     * Reports whether {@code c} is a separator.
+     *
+     * @param c
+     *            the character to test
+     * @return true iff {@code c} is in this set
+     */
+    @Override
+    public boolean isSeparator(char c) {
+        return (this.bits[c >>> WORD_SHIFT] & (1L << (c & BIT_MASK))) != 0;
+    }
+
+    /**
+     * Returns a fingerprint of the characters in this set.
+     *
+     * @return the fingerprint
+     */
+    @Override
+    public long fingerprint() {
+        long fingerprint = 0;
+        for (long word : this.bits) {
+            fingerprint = SpanHash.rehash(fingerprint, word);
+        }
+        return fingerprint;
+    }
+
+}
@@ -0,0 +1,71 @@
+package tagcloud;
+
+/**
+ * 64-bit hash of a word given as a span of a {@code char[]}, for the
+ * structures that key on spans without building a {@code String}.
+ */
+public final class SpanHash {
+
+    /**
+     * Odd multiplier of the hash (golden ratio).
+     */
+    private static final long MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    /**
+     * Shift of the finalizing mix.
+     */
+    private static final int MIX_SHIFT = 31;
+
+    /**
+     * No-argument constructor.
+     */
+    private SpanHash() {
+    }
+
+    /**
+     * Hashes {@code text[offset, offset + length)} to 64 bits; both halves of
+     * the result depend on every character and on the length.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character
+     * @param length
+     *            the number of characters
+     * @return the hash
+     * @requires 0 <= offset and 0 <= length and offset + length <= |text|
+     */
+    public static long hash(char[] text, int offset, int length) {
+        long h = length;
+        for (int i = offset; i < offset + length; i++) {
+            h = (h + text[i]) * MULTIPLIER;
+        }
+        return mix(h);
+    }
+
+    /**
+     * Remixes {@code hash} with {@code seed}, giving a new hash that is
+     * independent of the original for each seed.
+     *
+     * @param hash
+     *            the hash
+     * @param seed
+     *            the seed
+     * @return the remixed hash
+     */
+    public static long rehash(long hash, long seed) {
+        return mix((hash + seed) * MULTIPLIER);
+    }
+
+    /**
+     * Folds the high bits of {@code h} into the low ones.
+     *
+     * @param h
+     *            the value to mix
+     * @return the mixed value
+     */
+    private static long mix(long h) {
+        return h ^ (h >>> MIX_SHIFT);
+    }
+
+}
@@ -0,0 +1,445 @@
+package tagcloud;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/**
+ * Exact word counts within a memory budget, for vocabularies larger than the
+ * heap.
+ *
+ * <p>
+ * Words are counted in an in-memory {@link WordCounts} table whose size is
+ * estimated as words are added. Whenever the estimate passes the budget the
+ * table is written to a temporary file as a run sorted by word, and counting
+ * starts over with an empty table. At the end the runs are merged k ways,
+ * adding up the counts of each word across runs, and every word with its
+ * total is streamed into a {@link TopWords}; only one word per run is in
+ * memory during the merge. When there are more runs than can be open at
+ * once, the oldest are first merged into longer runs. Without any spill the
+ * table is selected from directly.
+ * </p>
+ *
+ * <p>
+ * A run is a sequence of (int UTF-8 length, UTF-8 bytes, long count)
+ * records in increasing {@code String} order of the words, ended by a length
+ * of -1.
+ * </p>
+ */
+public final class SpillingWordCounts implements TokenSink, Closeable {
+
+    /**
+     * Estimated bytes used by one word in the table besides its characters:
+     * about three slots of start, length, hash and count, the table being
+     * between a quarter and half full.
+     */
+    private static final int WORD_OVERHEAD = 60;
+
+    /**
+     * Marks the end of a run.
+     */
+    private static final int END_OF_RUN = -1;
+
+    /**
+     * Largest number of runs merged, and so open, at once.
+     */
+    private static final int MAX_FAN_IN = 64;
+
+    /**
+     * Memory budget of the table in bytes.
+     */
+    private final long budget;
+
+    /**
+     * Directory the runs are written to.
+     */
+    private final Path directory;
+
+    /**
+     * Run files not yet deleted.
+     */
+    private final List<Path> runs = new ArrayList<>();
+
+    /**
+     * Number of runs spilled.
+     */
+    private int spills;
+
+    /**
+     * Number of words counted.
+     */
+    private long total;
+
+    /**
+     * Table of the words counted since the last spill.
+     */
+    private WordCounts table = new WordCounts();
+
+    /**
+     * Buffer for the UTF-8 bytes of a word being spilled.
+     */
+    private byte[] bytes = new byte[0];
+
+    /**
+     * Estimated size of {@code table} in bytes.
+     */
+    private long used;
+
+    /**
+     * One run being merged, positioned at its current word.
+     */
+    private static final class Run implements Comparable<Run> {
+
+        /**
+         * The run file.
+         */
+        private final DataInputStream in;
+
+        /**
+         * Buffer for the UTF-8 bytes of a word.
+         */
+        private byte[] bytes = new byte[0];
+
+        /**
+         * Current word, or {@code null} at the end of the run.
+         */
+        private String word;
+
+        /**
+         * Count of the current word.
+         */
+        private long count;
+
+        /**
+         * Opens {@code file} and reads its first word.
+         *
+         * @param file
+         *            the run file
+         * @throws IOException
+         *             if the run cannot be read
+         */
+        Run(Path file) throws IOException {
+            this.in = new DataInputStream(
+                    new BufferedInputStream(Files.newInputStream(file)));
+            this.advance();
+        }
+
+        /**
+         * Moves to the next word of the run.
+         *
+         * @throws IOException
+         *             if the run cannot be read or is truncated
+         */
+        void advance() throws IOException {
+            int length = this.in.readInt();
+            if (length == END_OF_RUN) {
+                this.word = null;
+            } else {
+                if (length < 0) {
+                    throw new EOFException("Corrupt run");
+                }
+                if (this.bytes.length < length) {
+                    this.bytes = new byte[length];
+                }
+                this.in.readFully(this.bytes, 0, length);
+                this.word = new String(this.bytes, 0, length,
+                        StandardCharsets.UTF_8);
+                this.count = this.in.readLong();
+            }
+        }
+
+        /**
+         * Orders runs by their current words.
+         *
+         * @param other
+         *            the run to compare with
+         * @return the comparison of the current words
+         */
+        @Override
+        public int compareTo(Run other) {
+            return this.word.compareTo(other.word);
+        }
+    }
+
+    /**
+     * Creates an empty table that spills to {@code directory} whenever it is
+     * estimated to use more than {@code budget} bytes.
+     *
+     * @param budget
+     *            the memory budget in bytes
+     * @param directory
+     *            the existing directory to write runs to
+     * @requires budget > 0
+     */
+    public SpillingWordCounts(long budget, Path directory) {
+        assert budget > 0 : "Violation of: budget > 0";
+        assert directory != null : "Violation of: directory is not null";
+
+        this.budget = budget;
+        this.directory = directory;
+    }
+
+    /**
+     * Counts the word, spilling the table to a run first if it has grown past
+     * the budget.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @throws UncheckedIOException
+     *             if a run cannot be written
+     * @requires 0 <= offset and 0 < length and offset + length <= |text|
+     */
+    @Override
+    public void accept(char[] text, int offset, int length) {
+        int before = this.table.size();
+        this.table.increment(text, offset, length);
+        this.total++;
+        if (this.table.size() != before) {
+            this.used += WORD_OVERHEAD + 2L * length;
+            if (this.used > this.budget) {
+                try {
+                    this.spill();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Writes the table to a new run in word order and empties it.
+     *
+     * @throws IOException
+     *             if the run cannot be written
+     */
+    private void spill() throws IOException {
+        WordCounts counts = this.table;
+        Integer[] order = new Integer[counts.size()];
+        int n = 0;
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            if (counts.keyLength(slot) != 0) {
+                order[n] = slot;
+                n++;
+            }
+        }
+        Arrays.sort(order, counts::compareKeys);
+
+        /* Encodes each word straight from the arena */
+        WordArena arena = counts.arena();
+        try (DataOutputStream out = this.newRun()) {
+            for (Integer slot : order) {
+                int start = counts.keyStart(slot);
+                int length = counts.keyLength(slot);
+                int size = arena.utf8Length(start, length);
+                if (this.bytes.length < size) {
+                    this.bytes = new byte[size];
+                }
+                arena.encode(start, length, this.bytes, 0);
+                out.writeInt(size);
+                out.write(this.bytes, 0, size);
+                out.writeLong(counts.countAt(slot));
+            }
+            out.writeInt(END_OF_RUN);
+        }
+        this.spills++;
+        this.table = new WordCounts();
+        this.used = 0;
+    }
+
+    /**
+     * Creates a new, empty run file, adds it to the runs and opens it.
+     *
+     * @return the stream writing the run
+     * @throws IOException
+     *             if the run cannot be created
+     */
+    private DataOutputStream newRun() throws IOException {
+        Path run = Files.createTempFile(this.directory, "run", ".tmp");
+        this.runs.add(run);
+        return new DataOutputStream(
+                new BufferedOutputStream(Files.newOutputStream(run)));
+    }
+
+    /**
+     * Writes one record of a run.
+     *
+     * @param out
+     *            the run
+     * @param word
+     *            the word
+     * @param count
+     *            the count of the word
+     * @throws IOException
+     *             if the run cannot be written
+     */
+    private static void write(DataOutputStream out, String word, long count)
+            throws IOException {
+        byte[] bytes = word.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+        out.writeLong(count);
+    }
+
+    /**
+     * Returns the number of runs spilled so far.
+     *
+     * @return the number of spills
+     */
+    public int spills() {
+        return this.spills;
+    }
+
+    /**
+     * Returns the number of words counted.
+     *
+     * @return the total count
+     */
+    public long total() {
+        return this.total;
+    }
+
+    /**
+     * Offers every counted word with its total count to {@code top} and
+     * returns the number of distinct words. If anything was spilled, the
+     * rest of the table is spilled too and all runs are merged, then
+     * deleted.
+     *
+     * @param top
+     *            the selection receiving the words
+     * @return the number of distinct words counted
+     * @throws IOException
+     *             if a run cannot be written or read
+     * @updates top
+     */
+    public long select(TopWords top) throws IOException {
+        assert top != null : "Violation of: top is not null";
+
+        long distinct = 0;
+        if (this.runs.isEmpty()) {
+            WordCounts counts = this.table;
+            for (int slot = 0; slot < counts.capacity(); slot++) {
+                if (counts.keyLength(slot) != 0
+                        && top.accepts(counts.countAt(slot))) {
+                    top.offer(counts.keyAt(slot), counts.countAt(slot));
+                }
+            }
+            distinct = counts.size();
+        } else {
+            if (this.table.size() > 0) {
+                this.spill();
+            }
+            while (this.runs.size() > MAX_FAN_IN) {
+                /* Merges the oldest runs into one at the end of the list */
+                List<Path> oldest = new ArrayList<>(
+                        this.runs.subList(0, MAX_FAN_IN));
+                this.runs.subList(0, MAX_FAN_IN).clear();
+                try (DataOutputStream out = this.newRun()) {
+                    merge(oldest, out, null);
+                    out.writeInt(END_OF_RUN);
+                }
+                for (Path run : oldest) {
+                    Files.delete(run);
+                }
+            }
+            distinct = merge(this.runs, null, top);
+            this.close();
+        }
+        return distinct;
+    }
+
+    /**
+     * Merges {@code files}, writing each word with its total count to
+     * {@code out} if it is not null, and offering it to {@code top}
+     * otherwise.
+     *
+     * @param files
+     *            the runs to merge
+     * @param out
+     *            the run receiving the merged records, or null
+     * @param top
+     *            the selection receiving the words, or null
+     * @return the number of distinct words
+     * @throws IOException
+     *             if a run cannot be read or written
+     * @updates out, top
+     * @requires out = null xor top = null
+     */
+    private static long merge(List<Path> files, DataOutputStream out,
+            TopWords top) throws IOException {
+        assert (out == null) != (top == null) : "Violation of: "
+                + "out = null xor top = null";
+
+        PriorityQueue<Run> queue = new PriorityQueue<>(files.size());
+        List<Run> open = new ArrayList<>(files.size());
+        long distinct = 0;
+        try {
+            for (Path file : files) {
+                Run run = new Run(file);
+                open.add(run);
+                if (run.word != null) {
+                    queue.add(run);
+                }
+            }
+            while (!queue.isEmpty()) {
+                /* Adds up the current word across every run that has it */
+                Run first = queue.poll();
+                String word = first.word;
+                long count = first.count;
+                first.advance();
+                if (first.word != null) {
+                    queue.add(first);
+                }
+                while (!queue.isEmpty() && queue.peek().word.equals(word)) {
+                    Run run = queue.poll();
+                    count += run.count;
+                    run.advance();
+                    if (run.word != null) {
+                        queue.add(run);
+                    }
+                }
+                distinct++;
+                if (out != null) {
+                    write(out, word, count);
+                } else if (top.accepts(count)) {
+                    top.offer(word, count);
+                }
+            }
+        } finally {
+            for (Run run : open) {
+                run.in.close();
+            }
+        }
+        return distinct;
+    }
+
+    /**
+     * Deletes any runs written.
+     *
+     * @throws IOException
+     *             if a run cannot be deleted
+     */
+    @Override
+    public void close() throws IOException {
+        for (Path run : this.runs) {
+            Files.deleteIfExists(run);
+        }
+        this.runs.clear();
+    }
+
+}
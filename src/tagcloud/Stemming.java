@@ -0,0 +1,53 @@
+package tagcloud;
+
+/**
+ * How words are reduced to a common stem before they are counted, so "bee"
+ * and "bees" make one entry of the cloud.
+ *
+ * <p>
+ * Stemming runs after case folding and after stop words are left out, so
+ * stop word lists name words as written. It only applies to words of
+ * lowercase ASCII letters; see {@link StemmingSink}.
+ * </p>
+ */
+public enum Stemming implements TokenFilter {
+
+    /**
+     * Words are counted as found.
+     */
+    NONE,
+
+    /**
+     * English words are reduced by the {@link PorterStemmer}.
+     */
+    PORTER;
+
+    /**
+     * Returns a sink passing the stem of every word on to {@code next}.
+     *
+     * @param next
+     *            the sink receiving the stems
+     * @return the stemming sink, or {@code next} itself for {@link #NONE}
+     */
+    @Override
+    public TokenSink filter(TokenSink next) {
+        assert next != null : "Violation of: next is not null";
+
+        TokenSink sink = next;
+        if (this == PORTER) {
+            sink = new StemmingSink(next);
+        }
+        return sink;
+    }
+
+    /**
+     * Returns a fingerprint of this stemming.
+     *
+     * @return the fingerprint
+     */
+    @Override
+    public long fingerprint() {
+        return SpanHash.rehash(this.ordinal(), this.ordinal());
+    }
+
+}
@@ -0,0 +1,165 @@
+package tagcloud;
+
+import java.util.Arrays;
+
+/**
+ * Sink replacing every word by its {@link PorterStemmer} stem before passing
+ * it on to another sink, so the inflected forms of a word are counted as one.
+ *
+ * <p>
+ * Only words made entirely of lowercase ASCII letters are stemmed; others,
+ * such as numbers, words with capitals when case is not folded and words in
+ * other scripts, pass through unchanged. The word is copied into a scratch
+ * buffer and stemmed there, since the span belongs to the scanner.
+ * </p>
+ *
+ * <p>
+ * Text repeats a small vocabulary over and over, so stems are remembered in
+ * a direct-mapped cache: each short word has one slot, chosen by its hash,
+ * holding the last word that landed there and its stem. A hit costs one
+ * comparison of the word with the slot's, and a miss stems the word and
+ * replaces the slot. Every key and stem lives in two flat {@code char}
+ * arrays, so the cache allocates nothing once created.
+ * </p>
+ */
+public final class StemmingSink implements TokenSink {
+
+    /**
+     * Number of slots of the cache, a power of two.
+     */
+    private static final int SLOTS = 1 << 12;
+
+    /**
+     * Length of the longest word cached; longer words are stemmed each time.
+     */
+    private static final int MAX_CACHED = 16;
+
+    /**
+     * Multiplier of the slot hash.
+     */
+    private static final int BASE = 31;
+
+    /**
+     * Sink receiving the stems.
+     */
+    private final TokenSink next;
+
+    /**
+     * Stemmer used for cache misses.
+     */
+    private final PorterStemmer stemmer = new PorterStemmer();
+
+    /**
+     * Word being stemmed.
+     */
+    private char[] scratch = new char[MAX_CACHED];
+
+    /**
+     * Word of each slot, in {@code keys[slot * MAX_CACHED, ...)}.
+     */
+    private final char[] keys = new char[SLOTS * MAX_CACHED];
+
+    /**
+     * Length of the word of each slot, 0 for an empty slot.
+     */
+    private final int[] keyLengths = new int[SLOTS];
+
+    /**
+     * Stem of each slot's word, parallel to {@code keys}.
+     */
+    private final char[] stems = new char[SLOTS * MAX_CACHED];
+
+    /**
+     * Length of the stem of each slot's word.
+     */
+    private final int[] stemLengths = new int[SLOTS];
+
+    /**
+     * Creates a sink passing the stem of every word to {@code next}.
+     *
+     * @param next
+     *            the sink receiving the stems
+     */
+    public StemmingSink(TokenSink next) {
+        assert next != null : "Violation of: next is not null";
+
+        this.next = next;
+    }
+
+    /**
+     * Stems the word {@code text[offset, offset + length)} into
+     * {@code scratch}.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @return the number of characters of the stem, in {@code scratch[0, ...)}
+     * @requires <pre>
+     * 0 <= offset and 0 < length and offset + length <= |text|  and
+     * every character of the word is in a-z
+     * </pre>
+     */
+    private int stem(char[] text, int offset, int length) {
+        if (length > this.scratch.length) {
+            this.scratch = Arrays.copyOf(this.scratch,
+                    Math.max(length, 2 * this.scratch.length));
+        }
+        System.arraycopy(text, offset, this.scratch, 0, length);
+        return this.stemmer.stem(this.scratch, length);
+    }
+
+    /**
+     * Passes the stem of the word {@code text[offset, offset + length)} on,
+     * or the word itself if it is not made of lowercase ASCII letters.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @requires 0 <= offset and 0 < length and offset + length <= |text|
+     */
+    @Override
+    public void accept(char[] text, int offset, int length) {
+        /* Checks the letters and hashes them in one pass */
+        boolean letters = true;
+        int hash = 0;
+        for (int i = offset; i < offset + length && letters; i++) {
+            char c = text[i];
+            letters = PorterStemmer.isLetter(c);
+            hash = BASE * hash + c;
+        }
+        if (!letters) {
+            this.next.accept(text, offset, length);
+        } else if (length > MAX_CACHED) {
+            int stem = this.stem(text, offset, length);
+            this.next.accept(this.scratch, 0, stem);
+        } else {
+            int slot = (hash ^ hash >>> Short.SIZE) & (SLOTS - 1);
+            int start = slot * MAX_CACHED;
+            if (this.keyLengths[slot] != length
+                    || !Arrays.equals(this.keys, start, start + length, text,
+                            offset, offset + length)) {
+                int stem = this.stem(text, offset, length);
+                System.arraycopy(text, offset, this.keys, start, length);
+                System.arraycopy(this.scratch, 0, this.stems, start, stem);
+                this.keyLengths[slot] = length;
+                this.stemLengths[slot] = stem;
+            }
+            this.next.accept(this.stems, start, this.stemLengths[slot]);
+        }
+    }
+
+    /**
+     * Marks the end of a text for the next sink.
+     */
+    @Override
+    public void endText() {
+        this.next.endText();
+    }
+
+}
@@ -0,0 +1,401 @@
+package tagcloud;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Immutable set of words to leave out of the counts, compiled into a minimal
+ * perfect hash.
+ *
+ * <p>
+ * The table is built with hash-and-displace: words are grouped into small
+ * buckets by one hash, and each bucket, largest first, is given the first
+ * displacement that sends all of its words to free slots under a second hash.
+ * A lookup is then one hash of the span, one displacement load and a single
+ * comparison against the one candidate word, with no probing. Spans whose
+ * length is outside that of every stop word are rejected before hashing.
+ * All words live in one {@code char[]}, so the table is a handful of arrays.
+ * </p>
+ */
+public final class StopWords implements TokenFilter {
+
+    /**
+     * The empty set: filters nothing.
+     */
+    public static final StopWords NONE = new StopWords(new ArrayList<>());
+
+    /**
+     * Average number of words per bucket.
+     */
+    private static final int BUCKET_SIZE = 4;
+
+    /**
+     * Displacements tried per bucket before the table is grown.
+     */
+    private static final int MAX_DISPLACEMENT = 1 << 16;
+
+    /**
+     * Fraction of the slots added when the words do not fit, as a shift.
+     */
+    private static final int GROWTH_SHIFT = 4;
+
+    /**
+     * Start of the comment lines in a stop word file.
+     */
+    private static final String COMMENT = "#";
+
+    /**
+     * Displacement of each bucket.
+     */
+    private final int[] displacements;
+
+    /**
+     * Start of each slot's word in {@code chars}.
+     */
+    private final int[] starts;
+
+    /**
+     * Length of each slot's word, -1 for an empty slot.
+     */
+    private final int[] lengths;
+
+    /**
+     * Characters of all words, concatenated.
+     */
+    private final char[] chars;
+
+    /**
+     * Number of words.
+     */
+    private final int size;
+
+    /**
+     * Length of the shortest word.
+     */
+    private final int minLength;
+
+    /**
+     * Length of the longest word.
+     */
+    private final int maxLength;
+
+    /**
+     * Compiles the table of {@code words}.
+     *
+     * @param words
+     *            the distinct, non-empty words
+     * @throws IllegalArgumentException
+     *             if two of the words have the same hash
+     */
+    private StopWords(List<String> words) {
+        this.size = words.size();
+        int min = Integer.MAX_VALUE;
+        int max = 0;
+        long[] hashes = new long[words.size()];
+        for (int i = 0; i < hashes.length; i++) {
+            String word = words.get(i);
+            min = Math.min(min, word.length());
+            max = Math.max(max, word.length());
+            hashes[i] = SpanHash.hash(word.toCharArray(), 0, word.length());
+        }
+        this.minLength = min;
+        this.maxLength = max;
+        long[] sorted = hashes.clone();
+        Arrays.sort(sorted);
+        for (int i = 1; i < sorted.length; i++) {
+            if (sorted[i] == sorted[i - 1]) {
+                /* No displacement can separate them */
+                throw new IllegalArgumentException(
+                        "Stop words with colliding hashes");
+            }
+        }
+
+        int buckets = Math.max(1, words.size() / BUCKET_SIZE);
+        this.displacements = new int[buckets];
+        int[] slotOf = place(hashes, buckets, Math.max(1, words.size()),
+                this.displacements);
+
+        /* Lays the words out by slot */
+        int slots = slotOf[words.size()];
+        this.starts = new int[slots];
+        this.lengths = new int[slots];
+        Arrays.fill(this.lengths, -1);
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < words.size(); i++) {
+            this.starts[slotOf[i]] = all.length();
+            this.lengths[slotOf[i]] = words.get(i).length();
+            all.append(words.get(i));
+        }
+        this.chars = all.toString().toCharArray();
+    }
+
+    /**
+     * Returns the set of the words in {@code file}, one or more per line,
+     * split and folded exactly as the counted text is. Empty lines and lines
+     * starting with "#" are ignored.
+     *
+     * @param file
+     *            the UTF-8 stop word file
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @return the stop words
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    public static StopWords read(Path file, Tokenizer tokenizer,
+            CaseFolding folding) throws IOException {
+        assert file != null : "Violation of: file is not null";
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+
+        Set<String> words = new LinkedHashSet<>();
+        WordScanner scanner = new WordScanner(tokenizer, folding);
+        try (BufferedReader in = Files.newBufferedReader(file,
+                StandardCharsets.UTF_8)) {
+            String line = in.readLine();
+            while (line != null) {
+                if (!line.startsWith(COMMENT)) {
+                    char[] text = line.toCharArray();
+                    scanner.reset(text, 0, text.length);
+                    while (scanner.next()) {
+                        words.add(new String(text, scanner.start(),
+                                scanner.length()));
+                    }
+                }
+                line = in.readLine();
+            }
+        }
+        return new StopWords(new ArrayList<>(words));
+    }
+
+    /**
+     * Returns the slot of a word with hash {@code hash} under displacement
+     * {@code displacement}.
+     *
+     * @param hash
+     *            the hash of the word
+     * @param displacement
+     *            the displacement of the word's bucket
+     * @param slots
+     *            the number of slots
+     * @return the slot, in {@code [0, slots)}
+     */
+    private static int slot(long hash, int displacement, int slots) {
+        return Math.floorMod(SpanHash.rehash(hash, displacement), slots);
+    }
+
+    /**
+     * Returns the bucket of a word with hash {@code hash}.
+     *
+     * @param hash
+     *            the hash of the word
+     * @param buckets
+     *            the number of buckets
+     * @return the bucket, in {@code [0, buckets)}
+     */
+    private static int bucket(long hash, int buckets) {
+        return Math.floorMod(hash >>> Integer.SIZE, buckets);
+    }
+
+    /**
+     * Finds a displacement for every bucket such that all words land in
+     * distinct slots, starting with one slot per word and adding slots only
+     * if that fails.
+     *
+     * <p>
+     * For the small sets stop word lists make this ends with one slot per
+     * word; much larger sets may need a few more.
+     * </p>
+     *
+     * @param hashes
+     *            the hashes of the words
+     * @param buckets
+     *            the number of buckets
+     * @param initialSlots
+     *            the number of slots to try first
+     * @param displacements
+     *            receives the displacement of each bucket
+     * @return the slot of each word, followed by the number of slots used
+     * @updates displacements
+     */
+    private static int[] place(long[] hashes, int buckets, int initialSlots,
+            int[] displacements) {
+        /* Groups the words by bucket, largest buckets first */
+        List<List<Integer>> members = new ArrayList<>(buckets);
+        for (int b = 0; b < buckets; b++) {
+            members.add(new ArrayList<>());
+        }
+        for (int i = 0; i < hashes.length; i++) {
+            members.get(bucket(hashes[i], buckets)).add(i);
+        }
+        Integer[] order = new Integer[buckets];
+        for (int b = 0; b < buckets; b++) {
+            order[b] = b;
+        }
+        Arrays.sort(order,
+                (a, b) -> members.get(b).size() - members.get(a).size());
+
+        int slots = initialSlots;
+        int[] slotOf = new int[hashes.length + 1];
+        boolean placed = false;
+        while (!placed) {
+            boolean[] taken = new boolean[slots];
+            placed = true;
+            for (int k = 0; k < buckets && placed; k++) {
+                List<Integer> bucket = members.get(order[k]);
+                int d = 0;
+                while (d < MAX_DISPLACEMENT
+                        && !fits(bucket, hashes, d, taken, slotOf)) {
+                    d++;
+                }
+                if (d == MAX_DISPLACEMENT) {
+                    placed = false;
+                } else {
+                    displacements[order[k]] = d;
+                    for (int word : bucket) {
+                        taken[slotOf[word]] = true;
+                    }
+                }
+            }
+            if (!placed) {
+                slots += (slots >>> GROWTH_SHIFT) + 1;
+            }
+        }
+        slotOf[hashes.length] = slots;
+        return slotOf;
+    }
+
+    /**
+     * Reports whether every word of {@code bucket} lands in a free slot, each
+     * a different one, under displacement {@code d}, recording the slots.
+     *
+     * @param bucket
+     *            the words of the bucket
+     * @param hashes
+     *            the hashes of all words
+     * @param d
+     *            the displacement to try
+     * @param taken
+     *            the slots already used by other buckets
+     * @param slotOf
+     *            receives the slot of each word of the bucket
+     * @return true iff the bucket fits with displacement {@code d}
+     * @updates slotOf
+     */
+    private static boolean fits(List<Integer> bucket, long[] hashes, int d,
+            boolean[] taken, int[] slotOf) {
+        boolean fits = true;
+        for (int k = 0; k < bucket.size() && fits; k++) {
+            int word = bucket.get(k);
+            int slot = slot(hashes[word], d, taken.length);
+            slotOf[word] = slot;
+            fits = !taken[slot];
+            for (int j = 0; j < k && fits; j++) {
+                fits = slotOf[bucket.get(j)] != slot;
+            }
+        }
+        return fits;
+    }
+
+    /**
+     * Reports whether the word {@code text[offset, offset + length)} is a stop
+     * word.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @return true iff the word is in this set
+     * @requires 0 <= offset and 0 <= length and offset + length <= |text|
+     */
+    public boolean contains(char[] text, int offset, int length) {
+        boolean found = false;
+        if (length >= this.minLength && length <= this.maxLength) {
+            long hash = SpanHash.hash(text, offset, length);
+            int slot = slot(hash,
+                    this.displacements[bucket(hash,
+                            this.displacements.length)],
+                    this.lengths.length);
+            if (this.lengths[slot] == length) {
+                found = Arrays.equals(this.chars, this.starts[slot],
+                        this.starts[slot] + length, text, offset,
+                        offset + length);
+            }
+        }
+        return found;
+    }
+
+    /**
+     * Reports whether {@code word} is a stop word.
+     *
+     * @param word
+     *            the word
+     * @return true iff {@code word} is in this set
+     */
+    public boolean contains(String word) {
+        return this.contains(word.toCharArray(), 0, word.length());
+    }
+
+    /**
+     * Returns the number of stop words.
+     *
+     * @return the size of this set
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns a fingerprint of this set, equal for sets with the same words.
+     *
+     * @return the fingerprint
+     */
+    @Override
+    public long fingerprint() {
+        long fingerprint = this.size;
+        for (int slot = 0; slot < this.lengths.length; slot++) {
+            if (this.lengths[slot] >= 0) {
+                /* Order independent: the layout depends on insertion order */
+                fingerprint += SpanHash.hash(this.chars, this.starts[slot],
+                        this.lengths[slot]);
+            }
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Returns a sink passing every word that is not a stop word on to
+     * {@code next}; stop words are dropped before they reach it.
+     *
+     * @param next
+     *            the sink receiving the other words
+     * @return the filtering sink, or {@code next} itself if this set is empty
+     */
+    @Override
+    public TokenSink filter(TokenSink next) {
+        assert next != null : "Violation of: next is not null";
+
+        TokenSink sink = next;
+        if (this.size > 0) {
+            sink = (text, offset, length) -> {
+                if (!this.contains(text, offset, length)) {
+                    next.accept(text, offset, length);
+                }
+            };
+        }
+        return sink;
+    }
+
+}
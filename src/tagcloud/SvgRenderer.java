@@ -0,0 +1,252 @@
+package tagcloud;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.Map.Entry;
+
+/**
+ * Renders a tag cloud as a self-contained SVG image, in UTF-8, through a
+ * {@link ChannelOutput}: unlike the HTML page it needs no style sheet, as
+ * each word carries its own font size.
+ *
+ * <p>
+ * Words are laid out left to right in the order given, wrapping to a new line
+ * when the next word would pass the right edge; each line is as tall as its
+ * largest word. The font size of a word is its {@link FontScale} class in
+ * pixels, and its width is estimated from its length, as the fonts of the
+ * viewer are not known. The layout is computed in a first pass, into arrays
+ * of positions, because the image height must be written before the words;
+ * the words are then written straight into the output buffer. Hovering over
+ * a word shows its count.
+ * </p>
+ */
+public final class SvgRenderer implements CloudRenderer {
+
+    /**
+     * Width of the image in pixels.
+     */
+    private static final int WIDTH = 800;
+
+    /**
+     * Space around the cloud in pixels.
+     */
+    private static final int MARGIN = 10;
+
+    /**
+     * Estimated width of a character, in percent of the font size.
+     */
+    private static final int CHAR_WIDTH = 60;
+
+    /**
+     * Space after a word, in percent of its font size.
+     */
+    private static final int GAP = 30;
+
+    /**
+     * Distance between the tops of two lines, in percent of the font size of
+     * the upper line's largest word.
+     */
+    private static final int LINE_HEIGHT = 125;
+
+    /**
+     * Denominator of the percentages.
+     */
+    private static final int PERCENT = 100;
+
+    /**
+     * Start of the image up to its height.
+     */
+    private static final byte[] SVG = ChannelOutput.bytes(
+            "<?xml version=\"1.0\" encoding=\"UTF-8\"?>"
+                    + System.lineSeparator()
+                    + "<svg xmlns=\"http://www.w3.org/2000/svg\" width=\""
+                    + WIDTH + "\" height=\"");
+
+    /**
+     * Text between the height and the height of the view box.
+     */
+    private static final byte[] VIEW_BOX = ChannelOutput
+            .bytes("\" viewBox=\"0 0 " + WIDTH + " ");
+
+    /**
+     * End of the opening tag and start of the title, up to the number of
+     * words.
+     */
+    private static final byte[] TITLE = ChannelOutput
+            .bytes("\" font-family=\"sans-serif\">" + System.lineSeparator()
+                    + "<title>Top ");
+
+    /**
+     * Text between the number of words and the input name.
+     */
+    private static final byte[] WORDS_IN = ChannelOutput.bytes(" words in ");
+
+    /**
+     * End of the title.
+     */
+    private static final byte[] TITLE_END = ChannelOutput.bytes("</title>"
+            + System.lineSeparator());
+
+    /**
+     * Start of a word up to its x coordinate.
+     */
+    private static final byte[] TEXT_X = ChannelOutput.bytes("<text x=\"");
+
+    /**
+     * Text between a word's x and y coordinates.
+     */
+    private static final byte[] TEXT_Y = ChannelOutput.bytes("\" y=\"");
+
+    /**
+     * Text between a word's y coordinate and its font size.
+     */
+    private static final byte[] FONT_SIZE = ChannelOutput
+            .bytes("\" font-size=\"");
+
+    /**
+     * Text between a word's font size and its count.
+     */
+    private static final byte[] COUNT = ChannelOutput
+            .bytes("\"><title>count: ");
+
+    /**
+     * Text between a word's count and the word.
+     */
+    private static final byte[] WORD = ChannelOutput.bytes("</title>");
+
+    /**
+     * End of a word.
+     */
+    private static final byte[] TEXT_END = ChannelOutput.bytes("</text>"
+            + System.lineSeparator());
+
+    /**
+     * End of the image.
+     */
+    private static final byte[] END = ChannelOutput.bytes("</svg>"
+            + System.lineSeparator());
+
+    /**
+     * Output written to.
+     */
+    private final ChannelOutput out;
+
+    /**
+     * Creates a renderer writing to {@code out}.
+     *
+     * @param out
+     *            the output to write to
+     */
+    public SvgRenderer(ChannelOutput out) {
+        assert out != null : "Violation of: out is not null";
+        this.out = out;
+    }
+
+    /**
+     * Sets the baseline of words {@code [from, to)}, which make one line
+     * starting at {@code top}.
+     *
+     * @param ys
+     *            the baseline of each word
+     * @param from
+     *            the index of the first word of the line
+     * @param to
+     *            the end (exclusive) of the words of the line
+     * @param top
+     *            the top of the line
+     * @param size
+     *            the font size of the largest word of the line
+     * @return the top of the next line
+     * @updates ys
+     */
+    private static int placeLine(int[] ys, int from, int to, int top,
+            int size) {
+        for (int k = from; k < to; k++) {
+            ys[k] = top + size;
+        }
+        return top + size * LINE_HEIGHT / PERCENT;
+    }
+
+    /**
+     * Lays out the words whose font sizes are {@code sizes} and lengths
+     * {@code lengths}, recording where each one goes.
+     *
+     * @param sizes
+     *            the font size of each word
+     * @param lengths
+     *            the number of characters of each word
+     * @param xs
+     *            receives the left edge of each word
+     * @param ys
+     *            receives the baseline of each word
+     * @return the height of the image
+     * @updates xs, ys
+     * @requires |sizes| = |lengths| = |xs| = |ys|
+     */
+    private static int layout(int[] sizes, int[] lengths, int[] xs,
+            int[] ys) {
+        int x = MARGIN;
+        int top = MARGIN;
+        int lineStart = 0;
+        int lineSize = 0;
+        for (int i = 0; i < sizes.length; i++) {
+            int width = lengths[i] * sizes[i] * CHAR_WIDTH / PERCENT;
+            if (x > MARGIN && x + width > WIDTH - MARGIN) {
+                top = placeLine(ys, lineStart, i, top, lineSize);
+                lineStart = i;
+                lineSize = 0;
+                x = MARGIN;
+            }
+            xs[i] = x;
+            x += width + sizes[i] * GAP / PERCENT;
+            lineSize = Math.max(lineSize, sizes[i]);
+        }
+        top = placeLine(ys, lineStart, sizes.length, top, lineSize);
+        return top + MARGIN;
+    }
+
+    /**
+     * Renders the cloud of {@code words} as an SVG image and flushes it.
+     *
+     * @param words
+     *            the words to render with their counts, in alphabetical order
+     * @param inputName
+     *            the name of the input
+     * @throws IOException
+     *             if writing fails
+     */
+    @Override
+    public void render(List<Entry<String, Long>> words, String inputName)
+            throws IOException {
+        FontScale scale = new FontScale(words);
+        int n = words.size();
+        int[] sizes = new int[n];
+        int[] lengths = new int[n];
+        int i = 0;
+        for (Entry<String, Long> pair : words) {
+            sizes[i] = scale.fontClass(pair.getValue());
+            lengths[i] = pair.getKey().length();
+            i++;
+        }
+        int[] xs = new int[n];
+        int[] ys = new int[n];
+        int height = layout(sizes, lengths, xs, ys);
+
+        this.out.write(SVG).write(height).write(VIEW_BOX).write(height)
+                .write(TITLE).write(n).write(WORDS_IN);
+        this.out.writeEscaped(inputName, HtmlRenderer::escape);
+        this.out.write(TITLE_END);
+        i = 0;
+        for (Entry<String, Long> pair : words) {
+            this.out.write(TEXT_X).write(xs[i]).write(TEXT_Y).write(ys[i])
+                    .write(FONT_SIZE).write(sizes[i]).write(COUNT)
+                    .write(pair.getValue()).write(WORD);
+            this.out.writeEscaped(pair.getKey(), HtmlRenderer::escape);
+            this.out.write(TEXT_END);
+            i++;
+        }
+        this.out.write(END);
+        this.out.flush();
+    }
+
+}
@@ -0,0 +1,1096 @@
+package tagcloud;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.Serializable;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map.Entry;
+import java.util.stream.Stream;
+
+/**
+ * Word counter that prompts user for a text file and outputs an HTML page with
+ * a table of each word and its word count.
+ *
+ * @author Kevin Le 
+ * @author Sean Burns
+ *
+ */
+public final class TagCloud {
+
+    /**
+     * Characters that separate words.
+     */
+    static final String SEPARATORS = "\" \t\n\r,-.!?[]';:/()";
+
+    /**
+     * Heavy-hitter candidates kept per requested word when counting
+     * approximately.
+     */
+    private static final int CANDIDATES_PER_WORD = 10;
+
+    /**
+     * Fewest heavy-hitter candidates kept when counting approximately.
+     */
+    private static final int MIN_CANDIDATES = 1024;
+
+    /**
+     * No-argument constructor.
+     */
+    private TagCloud() {
+
+    }
+
+    /**
+     * Compare {@code String} keys from {@code Entry}s in alphabetical order.
+     */
+    private static class AlphabeticalOrder
+            implements Comparator<Entry<String, Long>>, Serializable {
+
+        /**
+         * Generated.
+         */
+        private static final long serialVersionUID = 5430455171526208089L;
+
+        @Override
+        public int compare(Entry<String, Long> o1,
+                Entry<String, Long> o2) {
+            /*
+             * Return 0 if both keys are the same and both values are the same;
+             * return -1 if o1.key appears first alphabetically OR both keys are
+             * the same and o1.value is less than o2.value; return 1 if o2.key
+             * appears first alphabetically OR both keys are the same and
+             * o2.value is less than o1.value
+             */
+            int result = o1.getKey().compareTo(o2.getKey());
+            if (result == 0) {
+                result = o1.getValue().compareTo(o2.getValue());
+            }
+            return result;
+        }
+    }
+
+    /**
+     * Determines if {@code s} contains any characters that are not digits.
+     *
+     * @param s
+     *            the string to judge
+     * @return true if all characters within {@code s} are digits, false
+     *         otherwise
+     */
+    private static boolean allDigits(String s) {
+        char[] array = s.toCharArray();
+        boolean allDigits = true;
+        for (char c : array) {
+            if (!(c == '0' || c == '1' || c == '2' || c == '3' || c == '4'
+                    || c == '5' || c == '6' || c == '7' || c == '8'
+                    || c == '9')) {
+                allDigits = false;
+            }
+        }
+        if (s.length() == 0) {
+            // I deleted the "or s == null" because there was a warning
+            allDigits = false;
+        }
+        return allDigits;
+    }
+
+    /**
+     * Counts all words in the buffered reader into {@code wordCounts}. If
+     * reading fails, the words read before the failure stay counted.
+     *
+     * @param in
+     *            input file reader
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param wordCounts
+     *            the table the words are counted into
+     * @throws IOException
+     *             if reading from {@code in} fails
+     * @updates wordCounts
+     */
+    private static void countWords(BufferedReader in, Tokenizer tokenizer,
+            CaseFolding folding, TokenFilter filter, WordCounts wordCounts)
+            throws IOException {
+        new ReaderWordCounter(tokenizer, folding, filter.filter(wordCounts))
+                .count(in);
+    }
+
+    /**
+     * Returns a table of all words counted in {@code file}, which is read by
+     * memory-mapping it and scanning its UTF-8 bytes directly. Large files
+     * are split into ranges counted on up to {@code threads} threads.
+     *
+     * @param file
+     *            the input file
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param threads
+     *            the maximum number of threads to count on
+     * @param vector
+     *            the vectorized separator scanner, or {@code null} to scan
+     *            byte by byte
+     * @return table of words with counts
+     * @throws IOException
+     *             if the file cannot be opened or mapped
+     * @requires threads > 0
+     */
+    private static WordCounts countWords(Path file, Tokenizer tokenizer,
+            CaseFolding folding, TokenFilter filter, int threads,
+            SeparatorScanner vector) throws IOException {
+        return ParallelWordCounter.countFile(file, tokenizer, folding,
+                filter, threads, vector);
+    }
+
+    /**
+     * Returns the vectorized separator scanner if {@code -V} was given,
+     * reporting when the Vector API is not available.
+     *
+     * @param options
+     *            the command line options
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @return the scanner, or {@code null} to scan byte by byte
+     */
+    private static SeparatorScanner separatorScanner(TagCloudOptions options,
+            Tokenizer tokenizer) {
+        SeparatorScanner vector = null;
+        if (options.vectorScan()) {
+            vector = SeparatorScanner.vectorized(tokenizer);
+            if (vector == null) {
+                System.err.println("Vector API not available, scanning byte"
+                        + " by byte; run with --add-modules"
+                        + " jdk.incubator.vector");
+            }
+        }
+        return vector;
+    }
+
+    /**
+     * Sorts through the counted words of the input file and prints the
+     * {@code num} words with the highest counts in alphabetical order in the
+     * output file in html format.
+     *
+     * @param wordCounts
+     *            the words of the input file with their counts
+     * @param out
+     *            the output file channel
+     * @param inputName
+     *            the name of the input file
+     * @param num
+     *            the number of words requested
+     * @throws IOException
+     *             if writing to {@code out} fails
+     */
+    static void createBody(WordCounts wordCounts, WritableByteChannel out,
+            String inputName, int num) throws IOException {
+        int localNum = availableWords(num, wordCounts.size());
+        TopWords top = selectTop(wordCounts, localNum);
+        printCloud(sortAlphabetically(top), out, inputName, OutputFormat.HTML);
+
+    }
+
+    /**
+     * Checks if user is asking for more words than are available to print. If
+     * there aren't enough words, prints a message to the console.
+     *
+     * @param num
+     *            the number of words requested
+     * @param available
+     *            the number of distinct words counted
+     * @return the number of words to print
+     */
+    private static int availableWords(int num, int available) {
+        int localNum = num;
+        if (available < localNum) {
+            System.err.println(localNum + " words were requested, but only "
+                    + available + " are available. Printing the " + available
+                    + " words with the highest count.");
+            localNum = available;
+        }
+        return localNum;
+    }
+
+    /**
+     * Selects the {@code num} most frequent words with a bounded heap, so only
+     * the selected words are ever ordered.
+     *
+     * @param wordCounts
+     *            the words with their counts
+     * @param num
+     *            the number of words to select
+     * @return the {@code num} words with the highest counts
+     * @requires 0 <= num
+     */
+    static TopWords selectTop(WordCounts wordCounts, int num) {
+        TopWords top = new TopWords(num);
+        for (int slot = 0; slot < wordCounts.capacity(); slot++) {
+            /* Only words that make the selection are copied out */
+            if (wordCounts.keyLength(slot) != 0
+                    && top.accepts(wordCounts.countAt(slot))) {
+                top.offer(wordCounts.keyAt(slot), wordCounts.countAt(slot));
+            }
+        }
+        return top;
+    }
+
+    /**
+     * Returns the selected words in alphabetical order.
+     *
+     * @param top
+     *            the selected words
+     * @return the selected words with their counts, in alphabetical order
+     */
+    static ArrayList<Entry<String, Long>> sortAlphabetically(TopWords top) {
+        ArrayList<Entry<String, Long>> alphabetical = top.entries();
+        /* Use alphabetical comparator to sort */
+        alphabetical.sort(new AlphabeticalOrder());
+        return alphabetical;
+    }
+
+    /**
+     * Prints the tag cloud of {@code alphabetical} in {@code format}, sizing
+     * each word by its count relative to the others.
+     *
+     * @param alphabetical
+     *            the words to print with their counts, in alphabetical order
+     * @param out
+     *            the channel to write the cloud to
+     * @param inputName
+     *            the name of the input file
+     * @param format
+     *            the format of the cloud
+     * @throws IOException
+     *             if writing to {@code out} fails
+     */
+    static void printCloud(List<Entry<String, Long>> alphabetical,
+            WritableByteChannel out, String inputName, OutputFormat format)
+            throws IOException {
+        format.renderer(new ChannelOutput(out)).render(alphabetical,
+                inputName);
+    }
+
+    /**
+     * Counts one input named on the command line.
+     *
+     * @param input
+     *            the input file name, or "-" for standard input
+     * @param options
+     *            the command line options
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @return table of words with counts
+     * @throws IOException
+     *             if the input cannot be opened or read
+     */
+    private static WordCounts countInput(String input,
+            TagCloudOptions options, TokenFilter filter) throws IOException {
+        WordCounts wordCounts = new WordCounts();
+        if (input.equals("-")) {
+            countWords(
+                    new BufferedReader(new InputStreamReader(System.in,
+                            options.charset())),
+                    options.tokenizer(), options.caseFolding(), filter,
+                    wordCounts);
+            return wordCounts;
+        }
+        Path file = Paths.get(input);
+        if (StandardCharsets.UTF_8.equals(options.charset())) {
+            return countWords(file, options.tokenizer(),
+                    options.caseFolding(), filter, options.threads(),
+                    separatorScanner(options, options.tokenizer()));
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Files.newInputStream(file), options.charset()))) {
+            countWords(reader, options.tokenizer(), options.caseFolding(),
+                    filter, wordCounts);
+        }
+        return wordCounts;
+    }
+
+    /**
+     * Reads the stop word file given on the command line, if any.
+     *
+     * @param options
+     *            the command line options
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @return the stop words, {@link StopWords#NONE} if no file was given, or
+     *         {@code null} if the file could not be read (the error has been
+     *         reported)
+     */
+    private static StopWords readStopWords(TagCloudOptions options,
+            Tokenizer tokenizer) {
+        StopWords stopWords = StopWords.NONE;
+        if (options.stopWords() != null) {
+            try {
+                stopWords = StopWords.read(Paths.get(options.stopWords()),
+                        tokenizer, options.caseFolding());
+            } catch (IOException e) {
+                System.err.println(
+                        "Error reading stop word file " + e.getMessage());
+                stopWords = null;
+            }
+        }
+        return stopWords;
+    }
+
+    /**
+     * Returns the filter words pass through before they are counted: the
+     * stop words are left out, then the other words are stemmed if the
+     * command line asks for it.
+     *
+     * @param options
+     *            the command line options
+     * @param stopWords
+     *            the stop words
+     * @return the filter
+     */
+    private static TokenFilter wordFilter(TagCloudOptions options,
+            StopWords stopWords) {
+        TokenFilter filter = stopWords;
+        if (options.stemming() != Stemming.NONE) {
+            filter = stopWords.then(options.stemming());
+        }
+        return filter;
+    }
+
+    /**
+     * Counts all inputs given on the command line one after the other on
+     * this thread, passing every word that is not a stop word, stemmed if
+     * asked, or every phrase when counting phrases, to {@code counts}. Used
+     * when the counts do not live in per-thread {@link WordCounts} tables,
+     * and for phrases, which would be cut where the inputs are split between
+     * threads.
+     *
+     * @param options
+     *            the command line options
+     * @param counts
+     *            the sink receiving the words
+     * @return true iff every input was counted; otherwise the error has
+     *         been reported
+     */
+    private static boolean countSequentially(TagCloudOptions options,
+            TokenSink counts) {
+        Tokenizer tokenizer = options.tokenizer();
+        StopWords stopWords = readStopWords(options, tokenizer);
+        if (stopWords == null) {
+            return false;
+        }
+        TokenSink sink;
+        if (options.phraseWords() > 1) {
+            sink = new PhraseSink(options.phraseWords(), stopWords, counts);
+        } else {
+            sink = wordFilter(options, stopWords).filter(counts);
+        }
+        MappedWordCounter mapped = new MappedWordCounter(tokenizer,
+                options.caseFolding(), sink,
+                separatorScanner(options, tokenizer));
+        ReaderWordCounter reader = new ReaderWordCounter(tokenizer,
+                options.caseFolding(), sink);
+        boolean utf8 = StandardCharsets.UTF_8.equals(options.charset());
+        try {
+            for (String input : options.inputs()) {
+                if (input.equals("-")) {
+                    reader.count(new BufferedReader(new InputStreamReader(
+                            System.in, options.charset())));
+                    sink.endText();
+                } else {
+                    List<Path> files = new ArrayList<>();
+                    if (CorpusCounter.isCorpus(input)) {
+                        try (Stream<Path> found = CorpusCounter.files(input)) {
+                            found.forEach(files::add);
+                        }
+                    } else {
+                        files.add(Paths.get(input));
+                    }
+                    for (Path file : files) {
+                        if (utf8) {
+                            mapped.countFile(file);
+                        } else {
+                            try (BufferedReader in = new BufferedReader(
+                                    new InputStreamReader(
+                                            Files.newInputStream(file),
+                                            options.charset()))) {
+                                reader.count(in);
+                            }
+                        }
+                        sink.endText();
+                    }
+                }
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading input file " + e.getMessage());
+            return false;
+        } catch (UncheckedIOException e) {
+            System.err.println("Error writing temporary file "
+                    + e.getCause().getMessage());
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Counts all inputs given on the command line exactly, keeping the
+     * table within the memory budget by spilling sorted runs to temporary
+     * files, and selects the requested number of words from the merged
+     * runs.
+     *
+     * @param options
+     *            the command line options
+     * @param metrics
+     *            the metrics receiving the count and select timings
+     * @return the selected words, or {@code null} if counting failed (the
+     *         error has been reported)
+     * @updates metrics
+     */
+    private static TopWords countWithinBudget(TagCloudOptions options,
+            RunMetrics metrics) {
+        TopWords top = null;
+        try {
+            Path directory = Files.createTempDirectory("tagcloud");
+            try (SpillingWordCounts counts = new SpillingWordCounts(
+                    options.memory(), directory)) {
+                long started = metrics.start();
+                boolean counted = countSequentially(options, counts);
+                metrics.stop(RunMetrics.COUNT, started);
+                if (counted) {
+                    started = metrics.start();
+                    top = new TopWords(options.count());
+                    long distinct = counts.select(top);
+                    metrics.stop(RunMetrics.SELECT, started);
+                    metrics.add(RunMetrics.WORDS, counts.total());
+                    metrics.add(RunMetrics.DISTINCT_WORDS, distinct);
+                    availableWords(options.count(),
+                            (int) Math.min(Integer.MAX_VALUE, distinct));
+                }
+            } finally {
+                Files.deleteIfExists(directory);
+            }
+        } catch (IOException e) {
+            System.err.println("Error merging counts " + e.getMessage());
+            top = null;
+        }
+        return top;
+    }
+
+    /**
+     * Counts all inputs given on the command line into one table.
+     *
+     * @param options
+     *            the command line options
+     * @return table of words with counts, or {@code null} if an input could
+     *         not be read (the error has been reported)
+     */
+    private static WordCounts countInputs(TagCloudOptions options) {
+        /*
+         * Standard input is counted on its own. A single file is split into
+         * ranges counted in parallel; several files, directories and globs
+         * are streamed through the corpus worker pool. Phrases are counted
+         * on this thread so that none is cut at a range boundary
+         */
+        if (options.phraseWords() > 1) {
+            WordCounts phrases = new WordCounts();
+            if (!countSequentially(options, phrases)) {
+                phrases = null;
+            }
+            return phrases;
+        }
+        Tokenizer tokenizer = options.tokenizer();
+        StopWords stopWords = readStopWords(options, tokenizer);
+        if (stopWords == null) {
+            return null;
+        }
+        TokenFilter filter = wordFilter(options, stopWords);
+        WordCounts wordCounts = new WordCounts();
+        List<String> files = new ArrayList<>();
+        for (String input : options.inputs()) {
+            if (input.equals("-")) {
+                try {
+                    wordCounts.addAll(countInput(input, options, filter));
+                } catch (IOException e) {
+                    System.err.println("Error reading standard input");
+                    return null;
+                }
+            } else {
+                files.add(input);
+            }
+        }
+        try {
+            if (options.checkpoint() != null) {
+                Checkpoint resumed = Checkpoint.countIncrementally(
+                        Paths.get(files.get(0)),
+                        Paths.get(options.checkpoint()), tokenizer,
+                        options.caseFolding(), filter, options.threads());
+                if (resumed.outcome().reason() != null) {
+                    System.err.println(options.checkpoint() + " "
+                            + resumed.outcome().reason()
+                            + "; counting from the start");
+                }
+                wordCounts = resumed.counts();
+            } else if (files.size() == 1
+                    && !CorpusCounter.isCorpus(files.get(0))) {
+                wordCounts.addAll(
+                        countInput(files.get(0), options, filter));
+            } else if (!files.isEmpty()) {
+                wordCounts.addAll(new CorpusCounter(tokenizer,
+                        options.caseFolding(), filter, options.charset())
+                                .count(files, options.threads()));
+            }
+        } catch (IOException e) {
+            System.err.println("Error reading input file " + e.getMessage());
+            return null;
+        }
+        return wordCounts;
+    }
+
+    /**
+     * Returns the total size of the input files named on the command line;
+     * standard input is not included. Files that cannot be found are
+     * skipped, as counting them reports the error.
+     *
+     * @param inputs
+     *            the input names
+     * @return the number of bytes in the input files
+     */
+    private static long inputBytes(List<String> inputs) {
+        long bytes = 0;
+        for (String input : inputs) {
+            try {
+                if (CorpusCounter.isCorpus(input)) {
+                    try (Stream<Path> files = CorpusCounter.files(input)) {
+                        Iterator<Path> file = files.iterator();
+                        while (file.hasNext()) {
+                            bytes += Files.size(file.next());
+                        }
+                    }
+                } else if (!input.equals("-")) {
+                    bytes += Files.size(Paths.get(input));
+                }
+            } catch (IOException | UncheckedIOException e) {
+                continue;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Counts the inputs and writes the tag cloud as given by the command
+     * line options, without any console interaction.
+     *
+     * @param options
+     *            the command line options
+     * @param metrics
+     *            the metrics receiving the timing of each stage and the
+     *            sizes of the run
+     * @return the process exit status: 0 on success, 1 on an I/O error
+     * @updates metrics
+     */
+    private static int runBatch(TagCloudOptions options, RunMetrics metrics) {
+        String inputName = String.join(", ", options.inputs());
+        if (options.readSnapshot() == null
+                && (options.verbose() || options.metrics() != null)) {
+            metrics.add(RunMetrics.INPUT_BYTES,
+                    inputBytes(options.inputs()));
+        }
+        TopWords top;
+        long started;
+        ResultCache cache = null;
+        String key = null;
+        Path snapshotFile = null;
+        if (options.readSnapshot() != null) {
+            snapshotFile = Paths.get(options.readSnapshot());
+        } else if (options.cache() != null) {
+            /* A cached page is the whole answer; cached counts skip counting */
+            StopWords stopWords = readStopWords(options,
+                    options.tokenizer());
+            if (stopWords == null) {
+                return 1;
+            }
+            try {
+                started = metrics.start();
+                cache = new ResultCache(Paths.get(options.cache()),
+                        options.cacheSize());
+                key = ResultCache.key(options.inputs(), options.tokenizer(),
+                        options.caseFolding(), wordFilter(options, stopWords),
+                        options.charset(), options.phraseWords());
+                metrics.stop(RunMetrics.DIGEST, started);
+                Path page = cache.page(key, options.count(), inputName,
+                        options.format());
+                if (page != null) {
+                    metrics.add(RunMetrics.CACHE_PAGE_HITS, 1);
+                    started = metrics.start();
+                    int status = writeOutput(options, Files.readAllBytes(page));
+                    metrics.stop(RunMetrics.RENDER, started);
+                    return status;
+                }
+                snapshotFile = cache.counts(key);
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Error reading cache " + e.getMessage());
+                return 1;
+            }
+            if (snapshotFile == null) {
+                metrics.add(RunMetrics.CACHE_MISSES, 1);
+            } else {
+                metrics.add(RunMetrics.CACHE_COUNT_HITS, 1);
+            }
+        }
+        if (snapshotFile != null) {
+            /* Renders straight from the snapshot, without counting */
+            try {
+                started = metrics.start();
+                WordCountSnapshot snapshot = WordCountSnapshot
+                        .read(snapshotFile, options.count());
+                metrics.stop(RunMetrics.READ_SNAPSHOT, started);
+                metrics.add(RunMetrics.DISTINCT_WORDS, snapshot.size());
+                availableWords(options.count(), snapshot.size());
+                if (options.readSnapshot() != null) {
+                    inputName = snapshot.source();
+                }
+                top = snapshot.top();
+            } catch (IOException e) {
+                System.err.println("Error reading snapshot " + e.getMessage());
+                return 1;
+            }
+        } else if (options.approximate()) {
+            /* Selects from the heavy hitters, in fixed memory */
+            HeavyHitters heavyHitters = new HeavyHitters(
+                    Math.max(options.count() * CANDIDATES_PER_WORD,
+                            MIN_CANDIDATES),
+                    options.epsilon(), options.delta());
+            started = metrics.start();
+            boolean counted = countSequentially(options, heavyHitters);
+            metrics.stop(RunMetrics.COUNT, started);
+            if (!counted) {
+                return 1;
+            }
+            metrics.add(RunMetrics.WORDS, heavyHitters.total());
+            started = metrics.start();
+            top = heavyHitters.top(
+                    availableWords(options.count(), heavyHitters.size()));
+            metrics.stop(RunMetrics.SELECT, started);
+            System.err.println("Approximate counts of "
+                    + heavyHitters.total() + " words: each may be overstated"
+                    + " by up to " + heavyHitters.errorBound()
+                    + " with probability " + (1 - heavyHitters.delta()));
+        } else if (options.memory() > 0) {
+            /* Counts within the budget, spilling and merging runs */
+            top = countWithinBudget(options, metrics);
+            if (top == null) {
+                return 1;
+            }
+        } else {
+            started = metrics.start();
+            WordCounts wordCounts = countInputs(options);
+            metrics.stop(RunMetrics.COUNT, started);
+            if (wordCounts == null) {
+                return 1;
+            }
+            if (options.verbose() || options.metrics() != null) {
+                metrics.add(RunMetrics.WORDS, wordCounts.total());
+            }
+            metrics.add(RunMetrics.DISTINCT_WORDS, wordCounts.size());
+            if (options.saveSnapshot() != null) {
+                try {
+                    started = metrics.start();
+                    WordCountSnapshot.write(wordCounts, inputName,
+                            Paths.get(options.saveSnapshot()),
+                            options.compress());
+                    metrics.stop(RunMetrics.SAVE_SNAPSHOT, started);
+                } catch (IOException e) {
+                    System.err.println("Error writing snapshot");
+                    return 1;
+                }
+            }
+            if (cache != null) {
+                try {
+                    started = metrics.start();
+                    cache.putCounts(key, wordCounts, inputName);
+                    metrics.stop(RunMetrics.SAVE_SNAPSHOT, started);
+                } catch (IOException | UncheckedIOException e) {
+                    System.err.println("Error writing cache " + e.getMessage());
+                    return 1;
+                }
+            }
+            started = metrics.start();
+            top = selectTop(wordCounts,
+                    availableWords(options.count(), wordCounts.size()));
+            metrics.stop(RunMetrics.SELECT, started);
+        }
+
+        started = metrics.start();
+        List<Entry<String, Long>> alphabetical = sortAlphabetically(top);
+        metrics.stop(RunMetrics.SORT, started);
+        metrics.add(RunMetrics.CLOUD_WORDS, alphabetical.size());
+        started = metrics.start();
+        if (cache != null) {
+            /* Rendered in memory so the page can be cached as well */
+            ByteArrayOutputStream page = new ByteArrayOutputStream();
+            try {
+                printCloud(alphabetical, Channels.newChannel(page), inputName,
+                        options.format());
+                cache.putPage(key, options.count(), inputName,
+                        options.format(), page.toByteArray());
+            } catch (IOException | UncheckedIOException e) {
+                System.err.println("Error writing cache " + e.getMessage());
+                return 1;
+            }
+            int status = writeOutput(options, page.toByteArray());
+            metrics.stop(RunMetrics.RENDER, started);
+            return status;
+        }
+        if (options.output() == null) {
+            try {
+                printCloud(alphabetical, Channels.newChannel(System.out),
+                        inputName, options.format());
+            } catch (IOException e) {
+                System.err.println("Error writing output");
+                return 1;
+            }
+            System.out.flush();
+            if (System.out.checkError()) {
+                System.err.println("Error writing output");
+                return 1;
+            }
+        } else {
+            FileChannel out;
+            try {
+                out = openOutput(options.output());
+            } catch (IOException e) {
+                System.err.println("Error opening output file");
+                return 1;
+            }
+            try (out) {
+                printCloud(alphabetical, out, inputName, options.format());
+            } catch (IOException e) {
+                System.err.println("Error writing output file");
+                return 1;
+            }
+        }
+        metrics.stop(RunMetrics.RENDER, started);
+        return 0;
+    }
+
+    /**
+     * Writes the rendered {@code page} to the output file given by the
+     * command line options, or to standard output if none was given.
+     *
+     * @param options
+     *            the command line options
+     * @param page
+     *            the page to write
+     * @return the process exit status: 0 on success, 1 on an I/O error
+     */
+    private static int writeOutput(TagCloudOptions options, byte[] page) {
+        int status = 0;
+        if (options.output() == null) {
+            System.out.write(page, 0, page.length);
+            System.out.flush();
+            if (System.out.checkError()) {
+                System.err.println("Error writing output");
+                status = 1;
+            }
+        } else {
+            try {
+                Files.write(Paths.get(options.output()), page);
+            } catch (IOException e) {
+                System.err.println("Error writing output file");
+                status = 1;
+            }
+        }
+        return status;
+    }
+
+    /**
+     * Prints the metrics of the run and writes them as JSON, as requested by
+     * the command line options.
+     *
+     * @param options
+     *            the command line options
+     * @param metrics
+     *            the metrics of the run
+     * @return true iff the metrics file, if any, was written; otherwise the
+     *         error has been reported
+     */
+    private static boolean reportMetrics(TagCloudOptions options,
+            RunMetrics metrics) {
+        if (options.verbose()) {
+            System.err.print(metrics.summary());
+        }
+        boolean written = true;
+        if (options.metrics() != null) {
+            try {
+                Files.writeString(Paths.get(options.metrics()),
+                        metrics.toJson() + System.lineSeparator(),
+                        StandardCharsets.UTF_8);
+            } catch (IOException e) {
+                System.err.println("Error writing metrics file");
+                written = false;
+            }
+        }
+        return written;
+    }
+
+    /**
+     * Serves clouds over HTTP as given by the command line options, until
+     * the process is stopped.
+     *
+     * @param options
+     *            the command line options
+     * @return the process exit status: 0 once serving, 1 if the server could
+     *         not be started
+     */
+    private static int runServer(TagCloudOptions options) {
+        Tokenizer tokenizer = options.tokenizer();
+        StopWords stopWords = readStopWords(options, tokenizer);
+        if (stopWords == null) {
+            return 1;
+        }
+        TagCloudServer server;
+        try {
+            server = new TagCloudServer(options.port(), tokenizer,
+                    options.caseFolding(), wordFilter(options, stopWords),
+                    options.charset(), options.threads(), options.count(),
+                    options.cacheSize());
+        } catch (IOException e) {
+            System.err.println("Error starting server " + e.getMessage());
+            return 1;
+        }
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(0)));
+        server.start();
+        System.err.println("Serving tag clouds at http://localhost:"
+                + server.port() + TagCloudServer.PATH);
+        return 0;
+    }
+
+    /**
+     * Opens {@code name} for writing, creating or truncating it.
+     *
+     * @param name
+     *            the output file name
+     * @return the open channel
+     * @throws IOException
+     *             if the file cannot be opened
+     */
+    private static FileChannel openOutput(String name) throws IOException {
+        return FileChannel.open(Paths.get(name), StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+    }
+
+    /**
+     * Main method. With arguments, runs non-interactively as described by
+     * {@link TagCloudOptions#USAGE}; without any, prompts for the input file,
+     * number of words and output file.
+     *
+     * @param args
+     *            the command line arguments
+     */
+    public static void main(String[] args) {
+        if (args.length == 0) {
+            promptAndRun();
+            return;
+        }
+        TagCloudOptions options;
+        try {
+            options = TagCloudOptions.parse(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.println(TagCloudOptions.USAGE);
+            System.exit(2);
+            return;
+        }
+        if (options.help()) {
+            System.out.println(TagCloudOptions.USAGE);
+            return;
+        }
+        if (options.port() >= 0) {
+            /* The server threads keep the process running */
+            int status = runServer(options);
+            if (status != 0) {
+                System.exit(status);
+            }
+            return;
+        }
+        RunMetrics metrics = new RunMetrics();
+        int status = runBatch(options, metrics);
+        if (!reportMetrics(options, metrics) && status == 0) {
+            status = 1;
+        }
+        if (status != 0) {
+            System.exit(status);
+        }
+    }
+
+    /**
+     * Collects the input file, number of words and output file from the user
+     * and writes the tag cloud.
+     */
+    private static void promptAndRun() {
+        BufferedReader in = new BufferedReader(
+                new InputStreamReader(System.in));
+        System.out.println("Word Counter");
+        System.out.println();
+        /*
+         * Loop until user enters valid input file name to read from
+         */
+        System.out.println("File Input Name: ");
+        System.out.println("example: BeeMovie.txt ");
+        String fileInputName = "";
+        BufferedReader fileIn = null; //Used to "initialize" fileIn to stop warnings
+        boolean validInput = false;
+        while (!validInput) {
+            try {
+                fileInputName = in.readLine();
+            } catch (IOException e) {
+                System.err
+                        .println("Error reading input file name from console");
+                //If file name is not valid, then BufferedReader won't be opened
+            }
+            try {
+                fileIn = new BufferedReader(new FileReader(fileInputName));
+                validInput = true;
+            } catch (IOException e) {
+                System.err.println("Error opening input file");
+                validInput = false;
+            }
+        }
+        /*
+         * Loops until user enters valid number input
+         */
+        System.out.println("Number of words to be included: ");
+        String numOfWords = "";
+        validInput = false;
+        while (!validInput) {
+            try {
+                numOfWords = in.readLine();
+                // Keeps checking input until positive integer is entered
+                // added null check because of warning
+                while (numOfWords != null && (!allDigits(numOfWords)
+                        || Integer.parseInt(numOfWords) <= 0)) {
+                    System.out.println(
+                            "Number of words must be an integer greater than 0.");
+                    System.out.println("Number of words to be included: ");
+                    numOfWords = in.readLine();
+                }
+                validInput = true;
+            } catch (IOException e) {
+                System.err
+                        .println("Error reading number of words from console");
+                validInput = false;
+            }
+        }
+        int numberOfWords = Integer.parseInt(numOfWords);
+        /*
+         * Loop until user enters valid output file name to read from
+         */
+        System.out.println("File Output Name: ");
+        String fileOutputName = "";
+        FileChannel fileOut = null; //Used to "initialize" fileOut to stop warnings
+        validInput = false;
+        while (!validInput) {
+            try {
+                fileOutputName = in.readLine();
+            } catch (IOException e) {
+                System.err
+                        .println("Error reading output file name from console");
+                //If file name is not valid, then the output channel won't be opened
+            }
+            try {
+                fileOut = openOutput(fileOutputName);
+                validInput = true;
+            } catch (IOException e) {
+                System.err.println("Error opening output file");
+                validInput = false;
+            }
+        }
+        /*
+         * Create the html page
+         */
+        /*
+         * What if we made a new method that printed the html header and the
+         * strings of the file names were parameters? That way we could pass the
+         * file reader and writer to createPage and still use the strings in the
+         * html header
+         */
+        /*
+         * I was just about to do that and then I realized that localNum gets
+         * updated when the wordCount is lower than the requested value, so if
+         * we make the header its own method, it wont update the number in the
+         * title
+         */
+        /* I caved and just added another parameter */
+        /*
+         * Counts the input file. UTF-8 files are memory-mapped and scanned as
+         * bytes; anything else, or a file that cannot be mapped, is decoded
+         * through the reader
+         */
+        Tokenizer tokenizer = new SeparatorSet(SEPARATORS);
+        WordCounts wordCounts = null;
+        if (StandardCharsets.UTF_8.equals(Charset.defaultCharset())) {
+            try {
+                wordCounts = countWords(Paths.get(fileInputName), tokenizer,
+                        CaseFolding.UNICODE, StopWords.NONE,
+                        Runtime.getRuntime().availableProcessors(), null);
+            } catch (IOException e) {
+                System.err.println("Error mapping input file");
+            }
+        }
+        if (wordCounts == null) {
+            /* The words read before an error still make a cloud */
+            wordCounts = new WordCounts();
+            try {
+                countWords(fileIn, tokenizer, CaseFolding.UNICODE,
+                        StopWords.NONE, wordCounts);
+            } catch (IOException e) {
+                System.err.println("Error reading from input file");
+            }
+        }
+        try {
+            createBody(wordCounts, fileOut, fileInputName, numberOfWords);
+        } catch (IOException e) {
+            System.err.println("Error writing output file");
+        }
+        /*
+         * Close the inputs and outputs
+         */
+        try {
+            fileOut.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file output");
+        }
+        try {
+            fileIn.close();
+        } catch (IOException e) {
+            System.err.println("Error closing file input");
+        }
+        try {
+            in.close();
+        } catch (IOException e) {
+            System.err.println("Error closing console input");
+        }
+    }
+
+}
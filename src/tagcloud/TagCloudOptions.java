@@ -0,0 +1,868 @@
+package tagcloud;
+
+import java.nio.charset.Charset;
+import java.nio.charset.IllegalCharsetNameException;
+import java.nio.charset.StandardCharsets;
+import java.nio.charset.UnsupportedCharsetException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Command line options for running {@link TagCloud} without prompts.
+ *
+ * <pre>
+ * usage: TagCloud [-n count] [-o output] [-c charset] [-t threads]
+ *                 [-f folding] [-x stopwords] [-k checkpoint]
+ *                 [-s snapshot [-z]] input...
+ * usage: TagCloud [-n count] [-o output] [-c charset] [-f folding]
+ *                 [-x stopwords] -a epsilon [-d delta] input...
+ * usage: TagCloud [-n count] [-o output] [-c charset] [-f folding]
+ *                 [-x stopwords] -m memory input...
+ * usage: TagCloud [-n count] [-o output] [-c charset] [-t threads]
+ *                 [-f folding] [-x stopwords] -C cache [-M size] input...
+ * usage: TagCloud [-n count] [-o output] -r snapshot
+ * usage: TagCloud [-n count] [-c charset] [-t threads] [-f folding]
+ *                 [-x stopwords] [-M size] -p port
+ * </pre>
+ *
+ * <p>
+ * An input may be a file, a directory (every file under it is counted) or a
+ * glob pattern such as {@code "logs/**.log"}; "-" reads standard input.
+ * Every form also takes {@code -v} and {@code -j metrics} to report the
+ * timings and counters of the run, and every form counting inputs except
+ * {@code -k} takes {@code -g words} to count phrases instead of words. Every
+ * form counting inputs, {@code -p} included, takes {@code -T tokenizer} to
+ * choose how text is split into words and, except with {@code -g},
+ * {@code -S stemming} to count the inflected forms of a word as one. Every
+ * form but {@code -p}, whose requests choose their own format, takes
+ * {@code -F format} to write the cloud as JSON, CSV or SVG instead of
+ * HTML. Forms counting a single UTF-8 file, or counting sequentially
+ * ({@code -a}, {@code -m}, {@code -g}), take {@code -V} to find separators
+ * with the incubating Vector API.
+ * </p>
+ */
+public final class TagCloudOptions {
+
+    /**
+     * Number of words in the cloud when {@code -n} is not given.
+     */
+    private static final int DEFAULT_COUNT = 100;
+
+    /**
+     * Probability of exceeding the error bound of {@code -a} when {@code -d}
+     * is not given.
+     */
+    private static final double DEFAULT_DELTA = 0.01;
+
+    /**
+     * Size bound of the result cache when {@code -M} is not given.
+     */
+    private static final long DEFAULT_CACHE_SIZE = 64L << 20;
+
+    /**
+     * Usage message printed for {@code -h} and after a bad argument.
+     */
+    public static final String USAGE = String.join(System.lineSeparator(),
+            "usage: TagCloud [options] input...",
+            "       TagCloud [-n count] [-o output] -r snapshot",
+            "       TagCloud [options] -p port",
+            "  input            text file, directory or quoted glob pattern to",
+            "                   count, or - for standard input; counts of all",
+            "                   inputs are added together",
+            "  -n count         number of words in the cloud (default "
+                    + DEFAULT_COUNT + ")",
+            "  -o output        file to write (default standard output)",
+            "  -F format        format of the cloud: html, json (words with",
+            "                   counts and font classes), csv (the same as",
+            "                   a table) or svg (a self-contained image)",
+            "                   (default html)",
+            "  -c charset       charset of the inputs (default UTF-8)",
+            "  -t threads       threads used to count",
+            "                   (default number of processors)",
+            "  -T tokenizer     how text is split into words: separators",
+            "                   (split on ASCII punctuation and spaces) or",
+            "                   unicode (words are runs of letters, marks and",
+            "                   digits in any script) (default separators)",
+            "  -f folding       case folding of words: none, ascii or",
+            "                   unicode (default unicode)",
+            "  -x stopwords     leave out the words listed in this UTF-8",
+            "                   file; lines starting with # are ignored",
+            "  -S stemming      merge the forms of a word before counting:",
+            "                   none or porter (English suffixes, e.g. bees",
+            "                   and connected count as bee and connect)",
+            "                   (default none)",
+            "  -k checkpoint    resume counting a growing UTF-8 file from",
+            "                   checkpoint and update it; needs a single file",
+            "  -s snapshot      also save the counts as a binary snapshot",
+            "  -z               deflate the snapshot saved with -s",
+            "  -r snapshot      render from a snapshot instead of counting",
+            "  -a epsilon       count approximately in fixed memory; counts",
+            "                   may be overstated by up to epsilon times the",
+            "                   number of words (e.g. 0.0001)",
+            "  -d delta         probability of exceeding that bound",
+            "                   (default " + DEFAULT_DELTA + ")",
+            "  -m memory        count exactly within this much memory, e.g.",
+            "                   512M, spilling to temporary files as needed",
+            "  -g words         count phrases of this many consecutive words",
+            "                   instead of single words (default 1); stop",
+            "                   words may only appear inside a phrase",
+            "  -V               find the separators of UTF-8 input with the",
+            "                   incubating Vector API (run with --add-modules",
+            "                   jdk.incubator.vector); not yet faster than",
+            "                   the default byte by byte scan",
+            "  -v               print stage timings and counters to standard",
+            "                   error when done",
+            "  -j metrics       write stage timings and counters to this",
+            "                   file as JSON",
+            "  -p port          serve clouds of text POSTed to /cloud on this",
+            "                   port instead of counting inputs; -n is the",
+            "                   default of the n query parameter",
+            "  -C cache         reuse the counts and pages of earlier runs on",
+            "                   the same input contents, kept in this",
+            "                   directory; inputs must be files",
+            "  -M size          size bound of the -C directory or of the -p",
+            "                   server's memory cache, e.g. 256M (default 64M)",
+            "  -h               print this message");
+
+    /**
+     * Input names; "-" stands for standard input.
+     */
+    private final List<String> inputs = new ArrayList<>();
+
+    /**
+     * Number of words in the cloud.
+     */
+    private int count = DEFAULT_COUNT;
+
+    /**
+     * Output file name, or {@code null} for standard output.
+     */
+    private String output;
+
+    /**
+     * Charset of the inputs.
+     */
+    private Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * Number of threads used to count.
+     */
+    private int threads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Case folding applied to each word.
+     */
+    private CaseFolding caseFolding = CaseFolding.UNICODE;
+
+    /**
+     * Rule splitting text into words.
+     */
+    private Tokenizer tokenizer = new SeparatorSet(TagCloud.SEPARATORS);
+
+    /**
+     * Stop word file, or {@code null} to count every word.
+     */
+    private String stopWords;
+
+    /**
+     * Format the cloud is written in.
+     */
+    private OutputFormat format = OutputFormat.HTML;
+
+    /**
+     * Stemming applied to each word.
+     */
+    private Stemming stemming = Stemming.NONE;
+
+    /**
+     * Checkpoint file for incremental counting, or {@code null} for none.
+     */
+    private String checkpoint;
+
+    /**
+     * Snapshot file to save the counts to, or {@code null} for none.
+     */
+    private String saveSnapshot;
+
+    /**
+     * Whether the saved snapshot is compressed.
+     */
+    private boolean compress;
+
+    /**
+     * Snapshot file to render from instead of counting, or {@code null}.
+     */
+    private String readSnapshot;
+
+    /**
+     * Relative error bound of approximate counting, or 0 to count exactly.
+     */
+    private double epsilon;
+
+    /**
+     * Probability of exceeding the error bound of approximate counting.
+     */
+    private double delta = DEFAULT_DELTA;
+
+    /**
+     * Memory budget of the counts in bytes, or 0 for no budget.
+     */
+    private long memory;
+
+    /**
+     * Number of words in each counted phrase.
+     */
+    private int phraseWords = 1;
+
+    /**
+     * Whether to find separators with the Vector API.
+     */
+    private boolean vectorScan;
+
+    /**
+     * Whether to print the metrics of the run.
+     */
+    private boolean verbose;
+
+    /**
+     * File to write the metrics of the run to as JSON, or {@code null}.
+     */
+    private String metrics;
+
+    /**
+     * Port to serve clouds on, or -1 to count the inputs.
+     */
+    private int port = -1;
+
+    /**
+     * Directory of the result cache, or {@code null}.
+     */
+    private String cache;
+
+    /**
+     * Size bound of the result cache in bytes.
+     */
+    private long cacheSize = DEFAULT_CACHE_SIZE;
+
+    /**
+     * Whether the size bound of the result cache was given.
+     */
+    private boolean cacheSizeGiven;
+
+    /**
+     * Whether help was requested.
+     */
+    private boolean help;
+
+    /**
+     * No-argument constructor; use {@link #parse}.
+     */
+    private TagCloudOptions() {
+    }
+
+    /**
+     * Parses the command line arguments.
+     *
+     * @param args
+     *            the command line arguments
+     * @return the parsed options
+     * @throws IllegalArgumentException
+     *             if an argument is unknown, missing its value or invalid
+     */
+    public static TagCloudOptions parse(String[] args) {
+        assert args != null : "Violation of: args is not null";
+
+        TagCloudOptions options = new TagCloudOptions();
+        boolean optionsDone = false;
+        int i = 0;
+        while (i < args.length) {
+            String arg = args[i];
+            i++;
+            if (optionsDone || arg.equals("-") || !arg.startsWith("-")) {
+                options.inputs.add(arg);
+            } else if (arg.equals("--")) {
+                optionsDone = true;
+            } else if (arg.equals("-h") || arg.equals("--help")) {
+                options.help = true;
+            } else if (arg.equals("-z")) {
+                options.compress = true;
+            } else if (arg.equals("-V")) {
+                options.vectorScan = true;
+            } else if (arg.equals("-v")) {
+                options.verbose = true;
+            } else if (!takesValue(arg)) {
+                throw new IllegalArgumentException("Unknown option: " + arg);
+            } else {
+                if (i == args.length) {
+                    throw new IllegalArgumentException(
+                            "Missing value for " + arg);
+                }
+                String value = args[i];
+                i++;
+                options.set(arg, value);
+            }
+        }
+        if (options.readSnapshot != null) {
+            if (!options.inputs.isEmpty() || options.checkpoint != null
+                    || options.saveSnapshot != null
+                    || options.stopWords != null
+                    || options.stemming != Stemming.NONE
+                    || options.port >= 0) {
+                throw new IllegalArgumentException("-r cannot be combined "
+                        + "with inputs, -k, -s, -x, -S or -p");
+            }
+        } else if (options.port >= 0) {
+            if (!options.inputs.isEmpty() || options.output != null
+                    || options.checkpoint != null
+                    || options.saveSnapshot != null || options.epsilon > 0
+                    || options.memory > 0 || options.verbose
+                    || options.metrics != null || options.cache != null
+                    || options.format != OutputFormat.HTML) {
+                throw new IllegalArgumentException("-p cannot be combined "
+                        + "with inputs, -o, -F, -k, -s, -r, -a, -m, -v, -j or"
+                        + " -C");
+            }
+        } else if (!options.help && options.inputs.isEmpty()) {
+            throw new IllegalArgumentException("No input given");
+        }
+        if (options.epsilon > 0 && (options.checkpoint != null
+                || options.saveSnapshot != null
+                || options.readSnapshot != null)) {
+            throw new IllegalArgumentException(
+                    "-a cannot be combined with -k, -s or -r");
+        }
+        if (options.epsilon > 0 && CountMinSketch.bytes(options.epsilon,
+                options.delta) > CountMinSketch.MAX_BYTES) {
+            final int megabyteShift = 20;
+            throw new IllegalArgumentException("-a " + options.epsilon
+                    + " with -d " + options.delta + " needs "
+                    + (CountMinSketch.bytes(options.epsilon,
+                            options.delta) >> megabyteShift)
+                    + "M of counters, more than the "
+                    + (CountMinSketch.MAX_BYTES >> megabyteShift)
+                    + "M allowed; raise epsilon or delta, or count exactly"
+                    + " with -m");
+        }
+        if (options.memory > 0 && (options.epsilon > 0
+                || options.checkpoint != null || options.saveSnapshot != null
+                || options.readSnapshot != null)) {
+            throw new IllegalArgumentException(
+                    "-m cannot be combined with -a, -k, -s or -r");
+        }
+        if (options.cache != null && (options.epsilon > 0
+                || options.memory > 0 || options.checkpoint != null
+                || options.saveSnapshot != null
+                || options.readSnapshot != null
+                || options.inputs.contains("-"))) {
+            throw new IllegalArgumentException("-C cannot be combined with "
+                    + "-a, -m, -k, -s, -r or standard input");
+        }
+        if (options.cacheSizeGiven && options.cache == null
+                && options.port < 0) {
+            throw new IllegalArgumentException("-M needs -C or -p");
+        }
+        if (options.phraseWords > 1 && (options.checkpoint != null
+                || options.readSnapshot != null || options.port >= 0
+                || options.stemming != Stemming.NONE)) {
+            throw new IllegalArgumentException(
+                    "-g cannot be combined with -k, -r, -p or -S");
+        }
+        if (options.checkpoint != null && (options.inputs.size() != 1
+                || options.inputs.get(0).equals("-")
+                || !StandardCharsets.UTF_8.equals(options.charset))) {
+            throw new IllegalArgumentException(
+                    "-k needs a single UTF-8 input file");
+        }
+        return options;
+    }
+
+    /**
+     * Reports whether {@code name} is an option that takes a value.
+     *
+     * @param name
+     *            the option as given on the command line
+     * @return true iff {@code name} is a known option followed by a value
+     */
+    private static boolean takesValue(String name) {
+        return name.equals("-n") || name.equals("-o") || name.equals("-c")
+                || name.equals("-t") || name.equals("-f") || name.equals("-x")
+                || name.equals("-k") || name.equals("-s") || name.equals("-r")
+                || name.equals("-a") || name.equals("-d") || name.equals("-m")
+                || name.equals("-j") || name.equals("-p")
+                || name.equals("-C") || name.equals("-M")
+                || name.equals("-g") || name.equals("-T")
+                || name.equals("-S") || name.equals("-F");
+    }
+
+    /**
+     * Sets the option named {@code name} to {@code value}.
+     *
+     * @param name
+     *            the option as given on the command line
+     * @param value
+     *            the value that followed it
+     * @throws IllegalArgumentException
+     *             if the option is unknown or the value is invalid
+     */
+    private void set(String name, String value) {
+        switch (name) {
+            case "-n":
+                this.count = positive(name, value);
+                break;
+            case "-o":
+                this.output = value;
+                break;
+            case "-c":
+                try {
+                    this.charset = Charset.forName(value);
+                } catch (IllegalCharsetNameException
+                        | UnsupportedCharsetException e) {
+                    throw new IllegalArgumentException(
+                            "Unsupported charset: " + value, e);
+                }
+                break;
+            case "-t":
+                this.threads = positive(name, value);
+                break;
+            case "-f":
+                try {
+                    this.caseFolding = CaseFolding
+                            .valueOf(value.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(
+                            "Unknown case folding: " + value, e);
+                }
+                break;
+            case "-x":
+                this.stopWords = value;
+                break;
+            case "-F":
+                try {
+                    this.format = OutputFormat.named(value);
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(
+                            "Unknown format: " + value, e);
+                }
+                break;
+            case "-S":
+                try {
+                    this.stemming = Stemming
+                            .valueOf(value.toUpperCase(Locale.ROOT));
+                } catch (IllegalArgumentException e) {
+                    throw new IllegalArgumentException(
+                            "Unknown stemming: " + value, e);
+                }
+                break;
+            case "-k":
+                this.checkpoint = value;
+                break;
+            case "-s":
+                this.saveSnapshot = value;
+                break;
+            case "-r":
+                this.readSnapshot = value;
+                break;
+            case "-a":
+                this.epsilon = fraction(name, value);
+                break;
+            case "-d":
+                this.delta = fraction(name, value);
+                break;
+            case "-m":
+                this.memory = size(name, value);
+                break;
+            case "-T":
+                if (value.equals("unicode")) {
+                    this.tokenizer = new UnicodeTokenizer();
+                } else if (!value.equals("separators")) {
+                    throw new IllegalArgumentException(
+                            "Unknown tokenizer: " + value);
+                }
+                break;
+            case "-g":
+                this.phraseWords = positive(name, value);
+                break;
+            case "-j":
+                this.metrics = value;
+                break;
+            case "-p":
+                this.port = port(name, value);
+                break;
+            case "-C":
+                this.cache = value;
+                break;
+            case "-M":
+                this.cacheSize = size(name, value);
+                this.cacheSizeGiven = true;
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown option: " + name);
+        }
+    }
+
+    /**
+     * Parses the value of an option that is a TCP port; 0 picks any free
+     * port.
+     *
+     * @param name
+     *            the option name, for the error message
+     * @param value
+     *            the value to parse
+     * @return the port
+     * @throws IllegalArgumentException
+     *             if {@code value} is not an integer from 0 to 65535
+     */
+    private static int port(String name, String value) {
+        final int maxPort = 0xFFFF;
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            result = -1;
+        }
+        if (result < 0 || result > maxPort) {
+            throw new IllegalArgumentException(
+                    name + " must be a port from 0 to " + maxPort + ": "
+                            + value);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the value of an option that must be a positive integer.
+     *
+     * @param name
+     *            the option name, for the error message
+     * @param value
+     *            the value to parse
+     * @return the parsed value
+     * @throws IllegalArgumentException
+     *             if {@code value} is not an integer greater than 0
+     */
+    private static int positive(String name, String value) {
+        int result;
+        try {
+            result = Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            result = 0;
+        }
+        if (result <= 0) {
+            throw new IllegalArgumentException(
+                    name + " must be an integer greater than 0: " + value);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the value of an option that must be a number strictly between 0
+     * and 1.
+     *
+     * @param name
+     *            the option name, for the error message
+     * @param value
+     *            the value to parse
+     * @return the parsed value
+     * @throws IllegalArgumentException
+     *             if {@code value} is not a number in (0, 1)
+     */
+    private static double fraction(String name, String value) {
+        double result;
+        try {
+            result = Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            result = 0;
+        }
+        if (!(result > 0 && result < 1)) {
+            throw new IllegalArgumentException(
+                    name + " must be a number between 0 and 1: " + value);
+        }
+        return result;
+    }
+
+    /**
+     * Parses the value of an option that is a positive number of bytes,
+     * optionally followed by K, M or G.
+     *
+     * @param name
+     *            the option name, for the error message
+     * @param value
+     *            the value to parse
+     * @return the number of bytes
+     * @throws IllegalArgumentException
+     *             if {@code value} is not a positive size
+     */
+    private static long size(String name, String value) {
+        final int kiloShift = 10;
+        final int megaShift = 20;
+        final int gigaShift = 30;
+        int shift = 0;
+        String digits = value;
+        if (!value.isEmpty()) {
+            switch (Character.toUpperCase(value.charAt(value.length() - 1))) {
+                case 'K':
+                    shift = kiloShift;
+                    break;
+                case 'M':
+                    shift = megaShift;
+                    break;
+                case 'G':
+                    shift = gigaShift;
+                    break;
+                default:
+                    break;
+            }
+            if (shift > 0) {
+                digits = value.substring(0, value.length() - 1);
+            }
+        }
+        long result;
+        try {
+            result = Long.parseLong(digits);
+        } catch (NumberFormatException e) {
+            result = 0;
+        }
+        if (result <= 0 || result > (Long.MAX_VALUE >>> shift)) {
+            throw new IllegalArgumentException(
+                    name + " must be a positive size such as 512M: " + value);
+        }
+        return result << shift;
+    }
+
+    /**
+     * Returns the input names; "-" stands for standard input.
+     *
+     * @return the input names
+     */
+    public List<String> inputs() {
+        return Collections.unmodifiableList(this.inputs);
+    }
+
+    /**
+     * Returns the number of words in the cloud.
+     *
+     * @return the number of words requested
+     */
+    public int count() {
+        return this.count;
+    }
+
+    /**
+     * Returns the output file name.
+     *
+     * @return the output file name, or {@code null} for standard output
+     */
+    public String output() {
+        return this.output;
+    }
+
+    /**
+     * Returns the charset of the inputs.
+     *
+     * @return the input charset
+     */
+    public Charset charset() {
+        return this.charset;
+    }
+
+    /**
+     * Returns the number of threads used to count.
+     *
+     * @return the thread count
+     */
+    public int threads() {
+        return this.threads;
+    }
+
+    /**
+     * Returns the case folding applied to each word.
+     *
+     * @return the case folding
+     */
+    public CaseFolding caseFolding() {
+        return this.caseFolding;
+    }
+
+    /**
+     * Returns the rule splitting text into words.
+     *
+     * @return the tokenizer
+     */
+    public Tokenizer tokenizer() {
+        return this.tokenizer;
+    }
+
+    /**
+     * Returns the stop word file.
+     *
+     * @return the stop word file name, or {@code null} to count every word
+     */
+    public String stopWords() {
+        return this.stopWords;
+    }
+
+    /**
+     * Returns the format the cloud is written in.
+     *
+     * @return the output format
+     */
+    public OutputFormat format() {
+        return this.format;
+    }
+
+    /**
+     * Returns the stemming applied to each word.
+     *
+     * @return the stemming
+     */
+    public Stemming stemming() {
+        return this.stemming;
+    }
+
+    /**
+     * Returns the checkpoint file for incremental counting.
+     *
+     * @return the checkpoint file name, or {@code null} to count from scratch
+     */
+    public String checkpoint() {
+        return this.checkpoint;
+    }
+
+    /**
+     * Returns the snapshot file to save the counts to.
+     *
+     * @return the snapshot file name, or {@code null} to save none
+     */
+    public String saveSnapshot() {
+        return this.saveSnapshot;
+    }
+
+    /**
+     * Reports whether the saved snapshot is compressed.
+     *
+     * @return true iff {@code -z} was given
+     */
+    public boolean compress() {
+        return this.compress;
+    }
+
+    /**
+     * Returns the snapshot file to render from instead of counting.
+     *
+     * @return the snapshot file name, or {@code null} to count the inputs
+     */
+    public String readSnapshot() {
+        return this.readSnapshot;
+    }
+
+    /**
+     * Reports whether words are counted approximately.
+     *
+     * @return true iff {@code -a} was given
+     */
+    public boolean approximate() {
+        return this.epsilon > 0;
+    }
+
+    /**
+     * Returns the relative error bound of approximate counting.
+     *
+     * @return epsilon
+     */
+    public double epsilon() {
+        return this.epsilon;
+    }
+
+    /**
+     * Returns the probability of exceeding the error bound of approximate
+     * counting.
+     *
+     * @return delta
+     */
+    public double delta() {
+        return this.delta;
+    }
+
+    /**
+     * Returns the memory budget of the counts.
+     *
+     * @return the budget in bytes, or 0 for no budget
+     */
+    public long memory() {
+        return this.memory;
+    }
+
+    /**
+     * Returns the number of words in each counted phrase.
+     *
+     * @return the phrase length, 1 to count single words
+     */
+    public int phraseWords() {
+        return this.phraseWords;
+    }
+
+    /**
+     * Reports whether separators are to be found with the Vector API.
+     *
+     * @return true iff -V was given
+     */
+    public boolean vectorScan() {
+        return this.vectorScan;
+    }
+
+    /**
+     * Reports whether the metrics of the run are to be printed.
+     *
+     * @return true iff -v was given
+     */
+    public boolean verbose() {
+        return this.verbose;
+    }
+
+    /**
+     * Returns the file to write the metrics of the run to as JSON.
+     *
+     * @return the metrics file name, or {@code null} if none was given
+     */
+    public String metrics() {
+        return this.metrics;
+    }
+
+    /**
+     * Returns the port to serve clouds on.
+     *
+     * @return the port, or -1 if the inputs are to be counted instead
+     */
+    public int port() {
+        return this.port;
+    }
+
+    /**
+     * Returns the directory of the result cache.
+     *
+     * @return the cache directory, or {@code null} if none was given
+     */
+    public String cache() {
+        return this.cache;
+    }
+
+    /**
+     * Returns the size bound of the result cache.
+     *
+     * @return the largest size of the cache in bytes
+     */
+    public long cacheSize() {
+        return this.cacheSize;
+    }
+
+    /**
+     * Reports whether help was requested.
+     *
+     * @return true iff {@code -h} was given
+     */
+    public boolean help() {
+        return this.help;
+    }
+
+}
@@ -0,0 +1,734 @@
+package tagcloud;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+/**
+ * HTTP service returning the tag cloud of the text in each request, so a
+ * cloud costs milliseconds instead of a JVM start.
+ *
+ * <pre>
+ * POST /cloud?n=100&amp;format=html&amp;title=name    (body: the text)
+ * </pre>
+ *
+ * <p>
+ * {@code n} is the number of words, as {@code -n} (default the server's
+ * {@code -n}); {@code format} is {@code html} (default), {@code json},
+ * {@code csv} or {@code svg} (see {@link OutputFormat});
+ * {@code title} names the input in the cloud. The body is read in the
+ * server's charset, or the one given in the {@code Content-Type} header.
+ * </p>
+ *
+ * <p>
+ * Results are cached in two levels, keyed by the SHA-256 digest of the body
+ * and its charset; the counting options are fixed for the server, so they
+ * need not be part of the key. The first level keeps the ranked counts of a
+ * body, so a repeated document is not counted again whatever {@code n} is
+ * asked for; the second keeps the rendered response for the digest,
+ * {@code n}, format and title, so a repeated request is answered with stored
+ * bytes. Both are LRU caches sharing the given size. Counts too large for
+ * the first level are not ranked at all: their top words are selected as in
+ * batch mode. The {@code X-Cache} response header tells which level
+ * answered, and {@code GET /stats} returns the hits, misses and evictions
+ * of both.
+ * </p>
+ *
+ * <p>
+ * Requests run on a fixed pool of threads. Each thread keeps its own body
+ * buffer, counters and {@link WordCounts} table, which are cleared and reused
+ * for every request it serves, so a warmed-up server allocates little more
+ * than the selected words per request; a thread that served a large request
+ * drops its state, so one large body does not stay allocated. When all
+ * threads are busy and the queue of waiting requests is full, further
+ * requests are answered at once with 503 and a {@code Retry-After} header,
+ * from a thread of their own. Requests arriving while that thread's own
+ * queue is full, or after {@link #stop(int)}, are closed unanswered.
+ * </p>
+ */
+public final class TagCloudServer {
+
+    /**
+     * Path the clouds are served on.
+     */
+    public static final String PATH = "/cloud";
+
+    /**
+     * Path the cache counters are served on.
+     */
+    public static final String STATS_PATH = "/stats";
+
+    /**
+     * Largest request body accepted, in bytes.
+     */
+    private static final int MAX_BODY = 1 << 26;
+
+    /**
+     * Initial size of a thread's body buffer.
+     */
+    private static final int INITIAL_BODY = 1 << 16;
+
+    /**
+     * Largest body buffer, and largest table, a thread keeps for its next
+     * request, in bytes.
+     */
+    private static final int RETAINED_BYTES = 1 << 22;
+
+    /**
+     * Requests queued per thread before further requests are turned away.
+     */
+    private static final int QUEUE_PER_THREAD = 16;
+
+    /**
+     * Requests queued for the overflow thread before further requests are
+     * closed unanswered.
+     */
+    private static final int OVERFLOW_QUEUE = 64;
+
+    /**
+     * Seconds a turned away client is asked to wait before retrying.
+     */
+    private static final String RETRY_AFTER = "1";
+
+    /**
+     * Status of a successful response.
+     */
+    private static final int OK = 200;
+
+    /**
+     * Status of a request with a bad parameter.
+     */
+    private static final int BAD_REQUEST = 400;
+
+    /**
+     * Status of a request with a method other than POST.
+     */
+    private static final int METHOD_NOT_ALLOWED = 405;
+
+    /**
+     * Status of a request whose body is too large.
+     */
+    private static final int TOO_LARGE = 413;
+
+    /**
+     * Status of a request whose charset is not supported.
+     */
+    private static final int UNSUPPORTED_MEDIA_TYPE = 415;
+
+    /**
+     * Status of a request turned away because the queue is full.
+     */
+    private static final int SERVICE_UNAVAILABLE = 503;
+
+    /**
+     * Separator characters.
+     */
+    private final Tokenizer tokenizer;
+
+    /**
+     * Case folding applied to each word.
+     */
+    private final CaseFolding folding;
+
+    /**
+     * Filter words pass through before they are counted.
+     */
+    private final TokenFilter filter;
+
+    /**
+     * Charset of request bodies that do not name one.
+     */
+    private final Charset charset;
+
+    /**
+     * Number of words in a cloud when the request does not give {@code n}.
+     */
+    private final int defaultCount;
+
+    /**
+     * The state of each request thread.
+     */
+    private final ThreadLocal<Worker> workers = ThreadLocal
+            .withInitial(Worker::new);
+
+    /**
+     * The HTTP server.
+     */
+    private final HttpServer server;
+
+    /**
+     * Threads the requests run on.
+     */
+    private final ExecutorService pool;
+
+    /**
+     * Thread answering the requests that overflow the queue of the pool.
+     */
+    private final ExecutorService overflow;
+
+    /**
+     * Buffer the bodies of turned away requests are read into, used by the
+     * overflow thread only.
+     */
+    private final byte[] discarded = new byte[INITIAL_BODY];
+
+    /**
+     * Whether the current thread is the overflow thread.
+     */
+    private final ThreadLocal<Boolean> turningAway = ThreadLocal
+            .withInitial(() -> false);
+
+    /**
+     * Whether the current thread is closing a request no thread can take.
+     */
+    private final ThreadLocal<Boolean> closing = ThreadLocal
+            .withInitial(() -> false);
+
+    /**
+     * Ranked counts by body digest.
+     */
+    private final LruCache<String, RankedCounts> counts;
+
+    /**
+     * Rendered responses by body digest, {@code n}, format and title.
+     */
+    private final LruCache<String, byte[]> pages;
+
+    /**
+     * A request thread's reusable counters, table and body buffer.
+     */
+    private final class Worker {
+
+        /**
+         * Table receiving the counts of the current request.
+         */
+        private final WordCounts counts = new WordCounts();
+
+        /**
+         * Filtering sink in front of the table, shared by both counters.
+         */
+        private final TokenSink sink = TagCloudServer.this.filter
+                .filter(this.counts);
+
+        /**
+         * Counter for UTF-8 bodies.
+         */
+        private final MappedWordCounter mapped = new MappedWordCounter(
+                TagCloudServer.this.tokenizer, TagCloudServer.this.folding,
+                this.sink);
+
+        /**
+         * Counter for bodies in other charsets.
+         */
+        private final ReaderWordCounter reader = new ReaderWordCounter(
+                TagCloudServer.this.tokenizer, TagCloudServer.this.folding,
+                this.sink);
+
+        /**
+         * Buffer holding the body of the current request.
+         */
+        private byte[] body = new byte[INITIAL_BODY];
+
+        /**
+         * Digest of request bodies.
+         */
+        private final MessageDigest digest;
+
+        /**
+         * Creates the state of a request thread.
+         */
+        Worker() {
+            try {
+                this.digest = MessageDigest.getInstance("SHA-256");
+            } catch (NoSuchAlgorithmException e) {
+                /* Every Java platform is required to support SHA-256 */
+                throw new IllegalStateException(e);
+            }
+        }
+
+        /**
+         * Returns the key of the first {@code length} bytes of {@code body}
+         * read in {@code bodyCharset}: their digest and the charset.
+         *
+         * @param length
+         *            the number of bytes of the body
+         * @param bodyCharset
+         *            the charset of the body
+         * @return the cache key of the body
+         */
+        String key(int length, Charset bodyCharset) {
+            this.digest.update(this.body, 0, length);
+            return HexFormat.of().formatHex(this.digest.digest()) + ' '
+                    + bodyCharset.name();
+        }
+
+        /**
+         * Reads all of {@code in} into {@code body}.
+         *
+         * @param in
+         *            the request body
+         * @return the number of bytes read, or -1 if the body is larger than
+         *         {@link TagCloudServer#MAX_BODY}
+         * @throws IOException
+         *             if the body cannot be read
+         */
+        int read(InputStream in) throws IOException {
+            int length = 0;
+            int read = 0;
+            while (read >= 0 && length <= MAX_BODY) {
+                if (length == this.body.length) {
+                    this.body = Arrays.copyOf(this.body,
+                            Math.min(MAX_BODY + 1, 2 * this.body.length));
+                }
+                read = in.read(this.body, length, this.body.length - length);
+                if (read > 0) {
+                    length += read;
+                }
+            }
+            if (length > MAX_BODY) {
+                length = -1;
+            }
+            return length;
+        }
+
+        /**
+         * Counts the first {@code length} bytes of {@code body}, replacing
+         * the counts of the previous request.
+         *
+         * @param length
+         *            the number of bytes of the body
+         * @param bodyCharset
+         *            the charset of the body
+         * @throws IOException
+         *             if the body cannot be decoded
+         */
+        void count(int length, Charset bodyCharset) throws IOException {
+            this.counts.clear();
+            if (StandardCharsets.UTF_8.equals(bodyCharset)) {
+                this.mapped.count(ByteBuffer.wrap(this.body), 0, length);
+            } else {
+                this.reader.count(new BufferedReader(new InputStreamReader(
+                        new ByteArrayInputStream(this.body, 0, length),
+                        bodyCharset)));
+            }
+        }
+    }
+
+    /**
+     * Creates a server on {@code port} counting words as the batch mode does,
+     * running requests on {@code threads} threads. The server does not
+     * accept requests until {@link #start()}.
+     *
+     * @param port
+     *            the port to listen on, 0 for any free port
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param filter
+     *            the filter words pass through before they are counted
+     * @param charset
+     *            the charset of request bodies that do not name one
+     * @param threads
+     *            the number of request threads
+     * @param defaultCount
+     *            the number of words when a request does not give {@code n}
+     * @param cacheSize
+     *            the size in bytes of the result caches together
+     * @throws IOException
+     *             if the port cannot be bound
+     * @requires threads > 0 and defaultCount > 0 and cacheSize >= 0
+     */
+    public TagCloudServer(int port, Tokenizer tokenizer,
+            CaseFolding folding, TokenFilter filter, Charset charset,
+            int threads, int defaultCount, long cacheSize)
+            throws IOException {
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+        assert filter != null : "Violation of: filter is not null";
+        assert charset != null : "Violation of: charset is not null";
+        assert threads > 0 : "Violation of: threads > 0";
+        assert defaultCount > 0 : "Violation of: defaultCount > 0";
+
+        this.tokenizer = tokenizer;
+        this.folding = folding;
+        this.filter = filter;
+        this.charset = charset;
+        this.defaultCount = defaultCount;
+        this.counts = new LruCache<>(cacheSize / 2, RankedCounts::bytes);
+        this.pages = new LruCache<>(cacheSize - cacheSize / 2,
+                page -> page.length);
+        /*
+         * A request the full queue rejects is handed to the overflow thread,
+         * which only answers 503: running it on the caller would block the
+         * server's dispatcher thread. One the overflow thread cannot take
+         * either is closed on the caller, which does not read its body
+         */
+        this.overflow = new ThreadPoolExecutor(1, 1, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(OVERFLOW_QUEUE),
+                task -> new Thread(() -> {
+                    this.turningAway.set(true);
+                    task.run();
+                }, "tagcloud-overflow"),
+                (exchange, executor) -> this.close(exchange));
+        this.pool = new ThreadPoolExecutor(threads, threads, 0,
+                TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(threads * QUEUE_PER_THREAD),
+                (exchange, executor) -> this.overflow.execute(exchange));
+        this.server = HttpServer.create(new InetSocketAddress(port), 0);
+        this.server.setExecutor(this.pool);
+        this.server.createContext(PATH,
+                exchange -> this.admit(exchange, this::handle));
+        this.server.createContext(STATS_PATH,
+                exchange -> this.admit(exchange, this::handleStats));
+    }
+
+    /**
+     * Starts accepting requests, on background threads.
+     */
+    public void start() {
+        this.server.start();
+    }
+
+    /**
+     * Stops accepting requests, waits up to {@code delay} seconds for the
+     * current ones to finish and stops the request threads.
+     *
+     * @param delay
+     *            the longest wait in seconds
+     * @requires delay >= 0
+     */
+    public void stop(int delay) {
+        this.server.stop(delay);
+        this.pool.shutdown();
+        this.overflow.shutdown();
+    }
+
+    /**
+     * Runs {@code exchange}, a request rejected by both the pool and the
+     * overflow thread, on the current thread so that it is closed at once.
+     *
+     * @param exchange
+     *            the task of the request
+     */
+    private void close(Runnable exchange) {
+        this.closing.set(true);
+        try {
+            exchange.run();
+        } finally {
+            this.closing.set(false);
+        }
+    }
+
+    /**
+     * Returns the port the server listens on.
+     *
+     * @return the bound port
+     */
+    public int port() {
+        return this.server.getAddress().getPort();
+    }
+
+    /**
+     * Parses the query string of a request into its parameters.
+     *
+     * @param query
+     *            the raw query, or {@code null}
+     * @return the decoded parameters; the last value of a repeated one wins
+     */
+    private static Map<String, String> parameters(String query) {
+        Map<String, String> parameters = new HashMap<>();
+        if (query != null) {
+            for (String pair : query.split("&")) {
+                int equals = pair.indexOf('=');
+                if (equals > 0) {
+                    parameters.put(
+                            URLDecoder.decode(pair.substring(0, equals),
+                                    StandardCharsets.UTF_8),
+                            URLDecoder.decode(pair.substring(equals + 1),
+                                    StandardCharsets.UTF_8));
+                }
+            }
+        }
+        return parameters;
+    }
+
+    /**
+     * Returns the charset named in a {@code Content-Type} header.
+     *
+     * @param contentType
+     *            the header value, or {@code null}
+     * @param fallback
+     *            the charset when the header names none
+     * @return the charset of the body
+     * @throws IllegalArgumentException
+     *             if the named charset is not supported
+     */
+    private static Charset bodyCharset(String contentType, Charset fallback) {
+        Charset result = fallback;
+        if (contentType != null) {
+            for (String parameter : contentType.split(";")) {
+                String trimmed = parameter.trim();
+                if (trimmed.regionMatches(true, 0, "charset=", 0,
+                        "charset=".length())) {
+                    result = Charset.forName(trimmed
+                            .substring("charset=".length()).replace("\"", ""));
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Sends a plain text error response.
+     *
+     * @param exchange
+     *            the request
+     * @param status
+     *            the HTTP status
+     * @param message
+     *            the error message
+     * @throws IOException
+     *             if the response cannot be sent
+     */
+    private static void sendError(HttpExchange exchange, int status,
+            String message) throws IOException {
+        byte[] bytes = (message + System.lineSeparator())
+                .getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type",
+                "text/plain; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        exchange.getResponseBody().write(bytes);
+    }
+
+    /**
+     * Passes {@code exchange} on to {@code handler}, unless it overflowed the
+     * queue: then its body is discarded and it is answered with 503 and a
+     * {@code Retry-After} header, or, if it overflowed the overflow queue
+     * too, it is closed without an answer.
+     *
+     * @param exchange
+     *            the request
+     * @param handler
+     *            the handler of the request's path
+     * @throws IOException
+     *             if the request cannot be answered
+     */
+    private void admit(HttpExchange exchange, HttpHandler handler)
+            throws IOException {
+        if (this.closing.get()) {
+            /* With no response sent, this closes the connection at once */
+            exchange.close();
+        } else if (this.turningAway.get()) {
+            try (exchange) {
+                /*
+                 * Clients may not read the answer until they sent the body.
+                 * It is read, as skip() is not limited to the body
+                 */
+                InputStream body = exchange.getRequestBody();
+                int read = 0;
+                for (long left = MAX_BODY; read >= 0 && left > 0;
+                        left -= read) {
+                    read = body.read(this.discarded);
+                }
+                exchange.getResponseHeaders().set("Retry-After",
+                        RETRY_AFTER);
+                sendError(exchange, SERVICE_UNAVAILABLE,
+                        "Too many requests queued; retry later");
+            }
+        } else {
+            handler.handle(exchange);
+        }
+    }
+
+    /**
+     * Answers one request with the cloud of its body.
+     *
+     * @param exchange
+     *            the request
+     * @throws IOException
+     *             if the request cannot be read or answered
+     */
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                exchange.getResponseHeaders().set("Allow", "POST");
+                sendError(exchange, METHOD_NOT_ALLOWED,
+                        "Send the text with POST");
+                return;
+            }
+            Map<String, String> parameters = parameters(
+                    exchange.getRequestURI().getRawQuery());
+            int count = this.defaultCount;
+            if (parameters.containsKey("n")) {
+                try {
+                    count = Integer.parseInt(parameters.get("n"));
+                } catch (NumberFormatException e) {
+                    count = 0;
+                }
+                if (count <= 0) {
+                    sendError(exchange, BAD_REQUEST,
+                            "n must be a positive integer");
+                    return;
+                }
+            }
+            OutputFormat format;
+            try {
+                format = OutputFormat
+                        .named(parameters.getOrDefault("format", "html"));
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, BAD_REQUEST,
+                        "format must be html, json, csv or svg");
+                return;
+            }
+            Charset bodyCharset;
+            try {
+                bodyCharset = bodyCharset(exchange.getRequestHeaders()
+                        .getFirst("Content-Type"), this.charset);
+            } catch (IllegalArgumentException e) {
+                sendError(exchange, UNSUPPORTED_MEDIA_TYPE,
+                        "Unsupported charset");
+                return;
+            }
+
+            Worker worker = this.workers.get();
+            try {
+                int length = worker.read(exchange.getRequestBody());
+                if (length < 0) {
+                    sendError(exchange, TOO_LARGE,
+                            "Body larger than " + MAX_BODY + " bytes");
+                    return;
+                }
+                String title = parameters.getOrDefault("title", "request");
+                String key = worker.key(length, bodyCharset);
+                String pageKey = key + '\n' + count + '\n' + format + '\n'
+                        + title;
+
+                String level = "page";
+                byte[] page = this.pages.get(pageKey);
+                if (page == null) {
+                    level = "counts";
+                    RankedCounts ranked = this.counts.get(key);
+                    TopWords top;
+                    if (ranked != null) {
+                        top = ranked.top(count);
+                    } else {
+                        level = "miss";
+                        worker.count(length, bodyCharset);
+                        /*
+                         * Ranks every word only for the cache to keep;
+                         * otherwise selecting the top words is cheaper
+                         */
+                        if (this.counts
+                                .fits(RankedCounts.bytes(worker.counts))) {
+                            ranked = new RankedCounts(worker.counts);
+                            this.counts.put(key, ranked);
+                            top = ranked.top(count);
+                        } else {
+                            top = TagCloud.selectTop(worker.counts, count);
+                        }
+                    }
+                    page = render(format, TagCloud.sortAlphabetically(top),
+                            title);
+                    this.pages.put(pageKey, page);
+                }
+
+                exchange.getResponseHeaders().set("Content-Type",
+                        format.contentType());
+                exchange.getResponseHeaders().set("X-Cache", level);
+                exchange.sendResponseHeaders(OK, page.length);
+                exchange.getResponseBody().write(page);
+            } finally {
+                this.release(worker);
+            }
+        }
+    }
+
+    /**
+     * Returns the cloud of {@code alphabetical} in {@code format}.
+     *
+     * @param format
+     *            the output format
+     * @param alphabetical
+     *            the selected words in alphabetical order
+     * @param title
+     *            the name of the input
+     * @return the rendered cloud
+     * @throws IOException
+     *             if the cloud cannot be rendered
+     */
+    private static byte[] render(OutputFormat format,
+            List<Entry<String, Long>> alphabetical, String title)
+            throws IOException {
+        ByteArrayOutputStream rendered = new ByteArrayOutputStream();
+        ChannelOutput out = new ChannelOutput(Channels.newChannel(rendered));
+        format.renderer(out).render(alphabetical, title);
+        return rendered.toByteArray();
+    }
+
+    /**
+     * Drops the state of the current thread if {@code worker}, its state,
+     * grew past {@link #RETAINED_BYTES} for the last request; the next
+     * request on the thread then starts from a new, small state.
+     *
+     * @param worker
+     *            the state of the current thread
+     */
+    private void release(Worker worker) {
+        if (worker.body.length > RETAINED_BYTES
+                || worker.counts.bytes() > RETAINED_BYTES) {
+            this.workers.remove();
+        }
+    }
+
+    /**
+     * Answers a request for the cache counters with a JSON object.
+     *
+     * @param exchange
+     *            the request
+     * @throws IOException
+     *             if the response cannot be sent
+     */
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!exchange.getRequestMethod().equals("GET")) {
+                exchange.getResponseHeaders().set("Allow", "GET");
+                sendError(exchange, METHOD_NOT_ALLOWED,
+                        "Ask for the counters with GET");
+                return;
+            }
+            byte[] stats = ("{\"counts\":" + this.counts.toJson()
+                    + ",\"pages\":" + this.pages.toJson() + "}"
+                    + System.lineSeparator()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type",
+                    "application/json; charset=utf-8");
+            exchange.sendResponseHeaders(OK, stats.length);
+            exchange.getResponseBody().write(stats);
+        }
+    }
+
+}
@@ -0,0 +1,74 @@
+package tagcloud;
+
+/**
+ * Stage between the scanners and the counts that drops or rewrites words,
+ * such as {@link StopWords} and {@link Stemming}.
+ *
+ * <p>
+ * Counters take a filter rather than a sink so that each thread can build
+ * its own chain in front of its own table: a filter that keeps state, such as
+ * a cache, returns a new sink from every call to {@link #filter}.
+ * </p>
+ */
+public interface TokenFilter {
+
+    /**
+     * Returns a sink passing the words that get through this filter, possibly
+     * rewritten, on to {@code next}. The sink is used by a single thread.
+     *
+     * @param next
+     *            the sink receiving the filtered words
+     * @return the filtering sink, or {@code next} itself if this filter
+     *         passes every word unchanged
+     */
+    TokenSink filter(TokenSink next);
+
+    /**
+     * Returns a fingerprint of this filter, equal for filters that pass the
+     * same words, to recognize counts saved with another filter.
+     *
+     * @return the fingerprint
+     */
+    long fingerprint();
+
+    /**
+     * Returns the filter passing words through this filter and then through
+     * {@code after}.
+     *
+     * @param after
+     *            the filter applied to the words this one passes
+     * @return the combined filter
+     */
+    default TokenFilter then(TokenFilter after) {
+        assert after != null : "Violation of: after is not null";
+
+        TokenFilter before = this;
+        return new TokenFilter() {
+
+            /**
+             * Returns this filter's sink in front of {@code after}'s.
+             *
+             * @param next
+             *            the sink receiving the filtered words
+             * @return the filtering sink
+             */
+            @Override
+            public TokenSink filter(TokenSink next) {
+                return before.filter(after.filter(next));
+            }
+
+            /**
+             * Returns a fingerprint of both filters, in order.
+             *
+             * @return the fingerprint
+             */
+            @Override
+            public long fingerprint() {
+                return SpanHash.rehash(before.fingerprint(),
+                        after.fingerprint());
+            }
+
+        };
+    }
+
+}
@@ -0,0 +1,61 @@
+package tagcloud;
+
+/**
+ * Receiver of the words found by a scanner, each handed over as a span of the
+ * scanner's buffer.
+ *
+ * <p>
+ * Counters push every word into a sink; the last sink of a chain is normally
+ * a {@link WordCounts} table, with the sinks of {@link TokenFilter}s such as
+ * {@link StopWords} in front of it. The span is only valid
+ * during the call: a sink that keeps a word must copy it.
+ * </p>
+ */
+@FunctionalInterface
+public interface TokenSink {
+
+    /**
+     * Receives the word {@code text[offset, offset + length)}.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @requires 0 <= offset and 0 < length and offset + length <= |text|
+     */
+    void accept(char[] text, int offset, int length);
+
+    /**
+     * Receives the word {@code text[offset, offset + length)} whose
+     * {@code String} hash code is already known, as computed by a rolling
+     * hash. A sink that hashes words the same way overrides this to skip
+     * hashing again; by default the hash is ignored.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @param hash
+     *            the hash code of the word
+     * @requires <pre>
+     * 0 <= offset and 0 < length and offset + length <= |text|  and
+     * hash = new String(text, offset, length).hashCode()
+     * </pre>
+     */
+    default void accept(char[] text, int offset, int length, int hash) {
+        this.accept(text, offset, length);
+    }
+
+    /**
+     * Marks the end of a text: the next word does not follow the previous
+     * one. Sinks that look at consecutive words override this; by default
+     * it does nothing.
+     */
+    default void endText() {
+    }
+
+}
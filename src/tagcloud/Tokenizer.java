@@ -0,0 +1,33 @@
+package tagcloud;
+
+/**
+ * Rule splitting text into words: every maximal run of characters that are
+ * not separators is a word.
+ *
+ * <p>
+ * The rule is a test of single {@code char} values so scanners can apply it
+ * in their inner loops, and the byte-level counters can decide each ASCII
+ * byte once up front. Implementations answer in constant time without
+ * allocating, normally from a table.
+ * </p>
+ */
+public interface Tokenizer {
+
+    /**
+     * Reports whether {@code c} separates words.
+     *
+     * @param c
+     *            the character to test
+     * @return true iff {@code c} is not part of any word
+     */
+    boolean isSeparator(char c);
+
+    /**
+     * Returns a fingerprint of this rule, equal for tokenizers that split
+     * every text the same way, to recognize counts saved with another rule.
+     *
+     * @return the fingerprint
+     */
+    long fingerprint();
+
+}
@@ -0,0 +1,179 @@
+package tagcloud;
+
+import java.util.AbstractMap.SimpleImmutableEntry;
+import java.util.ArrayList;
+import java.util.Map.Entry;
+
+/**
+ * Keeps the {@code k} words with the highest counts out of a stream of
+ * (word, count) pairs.
+ *
+ * <p>
+ * Words are ranked by decreasing count, ties broken alphabetically. The kept
+ * words sit in a size-{@code k} min-heap whose root is the lowest ranked of
+ * them, so selecting from {@code n} words costs O(n log k) time and O(k)
+ * space instead of sorting all {@code n}.
+ * </p>
+ */
+public final class TopWords {
+
+    /**
+     * Kept words, in heap order.
+     */
+    private final String[] words;
+
+    /**
+     * Counts of the kept words, parallel to {@code words}.
+     */
+    private final long[] counts;
+
+    /**
+     * Number of kept words.
+     */
+    private int size;
+
+    /**
+     * Creates an empty selection of at most {@code k} words.
+     *
+     * @param k
+     *            the number of words to keep
+     * @requires k >= 0
+     */
+    public TopWords(int k) {
+        assert k >= 0 : "Violation of: k >= 0";
+        this.words = new String[k];
+        this.counts = new long[k];
+    }
+
+    /**
+     * Reports whether (a, countA) ranks below (b, countB).
+     *
+     * @param a
+     *            the first word
+     * @param countA
+     *            the count of {@code a}
+     * @param b
+     *            the second word
+     * @param countB
+     *            the count of {@code b}
+     * @return true iff {@code a} ranks lower than {@code b}
+     */
+    private static boolean ranksBelow(String a, long countA, String b,
+            long countB) {
+        return countA < countB || (countA == countB && a.compareTo(b) > 0);
+    }
+
+    /**
+     * Reports whether a word with {@code count} occurrences could still be
+     * kept. Callers can use this to skip building the word at all.
+     *
+     * @param count
+     *            the count of a candidate word
+     * @return false if the candidate is certain to be rejected by
+     *         {@link #offer}
+     */
+    public boolean accepts(long count) {
+        return this.size < this.words.length
+                || (this.size > 0 && count >= this.counts[0]);
+    }
+
+    /**
+     * Offers a word, keeping it if it ranks among the top {@code k} so far.
+     *
+     * @param word
+     *            the word
+     * @param count
+     *            the count of {@code word}
+     */
+    public void offer(String word, long count) {
+        assert word != null : "Violation of: word is not null";
+
+        if (this.size < this.words.length) {
+            /* Not full yet: append and sift the new word up */
+            int i = this.size;
+            this.size++;
+            while (i > 0) {
+                int parent = (i - 1) >>> 1;
+                if (!ranksBelow(word, count, this.words[parent],
+                        this.counts[parent])) {
+                    break;
+                }
+                this.words[i] = this.words[parent];
+                this.counts[i] = this.counts[parent];
+                i = parent;
+            }
+            this.words[i] = word;
+            this.counts[i] = count;
+        } else if (this.size > 0
+                && ranksBelow(this.words[0], this.counts[0], word, count)) {
+            /* Full: the new word replaces the lowest ranked one */
+            this.siftDown(word, count);
+        }
+    }
+
+    /**
+     * Places (word, count) at the root and sifts it down to restore the heap.
+     *
+     * @param word
+     *            the word replacing the root
+     * @param count
+     *            the count of {@code word}
+     */
+    private void siftDown(String word, long count) {
+        int i = 0;
+        int half = this.size >>> 1;
+        while (i < half) {
+            int child = 2 * i + 1;
+            int right = child + 1;
+            if (right < this.size && ranksBelow(this.words[right],
+                    this.counts[right], this.words[child],
+                    this.counts[child])) {
+                child = right;
+            }
+            if (!ranksBelow(this.words[child], this.counts[child], word,
+                    count)) {
+                break;
+            }
+            this.words[i] = this.words[child];
+            this.counts[i] = this.counts[child];
+            i = child;
+        }
+        this.words[i] = word;
+        this.counts[i] = count;
+    }
+
+    /**
+     * Returns the number of kept words.
+     *
+     * @return the number of kept words
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the lowest count among the kept words.
+     *
+     * @return the count of the lowest ranked kept word
+     * @requires size() > 0
+     */
+    public long minCount() {
+        assert this.size > 0 : "Violation of: size() > 0";
+        return this.counts[0];
+    }
+
+    /**
+     * Returns the kept words as (word, count) pairs in no particular order.
+     *
+     * @return the kept words
+     */
+    public ArrayList<Entry<String, Long>> entries() {
+        ArrayList<Entry<String, Long>> result = new ArrayList<>(this.size);
+        for (int i = 0; i < this.size; i++) {
+            result.add(new SimpleImmutableEntry<>(this.words[i],
+                    this.counts[i]));
+        }
+        return result;
+    }
+
+}
@@ -0,0 +1,74 @@
+package tagcloud;
+
+/**
+ * Tokenizer splitting words by Unicode general category, for text in any
+ * language: words are runs of letters, combining marks and digits, and
+ * every other character (spaces, punctuation such as curly quotes and
+ * dashes, symbols and controls) separates them.
+ *
+ * <p>
+ * The category of every {@code char} value is looked up once, when the
+ * tokenizer is created, into the bit table of a {@link SeparatorSet}, so
+ * {@link #isSeparator} costs the same as with a fixed separator list. Zero
+ * width joiners and non-joiners are kept inside words, as some scripts need
+ * them. Surrogates are kept too: a supplementary character such as a rare
+ * ideograph cannot be classified from one half alone, and splitting it
+ * would garble it.
+ * </p>
+ */
+public final class UnicodeTokenizer implements Tokenizer {
+
+    /**
+     * Bit mask of the general categories of word characters.
+     */
+    private static final int WORD_CATEGORIES = 1 << Character.UPPERCASE_LETTER
+            | 1 << Character.LOWERCASE_LETTER
+            | 1 << Character.TITLECASE_LETTER
+            | 1 << Character.MODIFIER_LETTER | 1 << Character.OTHER_LETTER
+            | 1 << Character.NON_SPACING_MARK
+            | 1 << Character.ENCLOSING_MARK
+            | 1 << Character.COMBINING_SPACING_MARK
+            | 1 << Character.DECIMAL_DIGIT_NUMBER
+            | 1 << Character.LETTER_NUMBER | 1 << Character.OTHER_NUMBER
+            | 1 << Character.SURROGATE;
+
+    /**
+     * Zero width non-joiner.
+     */
+    private static final char ZWNJ = '\u200C';
+
+    /**
+     * Zero width joiner.
+     */
+    private static final char ZWJ = '\u200D';
+
+    /**
+     * Separators, decided once per {@code char} value.
+     */
+    private final SeparatorSet separators = new SeparatorSet(
+            c -> (WORD_CATEGORIES & 1 << Character.getType(c)) == 0
+                    && c != ZWNJ && c != ZWJ);
+
+    /**
+     * Reports whether {@code c} separates words.
+     *
+     * @param c
+     *            the character to test
+     * @return true iff {@code c} is neither a letter, a mark nor a digit
+     */
+    @Override
+    public boolean isSeparator(char c) {
+        return this.separators.isSeparator(c);
+    }
+
+    /**
+     * Returns a fingerprint of the separators of this tokenizer.
+     *
+     * @return the fingerprint
+     */
+    @Override
+    public long fingerprint() {
+        return this.separators.fingerprint();
+    }
+
+}
@@ -0,0 +1,278 @@
+package tagcloud;
+
+import java.util.Arrays;
+
+/**
+ * Append-only store of the characters of many words in one {@code char[]}.
+ *
+ * <p>
+ * A word is referred to by its start in the arena and its length, so a table
+ * of a million words holds two {@code int}s per word instead of a
+ * {@code String} and its array, each with an object header. Words can be
+ * compared and encoded as UTF-8 straight from the arena, without being
+ * copied into a {@code String} first.
+ * </p>
+ */
+public final class WordArena {
+
+    /**
+     * Default number of characters.
+     */
+    private static final int DEFAULT_CAPACITY = 1 << 13;
+
+    /**
+     * Largest number of characters an arena can hold.
+     */
+    private static final int MAX_CAPACITY = Integer.MAX_VALUE - 8;
+
+    /**
+     * Characters of all words, concatenated; only the first {@code length}
+     * are used.
+     */
+    private char[] chars;
+
+    /**
+     * Number of characters used.
+     */
+    private int length;
+
+    /**
+     * Creates an empty arena.
+     */
+    public WordArena() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty arena with room for {@code capacity} characters.
+     *
+     * @param capacity
+     *            the initial number of characters
+     * @requires capacity >= 0
+     */
+    public WordArena(int capacity) {
+        assert capacity >= 0 : "Violation of: capacity >= 0";
+
+        this.chars = new char[Math.max(capacity, 1)];
+    }
+
+    /**
+     * Appends the word {@code text[offset, offset + length)} and returns its
+     * start.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @return the start of the copy in this arena
+     * @throws IllegalStateException
+     *             if the arena would exceed the largest array
+     * @requires 0 <= offset and 0 <= length and offset + length <= |text|
+     */
+    public int add(char[] text, int offset, int length) {
+        int start = this.length;
+        if (this.chars.length - start < length) {
+            if (MAX_CAPACITY - start < length) {
+                throw new IllegalStateException("Vocabulary too large");
+            }
+            int capacity = (int) Math.min(MAX_CAPACITY,
+                    Math.max(2L * this.chars.length, (long) start + length));
+            this.chars = Arrays.copyOf(this.chars, capacity);
+        }
+        System.arraycopy(text, offset, this.chars, start, length);
+        this.length = start + length;
+        return start;
+    }
+
+    /**
+     * Removes every word, keeping the allocated characters for reuse.
+     *
+     * @clears this
+     */
+    public void clear() {
+        this.length = 0;
+    }
+
+    /**
+     * Returns the characters of this arena. The array is shared, not copied,
+     * and must not be modified; it is replaced when the arena grows.
+     *
+     * @return the characters, of which the first {@code length()} are used
+     */
+    public char[] chars() {
+        return this.chars;
+    }
+
+    /**
+     * Returns the number of characters used.
+     *
+     * @return the number of characters in all words
+     */
+    public int length() {
+        return this.length;
+    }
+
+    /**
+     * Returns the size of this arena in bytes.
+     *
+     * @return the memory used by the characters
+     */
+    public long bytes() {
+        return (long) this.chars.length * Character.BYTES;
+    }
+
+    /**
+     * Reports whether the word at {@code start} equals the word
+     * {@code text[offset, offset + length)}.
+     *
+     * @param start
+     *            the start of a word of this arena
+     * @param text
+     *            the buffer holding the other word
+     * @param offset
+     *            the index of the first character of the other word
+     * @param length
+     *            the number of characters in both words
+     * @return true iff the words hold the same characters
+     * @requires [the word at start has length characters]
+     */
+    public boolean equals(int start, char[] text, int offset, int length) {
+        return Arrays.equals(this.chars, start, start + length, text, offset,
+                offset + length);
+    }
+
+    /**
+     * Compares two words of this arena in {@code String} order.
+     *
+     * @param start1
+     *            the start of the first word
+     * @param length1
+     *            the length of the first word
+     * @param start2
+     *            the start of the second word
+     * @param length2
+     *            the length of the second word
+     * @return negative, zero or positive as the first word is less than,
+     *         equal to or greater than the second
+     */
+    public int compare(int start1, int length1, int start2, int length2) {
+        return Arrays.compare(this.chars, start1, start1 + length1, this.chars,
+                start2, start2 + length2);
+    }
+
+    /**
+     * Returns the word at {@code start} as a {@code String}.
+     *
+     * @param start
+     *            the start of the word
+     * @param length
+     *            the length of the word
+     * @return a copy of the word
+     */
+    public String string(int start, int length) {
+        return new String(this.chars, start, length);
+    }
+
+    /**
+     * Returns the number of bytes of the UTF-8 encoding of the word at
+     * {@code start}, as written by {@link #encode(int, int, byte[], int)}.
+     *
+     * @param start
+     *            the start of the word
+     * @param length
+     *            the length of the word
+     * @return the encoded length in bytes
+     */
+    public int utf8Length(int start, int length) {
+        final int oneByte = 0x80;
+        final int twoBytes = 0x800;
+
+        int bytes = 0;
+        int end = start + length;
+        for (int i = start; i < end; i++) {
+            char c = this.chars[i];
+            if (c < oneByte) {
+                bytes++;
+            } else if (c < twoBytes) {
+                bytes += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(this.chars[i + 1])) {
+                bytes += 4;
+                i++;
+            } else if (Character.isSurrogate(c)) {
+                bytes++;
+            } else {
+                bytes += 3;
+            }
+        }
+        return bytes;
+    }
+
+    /**
+     * Encodes the word at {@code start} as UTF-8 into {@code target} at
+     * {@code position}. An unpaired surrogate is written as '?', like
+     * {@code String.getBytes}.
+     *
+     * @param start
+     *            the start of the word
+     * @param length
+     *            the length of the word
+     * @param target
+     *            the array receiving the bytes
+     * @param position
+     *            the index in {@code target} of the first byte
+     * @return the index in {@code target} after the last byte
+     * @updates target
+     * @requires position + utf8Length(start, length) <= |target|
+     */
+    public int encode(int start, int length, byte[] target, int position) {
+        final int oneByte = 0x80;
+        final int twoBytes = 0x800;
+        final int sixBits = 6;
+        final int twelveBits = 12;
+        final int eighteenBits = 18;
+        final int lead2 = 0xC0;
+        final int lead3 = 0xE0;
+        final int lead4 = 0xF0;
+        final int continuation = 0x80;
+        final int payload = 0x3F;
+
+        int p = position;
+        int end = start + length;
+        for (int i = start; i < end; i++) {
+            char c = this.chars[i];
+            if (c < oneByte) {
+                target[p] = (byte) c;
+                p++;
+            } else if (c < twoBytes) {
+                target[p] = (byte) (lead2 | (c >> sixBits));
+                target[p + 1] = (byte) (continuation | (c & payload));
+                p += 2;
+            } else if (Character.isHighSurrogate(c) && i + 1 < end
+                    && Character.isLowSurrogate(this.chars[i + 1])) {
+                int cp = Character.toCodePoint(c, this.chars[i + 1]);
+                i++;
+                target[p] = (byte) (lead4 | (cp >> eighteenBits));
+                target[p + 1] = (byte) (continuation
+                        | ((cp >> twelveBits) & payload));
+                target[p + 2] = (byte) (continuation
+                        | ((cp >> sixBits) & payload));
+                target[p + 3] = (byte) (continuation | (cp & payload));
+                p += 4;
+            } else if (Character.isSurrogate(c)) {
+                target[p] = (byte) '?';
+                p++;
+            } else {
+                target[p] = (byte) (lead3 | (c >> twelveBits));
+                target[p + 1] = (byte) (continuation
+                        | ((c >> sixBits) & payload));
+                target[p + 2] = (byte) (continuation | (c & payload));
+                p += 3;
+            }
+        }
+        return p;
+    }
+
+}
@@ -0,0 +1,443 @@
+package tagcloud;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * Versioned binary snapshot of a word-count table, so a cloud can be
+ * rendered again, with any number of words, without tokenizing the input.
+ *
+ * <p>
+ * Words are stored in rank order (decreasing count, ties alphabetical), so
+ * the top {@code n} words are simply the first {@code n} entries and reading
+ * them touches O(n) bytes. Layout, all big-endian:
+ * </p>
+ *
+ * <pre>
+ * header:      magic "TCSN", int version, int flags, int word count,
+ *              long dictionary size, int length and UTF-8 bytes of
+ *              the source name
+ * offsets:     int[word count + 1], start of each word in the dictionary
+ * dictionary:  UTF-8 bytes of every word, concatenated
+ * counts:      one unsigned LEB128 varint per word
+ * </pre>
+ *
+ * <p>
+ * When the {@code COMPRESSED} flag is set everything after the header is
+ * deflated and read back as a stream; otherwise the file is memory-mapped and
+ * only the needed offsets, words and counts are decoded.
+ * </p>
+ */
+public final class WordCountSnapshot {
+
+    /**
+     * First four bytes of every snapshot file, "TCSN".
+     */
+    private static final int MAGIC = 0x5443534E;
+
+    /**
+     * Current layout version.
+     */
+    private static final int VERSION = 1;
+
+    /**
+     * Flag set when the body is deflated.
+     */
+    private static final int COMPRESSED = 1;
+
+    /**
+     * Size of the fixed part of the header, before the source name length.
+     */
+    private static final int FIXED_HEADER = 24;
+
+    /**
+     * Low seven bits of a varint byte.
+     */
+    private static final int VARINT_PAYLOAD = 0x7F;
+
+    /**
+     * Continuation bit of a varint byte.
+     */
+    private static final int VARINT_MORE = 0x80;
+
+    /**
+     * Bits of payload per varint byte.
+     */
+    private static final int VARINT_SHIFT = 7;
+
+    /**
+     * Name of the input the counts were taken from.
+     */
+    private final String source;
+
+    /**
+     * Number of distinct words in the snapshot.
+     */
+    private final int size;
+
+    /**
+     * Highest ranked words read from the snapshot.
+     */
+    private final TopWords top;
+
+    /**
+     * Creates the result of reading a snapshot.
+     *
+     * @param source
+     *            the name of the counted input
+     * @param size
+     *            the number of distinct words in the snapshot
+     * @param top
+     *            the words read
+     */
+    private WordCountSnapshot(String source, int size, TopWords top) {
+        this.source = source;
+        this.size = size;
+        this.top = top;
+    }
+
+    /**
+     * Returns the name of the input the counts were taken from.
+     *
+     * @return the source name
+     */
+    public String source() {
+        return this.source;
+    }
+
+    /**
+     * Returns the number of distinct words in the snapshot.
+     *
+     * @return the number of distinct words
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the highest ranked words read.
+     *
+     * @return the top words
+     */
+    public TopWords top() {
+        return this.top;
+    }
+
+    /**
+     * Writes {@code counts} to {@code file} as a snapshot.
+     *
+     * @param counts
+     *            the counts to save
+     * @param source
+     *            the name of the counted input
+     * @param file
+     *            the snapshot file to create or replace
+     * @param compress
+     *            whether to deflate everything after the header
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    public static void write(WordCounts counts, String source, Path file,
+            boolean compress) throws IOException {
+        assert counts != null : "Violation of: counts is not null";
+        assert source != null : "Violation of: source is not null";
+        assert file != null : "Violation of: file is not null";
+
+        int[] order = counts.slotsByRank();
+        /* Words are encoded straight from the arena, never as Strings */
+        WordArena arena = counts.arena();
+        int[] sizes = new int[order.length];
+        long dictionarySize = 0;
+        int longest = 0;
+        for (int i = 0; i < order.length; i++) {
+            sizes[i] = arena.utf8Length(counts.keyStart(order[i]),
+                    counts.keyLength(order[i]));
+            dictionarySize += sizes[i];
+            longest = Math.max(longest, sizes[i]);
+        }
+        if (dictionarySize > Integer.MAX_VALUE) {
+            throw new IOException("Vocabulary too large for a snapshot");
+        }
+
+        /*
+         * Writes a sibling file and moves it over the old snapshot, so a
+         * failed write never leaves a truncated snapshot behind
+         */
+        Path temporary = file.resolveSibling(file.getFileName() + ".tmp");
+        boolean written = false;
+        try {
+            writeFile(counts, source, temporary, compress, order, sizes,
+                    dictionarySize, longest);
+            try {
+                Files.move(temporary, file,
+                        StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temporary, file,
+                        StandardCopyOption.REPLACE_EXISTING);
+            }
+            written = true;
+        } finally {
+            if (!written) {
+                Files.deleteIfExists(temporary);
+            }
+        }
+    }
+
+    /**
+     * Writes the snapshot of {@code counts} to {@code file}, words in the
+     * order of {@code order}.
+     *
+     * @param counts
+     *            the counts to save
+     * @param source
+     *            the name of the counted input
+     * @param file
+     *            the file to create or replace
+     * @param compress
+     *            whether to deflate everything after the header
+     * @param order
+     *            the slots of {@code counts} in rank order
+     * @param sizes
+     *            the UTF-8 length of the word of each entry of {@code order}
+     * @param dictionarySize
+     *            the sum of {@code sizes}
+     * @param longest
+     *            the largest of {@code sizes}
+     * @throws IOException
+     *             if the file cannot be written
+     */
+    private static void writeFile(WordCounts counts, String source, Path file,
+            boolean compress, int[] order, int[] sizes,
+            long dictionarySize, int longest) throws IOException {
+        WordArena arena = counts.arena();
+        /* Only a compressed body needs a Deflater, and its memory is native */
+        Deflater deflater = compress ? new Deflater(Deflater.BEST_SPEED)
+                : null;
+        try (OutputStream stream = Files.newOutputStream(file)) {
+            byte[] sourceBytes = source.getBytes(StandardCharsets.UTF_8);
+            DataOutputStream header = new DataOutputStream(stream);
+            header.writeInt(MAGIC);
+            header.writeInt(VERSION);
+            header.writeInt(compress ? COMPRESSED : 0);
+            header.writeInt(order.length);
+            header.writeLong(dictionarySize);
+            header.writeInt(sourceBytes.length);
+            header.write(sourceBytes);
+            header.flush();
+
+            OutputStream body = new BufferedOutputStream(stream);
+            if (deflater != null) {
+                body = new DeflaterOutputStream(body, deflater);
+            }
+            DataOutputStream out = new DataOutputStream(body);
+            int offset = 0;
+            for (int size : sizes) {
+                out.writeInt(offset);
+                offset += size;
+            }
+            out.writeInt(offset);
+            byte[] bytes = new byte[longest];
+            for (int i = 0; i < order.length; i++) {
+                int end = arena.encode(counts.keyStart(order[i]),
+                        counts.keyLength(order[i]), bytes, 0);
+                out.write(bytes, 0, end);
+            }
+            for (int slot : order) {
+                writeVarint(out, counts.countAt(slot));
+            }
+            out.close();
+        } finally {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+    }
+
+    /**
+     * Writes {@code value} as an unsigned LEB128 varint.
+     *
+     * @param out
+     *            the stream to write to
+     * @param value
+     *            the non-negative value
+     * @throws IOException
+     *             if writing fails
+     */
+    private static void writeVarint(OutputStream out, long value)
+            throws IOException {
+        long v = value;
+        while ((v & ~VARINT_PAYLOAD) != 0) {
+            out.write((int) ((v & VARINT_PAYLOAD) | VARINT_MORE));
+            v >>>= VARINT_SHIFT;
+        }
+        out.write((int) v);
+    }
+
+    /**
+     * Reads the {@code n} highest ranked words of the snapshot in
+     * {@code file}.
+     *
+     * @param file
+     *            the snapshot file
+     * @param n
+     *            the number of words wanted
+     * @return the snapshot's source, size and top words; fewer than
+     *         {@code n} if the snapshot holds fewer
+     * @throws IOException
+     *             if the file cannot be read or is not a snapshot
+     * @requires n >= 0
+     */
+    public static WordCountSnapshot read(Path file, int n) throws IOException {
+        assert file != null : "Violation of: file is not null";
+        assert n >= 0 : "Violation of: n >= 0";
+
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            DataInputStream header = new DataInputStream(
+                    new BufferedInputStream(Channels.newInputStream(channel)));
+            if (header.readInt() != MAGIC) {
+                throw new IOException(file + " is not a word count snapshot");
+            }
+            int version = header.readInt();
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version "
+                        + version + " in " + file);
+            }
+            int flags = header.readInt();
+            int size = header.readInt();
+            long dictionarySize = header.readLong();
+            byte[] sourceBytes = new byte[header.readInt()];
+            header.readFully(sourceBytes);
+            String source = new String(sourceBytes, StandardCharsets.UTF_8);
+            long bodyStart = FIXED_HEADER + Integer.BYTES + sourceBytes.length;
+            int wanted = Math.min(n, size);
+
+            TopWords top;
+            if ((flags & COMPRESSED) != 0) {
+                channel.position(bodyStart);
+                top = readStream(new DataInputStream(new BufferedInputStream(
+                        new InflaterInputStream(
+                                Channels.newInputStream(channel)))),
+                        size, dictionarySize, wanted);
+            } else {
+                MappedByteBuffer body = channel.map(
+                        FileChannel.MapMode.READ_ONLY, bodyStart,
+                        channel.size() - bodyStart);
+                top = readMapped(body, size, dictionarySize, wanted);
+            }
+            return new WordCountSnapshot(source, size, top);
+        }
+    }
+
+    /**
+     * Reads the first {@code wanted} words of a mapped, uncompressed body.
+     *
+     * @param body
+     *            the mapped body
+     * @param size
+     *            the number of words in the snapshot
+     * @param dictionarySize
+     *            the size of the dictionary in bytes
+     * @param wanted
+     *            the number of words to read
+     * @return the words read
+     */
+    private static TopWords readMapped(ByteBuffer body, int size,
+            long dictionarySize, int wanted) {
+        int dictionaryStart = (size + 1) * Integer.BYTES;
+        int countsStart = (int) (dictionaryStart + dictionarySize);
+        TopWords top = new TopWords(wanted);
+        byte[] bytes = new byte[0];
+        int countPosition = countsStart;
+        for (int i = 0; i < wanted; i++) {
+            int start = body.getInt(i * Integer.BYTES);
+            int length = body.getInt((i + 1) * Integer.BYTES) - start;
+            if (bytes.length < length) {
+                bytes = new byte[length];
+            }
+            body.get(dictionaryStart + start, bytes, 0, length);
+            /* Decodes the next varint count */
+            long count = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = body.get(countPosition) & 0xFF;
+                countPosition++;
+                count |= (long) (b & VARINT_PAYLOAD) << shift;
+                shift += VARINT_SHIFT;
+            } while ((b & VARINT_MORE) != 0);
+            top.offer(new String(bytes, 0, length, StandardCharsets.UTF_8),
+                    count);
+        }
+        return top;
+    }
+
+    /**
+     * Reads the first {@code wanted} words of a compressed body, skipping
+     * over the rest of each section.
+     *
+     * @param in
+     *            the inflated body
+     * @param size
+     *            the number of words in the snapshot
+     * @param dictionarySize
+     *            the size of the dictionary in bytes
+     * @param wanted
+     *            the number of words to read
+     * @return the words read
+     * @throws IOException
+     *             if the body is truncated or cannot be read
+     */
+    private static TopWords readStream(DataInputStream in, int size,
+            long dictionarySize, int wanted) throws IOException {
+        int[] offsets = new int[wanted + 1];
+        for (int i = 0; i <= size; i++) {
+            int offset = in.readInt();
+            if (i <= wanted) {
+                offsets[i] = offset;
+            }
+        }
+        byte[] dictionary = new byte[offsets[wanted]];
+        in.readFully(dictionary);
+        in.skipNBytes(dictionarySize - dictionary.length);
+
+        TopWords top = new TopWords(wanted);
+        for (int i = 0; i < wanted; i++) {
+            long count = 0;
+            int shift = 0;
+            int b;
+            do {
+                b = in.read();
+                if (b < 0) {
+                    throw new EOFException("Truncated snapshot");
+                }
+                count |= (long) (b & VARINT_PAYLOAD) << shift;
+                shift += VARINT_SHIFT;
+            } while ((b & VARINT_MORE) != 0);
+            top.offer(new String(dictionary, offsets[i],
+                    offsets[i + 1] - offsets[i], StandardCharsets.UTF_8),
+                    count);
+        }
+        return top;
+    }
+
+}
@@ -0,0 +1,599 @@
+package tagcloud;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing table from words to occurrence counts.
+ *
+ * <p>
+ * Replaces {@code HashMap<String, Integer>} on the counting hot path: keys and
+ * counts live in parallel arrays, so an increment is a single linear probe
+ * with no {@code Entry} or boxed {@code Integer} allocation. The characters of
+ * the keys are stored in a {@link WordArena}, and a slot holds only the start
+ * and length of its key there, so a word costs its characters plus a few
+ * {@code int}s rather than a {@code String} object. Entries are visited by
+ * slot with {@link #capacity()}, {@link #keyLength(int)},
+ * {@link #keyStart(int)} and {@link #countAt(int)}; {@link #keyAt(int)}
+ * copies a key into a {@code String} when one is needed.
+ * </p>
+ */
+public final class WordCounts implements TokenSink {
+
+    /**
+     * Default number of slots.
+     */
+    private static final int DEFAULT_CAPACITY = 1024;
+
+    /**
+     * Multiplier used to spread hash codes over the table (golden ratio).
+     */
+    private static final int SPREAD = 0x9E3779B9;
+
+    /**
+     * Length of the runs {@code slotsByRank} sorts by insertion before
+     * merging them.
+     */
+    private static final int INSERTION_RUN = 16;
+
+    /**
+     * Characters of all keys.
+     */
+    private final WordArena arena;
+
+    /**
+     * Start of each slot's key in {@code arena}.
+     */
+    private int[] starts;
+
+    /**
+     * Length of each slot's key; 0 marks an empty slot.
+     */
+    private int[] lengths;
+
+    /**
+     * Cached hash codes by slot.
+     */
+    private int[] hashes;
+
+    /**
+     * Counts by slot.
+     */
+    private long[] counts;
+
+    /**
+     * Number of occupied slots.
+     */
+    private int size;
+
+    /**
+     * Creates an empty table.
+     */
+    public WordCounts() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates an empty table sized for about {@code expected} words.
+     *
+     * @param expected
+     *            the expected number of distinct words
+     * @requires expected >= 0
+     */
+    public WordCounts(int expected) {
+        assert expected >= 0 : "Violation of: expected >= 0";
+        int capacity = Integer.highestOneBit(Math.max(expected, 2) * 2 - 1)
+                << 1;
+        this.allocate(Math.max(capacity, 2));
+        this.arena = new WordArena();
+    }
+
+    /**
+     * Allocates empty arrays with the given number of slots.
+     *
+     * @param capacity
+     *            the number of slots, a power of two
+     */
+    private void allocate(int capacity) {
+        this.starts = new int[capacity];
+        this.lengths = new int[capacity];
+        this.hashes = new int[capacity];
+        this.counts = new long[capacity];
+        this.size = 0;
+    }
+
+    /**
+     * Spreads {@code hash} so that the low bits used for the slot index
+     * depend on all of its bits.
+     *
+     * @param hash
+     *            the hash code
+     * @return the spread hash code
+     */
+    private static int spread(int hash) {
+        int h = hash * SPREAD;
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * Returns the hash code of the word {@code text[offset, offset + length)},
+     * the same polynomial as {@code String.hashCode}.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @return the hash code
+     */
+    private static int hash(char[] text, int offset, int length) {
+        int hash = 0;
+        for (int i = offset; i < offset + length; i++) {
+            hash = 31 * hash + text[i];
+        }
+        return hash;
+    }
+
+    /**
+     * Returns the slot holding the word {@code text[offset, offset + length)},
+     * or the empty slot where it would be inserted.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @param hash
+     *            the hash code of the word
+     * @return the slot of the word, empty if it is absent
+     */
+    private int find(char[] text, int offset, int length, int hash) {
+        int mask = this.lengths.length - 1;
+        int slot = spread(hash) & mask;
+        while (this.lengths[slot] != 0
+                && !(this.hashes[slot] == hash && this.lengths[slot] == length
+                        && this.arena.equals(this.starts[slot], text, offset,
+                                length))) {
+            slot = (slot + 1) & mask;
+        }
+        return slot;
+    }
+
+    /**
+     * Adds {@code delta} occurrences of the word
+     * {@code text[offset, offset + length)} with hash code {@code hash}.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @param hash
+     *            the hash code of the word
+     * @param delta
+     *            the number of occurrences to add
+     */
+    private void add(char[] text, int offset, int length, int hash,
+            long delta) {
+        int slot = this.find(text, offset, length, hash);
+        if (this.lengths[slot] != 0) {
+            this.counts[slot] += delta;
+        } else {
+            this.insert(slot, this.arena.add(text, offset, length), length,
+                    hash, delta);
+        }
+    }
+
+    /**
+     * Adds one occurrence of {@code word}.
+     *
+     * @param word
+     *            the word
+     * @requires |word| > 0
+     */
+    public void increment(String word) {
+        this.add(word, 1);
+    }
+
+    /**
+     * Adds {@code delta} occurrences of {@code word}.
+     *
+     * @param word
+     *            the word
+     * @param delta
+     *            the number of occurrences to add
+     * @requires |word| > 0 and delta > 0
+     */
+    public void add(String word, long delta) {
+        assert word != null : "Violation of: word is not null";
+        assert !word.isEmpty() : "Violation of: |word| > 0";
+        assert delta > 0 : "Violation of: delta > 0";
+
+        this.add(word.toCharArray(), 0, word.length(), word.hashCode(), delta);
+    }
+
+    /**
+     * Adds every count in {@code other} to this table.
+     *
+     * @param other
+     *            the table to merge in
+     * @updates this
+     * @ensures for each word, count(word) = #count(word) + other.count(word)
+     */
+    public void addAll(WordCounts other) {
+        assert other != null : "Violation of: other is not null";
+        assert other != this : "Violation of: other is not this";
+
+        char[] text = other.arena.chars();
+        for (int i = 0; i < other.lengths.length; i++) {
+            if (other.lengths[i] != 0) {
+                this.add(text, other.starts[i], other.lengths[i],
+                        other.hashes[i], other.counts[i]);
+            }
+        }
+    }
+
+    /**
+     * Adds one occurrence of the word {@code text[offset, offset + length)}.
+     * The word is only copied into the arena the first time it is seen, so
+     * counting words that are already present allocates nothing.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @requires 0 <= offset and 0 < length and offset + length <= |text|
+     */
+    public void increment(char[] text, int offset, int length) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+        assert 0 < length : "Violation of: 0 < length";
+        assert offset + length <= text.length
+                : "Violation of: offset + length <= |text|";
+
+        this.add(text, offset, length, hash(text, offset, length), 1);
+    }
+
+    /**
+     * Counts the word, as {@link #increment(char[], int, int)}.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @requires 0 <= offset and 0 < length and offset + length <= |text|
+     */
+    @Override
+    public void accept(char[] text, int offset, int length) {
+        this.increment(text, offset, length);
+    }
+
+    /**
+     * Counts the word whose hash code is already known, without hashing it
+     * again.
+     *
+     * @param text
+     *            the buffer holding the word
+     * @param offset
+     *            the index of the first character of the word
+     * @param length
+     *            the number of characters in the word
+     * @param hash
+     *            the hash code of the word
+     * @requires <pre>
+     * 0 <= offset and 0 < length and offset + length <= |text|  and
+     * hash = new String(text, offset, length).hashCode()
+     * </pre>
+     */
+    @Override
+    public void accept(char[] text, int offset, int length, int hash) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= offset : "Violation of: 0 <= offset";
+        assert 0 < length : "Violation of: 0 < length";
+        assert offset + length <= text.length
+                : "Violation of: offset + length <= |text|";
+        assert hash == hash(text, offset, length)
+                : "Violation of: hash is the hash code of the word";
+
+        this.add(text, offset, length, hash, 1);
+    }
+
+    /**
+     * Stores a new key in the empty {@code slot}, growing the table when it
+     * becomes half full.
+     *
+     * @param slot
+     *            the empty slot found by probing
+     * @param start
+     *            the start of the new key in the arena
+     * @param length
+     *            the length of the new key
+     * @param hash
+     *            the hash code of the new key
+     * @param count
+     *            the initial count
+     */
+    private void insert(int slot, int start, int length, int hash,
+            long count) {
+        this.starts[slot] = start;
+        this.lengths[slot] = length;
+        this.hashes[slot] = hash;
+        this.counts[slot] = count;
+        this.size++;
+        if (this.size * 2 > this.lengths.length) {
+            this.grow();
+        }
+    }
+
+    /**
+     * Doubles the number of slots and rehashes every entry.
+     */
+    private void grow() {
+        int[] oldStarts = this.starts;
+        int[] oldLengths = this.lengths;
+        int[] oldHashes = this.hashes;
+        long[] oldCounts = this.counts;
+        int oldSize = this.size;
+        this.allocate(oldLengths.length * 2);
+        int mask = this.lengths.length - 1;
+        for (int i = 0; i < oldLengths.length; i++) {
+            if (oldLengths[i] != 0) {
+                int slot = spread(oldHashes[i]) & mask;
+                while (this.lengths[slot] != 0) {
+                    slot = (slot + 1) & mask;
+                }
+                this.starts[slot] = oldStarts[i];
+                this.lengths[slot] = oldLengths[i];
+                this.hashes[slot] = oldHashes[i];
+                this.counts[slot] = oldCounts[i];
+            }
+        }
+        this.size = oldSize;
+    }
+
+    /**
+     * Removes every word, keeping the allocated slots and arena so that the
+     * table can be refilled without growing again.
+     *
+     * @clears this
+     */
+    public void clear() {
+        Arrays.fill(this.lengths, 0);
+        Arrays.fill(this.counts, 0);
+        this.size = 0;
+        this.arena.clear();
+    }
+
+    /**
+     * Returns the count of {@code word}.
+     *
+     * @param word
+     *            the word
+     * @return the number of occurrences of {@code word}, 0 if absent
+     */
+    public long count(String word) {
+        assert word != null : "Violation of: word is not null";
+
+        long count = 0;
+        if (!word.isEmpty()) {
+            count = this.counts[this.find(word.toCharArray(), 0,
+                    word.length(), word.hashCode())];
+        }
+        return count;
+    }
+
+    /**
+     * Returns the number of distinct words.
+     *
+     * @return the number of distinct words
+     */
+    public int size() {
+        return this.size;
+    }
+
+    /**
+     * Returns the number of words counted, the sum of all counts.
+     *
+     * @return the total count
+     */
+    public long total() {
+        long total = 0;
+        for (long count : this.counts) {
+            total += count;
+        }
+        return total;
+    }
+
+    /**
+     * Returns the number of slots; valid slot indices are
+     * {@code [0, capacity())}.
+     *
+     * @return the number of slots
+     */
+    public int capacity() {
+        return this.lengths.length;
+    }
+
+    /**
+     * Returns the size of this table in bytes: the slot arrays and the arena.
+     *
+     * @return the memory used by the table
+     */
+    public long bytes() {
+        final int slotBytes = 3 * Integer.BYTES + Long.BYTES;
+        return (long) this.lengths.length * slotBytes + this.arena.bytes();
+    }
+
+    /**
+     * Returns the arena holding the characters of the keys.
+     *
+     * @return the arena, shared with this table
+     */
+    public WordArena arena() {
+        return this.arena;
+    }
+
+    /**
+     * Returns the start in {@link #arena()} of the word stored in
+     * {@code slot}.
+     *
+     * @param slot
+     *            the slot index
+     * @return the start of the word
+     * @requires 0 <= slot < capacity() and keyLength(slot) > 0
+     */
+    public int keyStart(int slot) {
+        return this.starts[slot];
+    }
+
+    /**
+     * Returns the length of the word stored in {@code slot}.
+     *
+     * @param slot
+     *            the slot index
+     * @return the number of characters in the word, or 0 if the slot is
+     *         empty
+     * @requires 0 <= slot < capacity()
+     */
+    public int keyLength(int slot) {
+        return this.lengths[slot];
+    }
+
+    /**
+     * Compares the words stored in two slots in {@code String} order.
+     *
+     * @param slot1
+     *            the first slot
+     * @param slot2
+     *            the second slot
+     * @return negative, zero or positive as the first word is less than,
+     *         equal to or greater than the second
+     * @requires both slots are occupied
+     */
+    public int compareKeys(int slot1, int slot2) {
+        return this.arena.compare(this.starts[slot1], this.lengths[slot1],
+                this.starts[slot2], this.lengths[slot2]);
+    }
+
+    /**
+     * Returns the occupied slots in rank order: decreasing count, ties in
+     * alphabetical order of the words.
+     *
+     * @return the slots of all words, highest ranked first
+     */
+    public int[] slotsByRank() {
+        int[] order = new int[this.size];
+        int n = 0;
+        for (int slot = 0; slot < this.lengths.length; slot++) {
+            if (this.lengths[slot] != 0) {
+                order[n] = slot;
+                n++;
+            }
+        }
+        /* Sorts the slots as ints: boxing every slot costs more than this */
+        this.sortByRank(order, new int[order.length], 0, order.length);
+        return order;
+    }
+
+    /**
+     * Compares the words stored in two slots in rank order.
+     *
+     * @param slot1
+     *            the first slot
+     * @param slot2
+     *            the second slot
+     * @return negative, zero or positive as the first word ranks before,
+     *         with or after the second
+     * @requires both slots are occupied
+     */
+    private int compareRanks(int slot1, int slot2) {
+        int compared = Long.compare(this.counts[slot2], this.counts[slot1]);
+        if (compared == 0) {
+            compared = this.compareKeys(slot1, slot2);
+        }
+        return compared;
+    }
+
+    /**
+     * Sorts {@code order[from, to)} in rank order by merge sort, with short
+     * runs sorted by insertion.
+     *
+     * @param order
+     *            the slots to sort
+     * @param scratch
+     *            space for merging, as long as {@code order}
+     * @param from
+     *            the first index to sort
+     * @param to
+     *            the index after the last to sort
+     * @updates order, scratch
+     * @requires 0 <= from <= to <= |order| = |scratch|
+     */
+    private void sortByRank(int[] order, int[] scratch, int from, int to) {
+        if (to - from <= INSERTION_RUN) {
+            for (int i = from + 1; i < to; i++) {
+                int slot = order[i];
+                int j = i;
+                while (j > from && this.compareRanks(order[j - 1], slot) > 0) {
+                    order[j] = order[j - 1];
+                    j--;
+                }
+                order[j] = slot;
+            }
+        } else {
+            int middle = (from + to) >>> 1;
+            this.sortByRank(order, scratch, from, middle);
+            this.sortByRank(order, scratch, middle, to);
+            if (this.compareRanks(order[middle - 1], order[middle]) > 0) {
+                System.arraycopy(order, from, scratch, from, to - from);
+                int left = from;
+                int right = middle;
+                for (int i = from; i < to; i++) {
+                    if (right == to || (left < middle && this.compareRanks(
+                            scratch[left], scratch[right]) <= 0)) {
+                        order[i] = scratch[left];
+                        left++;
+                    } else {
+                        order[i] = scratch[right];
+                        right++;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns a copy of the word stored in {@code slot}.
+     *
+     * @param slot
+     *            the slot index
+     * @return the word, or {@code null} if the slot is empty
+     * @requires 0 <= slot < capacity()
+     */
+    public String keyAt(int slot) {
+        String key = null;
+        if (this.lengths[slot] != 0) {
+            key = this.arena.string(this.starts[slot], this.lengths[slot]);
+        }
+        return key;
+    }
+
+    /**
+     * Returns the count stored in {@code slot}.
+     *
+     * @param slot
+     *            the slot index
+     * @return the count, or 0 if the slot is empty
+     * @requires 0 <= slot < capacity()
+     */
+    public long countAt(int slot) {
+        return this.counts[slot];
+    }
+
+}
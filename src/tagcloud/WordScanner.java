@@ -0,0 +1,151 @@
+package tagcloud;
+
+/**
+ * Scans a range of a {@code char[]} buffer for words, handing them out as
+ * (offset, length) spans instead of substrings.
+ *
+ * <p>
+ * A "word" is a maximal length run of characters the {@link Tokenizer} does
+ * not treat as separators; runs of separators between words are skipped
+ * without being materialized. Each word is case-folded in place as it is
+ * found, so the buffer never has to be lowercased as a whole beforehand.
+ * One scanner can be {@link #reset} and reused for every buffer fill, so
+ * scanning allocates nothing.
+ * </p>
+ */
+public final class WordScanner {
+
+    /**
+     * Separator characters.
+     */
+    private final Tokenizer tokenizer;
+
+    /**
+     * Case folding applied to each word.
+     */
+    private final CaseFolding folding;
+
+    /**
+     * Buffer being scanned.
+     */
+    private char[] text;
+
+    /**
+     * Index at which the next call to {@link #next()} resumes.
+     */
+    private int position;
+
+    /**
+     * End (exclusive) of the range being scanned.
+     */
+    private int limit;
+
+    /**
+     * Start of the current word.
+     */
+    private int start;
+
+    /**
+     * End (exclusive) of the current word.
+     */
+    private int end;
+
+    /**
+     * Creates a scanner splitting words with {@code tokenizer} and folding
+     * them with {@code folding}.
+     *
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     */
+    public WordScanner(Tokenizer tokenizer, CaseFolding folding) {
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+        assert folding != null : "Violation of: folding is not null";
+        this.tokenizer = tokenizer;
+        this.folding = folding;
+        this.text = new char[0];
+    }
+
+    /**
+     * Starts scanning {@code text[from, to)}. Words are folded in place in
+     * {@code text} as {@link #next()} finds them.
+     *
+     * @param text
+     *            the buffer to scan
+     * @param from
+     *            the first index to scan
+     * @param to
+     *            the end (exclusive) of the range to scan
+     * @requires 0 <= from <= to <= |text|
+     */
+    public void reset(char[] text, int from, int to) {
+        assert text != null : "Violation of: text is not null";
+        assert 0 <= from : "Violation of: 0 <= from";
+        assert from <= to : "Violation of: from <= to";
+        assert to <= text.length : "Violation of: to <= |text|";
+
+        this.text = text;
+        this.position = from;
+        this.limit = to;
+        this.start = from;
+        this.end = from;
+    }
+
+    /**
+     * Advances to the next word in the range.
+     *
+     * @return true if a word was found, false if the range is exhausted
+     * @ensures <pre>
+     * if next then
+     *   text[start(), end()) is a word in the range, case-folded  and
+     *   the characters between the previous word and start() are separators
+     * </pre>
+     */
+    public boolean next() {
+        int i = this.position;
+        while (i < this.limit && this.tokenizer.isSeparator(this.text[i])) {
+            i++;
+        }
+        if (i == this.limit) {
+            this.position = i;
+            return false;
+        }
+        this.start = i;
+        while (i < this.limit && !this.tokenizer.isSeparator(this.text[i])) {
+            i++;
+        }
+        this.end = i;
+        this.position = i;
+        this.folding.fold(this.text, this.start, this.end);
+        return true;
+    }
+
+    /**
+     * Returns the index of the first character of the current word.
+     *
+     * @return the start of the current word
+     */
+    public int start() {
+        return this.start;
+    }
+
+    /**
+     * Returns the index just past the last character of the current word.
+     *
+     * @return the end (exclusive) of the current word
+     */
+    public int end() {
+        return this.end;
+    }
+
+    /**
+     * Returns the number of characters in the current word.
+     *
+     * @return the length of the current word
+     */
+    public int length() {
+        return this.end - this.start;
+    }
+
+}
@@ -0,0 +1,144 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link ChannelOutput} and of the escaping of the renderers built
+ * on it.
+ */
+final class ChannelOutputTest {
+
+    /**
+     * Bytes written.
+     */
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+
+    /**
+     * Output to {@code bytes}, with a buffer small enough to be flushed in
+     * the middle of the texts written.
+     */
+    private final ChannelOutput out = new ChannelOutput(
+            Channels.newChannel(this.bytes), 20);
+
+    /**
+     * Returns what was written, decoded.
+     *
+     * @return the text written
+     * @throws IOException
+     *             if flushing fails
+     */
+    private String written() throws IOException {
+        this.out.flush();
+        return this.bytes.toString(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Text is encoded as UTF-8, including surrogate pairs across flushes.
+     *
+     * @throws IOException
+     *             if writing fails
+     */
+    @Test
+    void testWriteText() throws IOException {
+        String text = "plain ASCII, é, 蜂 and 😀 ".repeat(3);
+        this.out.write(text).write(-42L).write('!');
+
+        assertEquals(text + "-42!", this.written());
+    }
+
+    /**
+     * Characters with an escape are replaced, and the runs between them are
+     * written as they are.
+     *
+     * @throws IOException
+     *             if writing fails
+     */
+    @Test
+    void testWriteEscaped() throws IOException {
+        this.out.writeEscaped("<a href=\"x\">Tom & Jerry 😀</a>",
+                HtmlRenderer::escape).write('|')
+                .writeEscaped("&", HtmlRenderer::escape).write('|')
+                .writeEscaped("", HtmlRenderer::escape).write('|')
+                .writeEscaped("no markup", HtmlRenderer::escape);
+
+        assertEquals("&lt;a href=&quot;x&quot;&gt;Tom &amp; Jerry 😀&lt;/a&gt;"
+                + "|&amp;||no markup", this.written());
+    }
+
+    /**
+     * JSON strings escape quotes, backslashes and control characters.
+     *
+     * @throws IOException
+     *             if writing fails
+     */
+    @Test
+    void testJsonEscapes() throws IOException {
+        List<Entry<String, Long>> words = List.of(Map.entry("a\"b\\c\u0001",
+                1L));
+        new JsonRenderer(this.out).render(words, "in\tput");
+
+        assertEquals("{\"source\":\"in\\u0009put\",\"words\":[{\"word\":"
+                + "\"a\\\"b\\\\c\\u0001\",\"count\":1,\"fontClass\":48}]}"
+                + System.lineSeparator(), this.written());
+    }
+
+    /**
+     * CSV fields holding a comma, quote or line break are quoted, with their
+     * quotes doubled.
+     *
+     * @throws IOException
+     *             if writing fails
+     */
+    @Test
+    void testCsvQuoting() throws IOException {
+        List<Entry<String, Long>> words = List.of(Map.entry("plain", 2L),
+                Map.entry("say \"hi\"", 2L), Map.entry("a,b", 2L),
+                Map.entry("line\nbreak", 2L));
+        new CsvRenderer(this.out).render(words, "input");
+
+        assertEquals("word,count,fontClass\r\nplain,2,48\r\n"
+                + "\"say \"\"hi\"\"\",2,48\r\n\"a,b\",2,48\r\n"
+                + "\"line\nbreak\",2,48\r\n", this.written());
+    }
+
+    /**
+     * Words of equal counts all get the largest class, in every format, and
+     * a range of counts still spans every class.
+     *
+     * @throws IOException
+     *             if writing fails
+     */
+    @Test
+    void testEqualCounts() throws IOException {
+        final long count = 7;
+        List<Entry<String, Long>> words = List.of(Map.entry("bee", count),
+                Map.entry("hive", count));
+        new JsonRenderer(this.out).render(words, "input");
+        new SvgRenderer(this.out).render(words, "input");
+        new HtmlRenderer(this.out).render(words, "input");
+        String written = this.written();
+
+        assertTrue(written.contains("\"word\":\"bee\",\"count\":7,"
+                + "\"fontClass\":48},{\"word\":\"hive\",\"count\":7,"
+                + "\"fontClass\":48}"), written);
+        assertTrue(written.contains("font-size=\"48\""), written);
+        assertTrue(written.contains("class=\"f48\""), written);
+        assertEquals(FontScale.MAX_FONT,
+                FontScale.fontClass(count, count, count));
+        assertEquals(FontScale.MIN_FONT, FontScale.fontClass(1, 1, count));
+        assertEquals(FontScale.MAX_FONT,
+                FontScale.fontClass(count, 1, count));
+    }
+
+}
@@ -0,0 +1,248 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests of {@link Checkpoint}: counting resumed from a checkpoint must give
+ * the counts of the whole file.
+ */
+final class CheckpointTest {
+
+    /**
+     * Number of threads new data is counted on.
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * Number of words of each part of the input.
+     */
+    private static final int WORDS = 50000;
+
+    /**
+     * Directory for the input and the checkpoint.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * The input file.
+     */
+    private Path file;
+
+    /**
+     * The checkpoint file.
+     */
+    private Path checkpoint;
+
+    /**
+     * Names the input and checkpoint files.
+     */
+    @BeforeEach
+    void setUp() {
+        this.file = this.directory.resolve("input.txt");
+        this.checkpoint = this.directory.resolve("input.ckpt");
+    }
+
+    /**
+     * Counts the input, resuming from the checkpoint.
+     *
+     * @param folding
+     *            the case folding applied to each word
+     * @return the counts of the whole input, and how the checkpoint was used
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    private Checkpoint count(CaseFolding folding) throws IOException {
+        return Checkpoint.countIncrementally(this.file, this.checkpoint,
+                TestCorpus.TOKENIZER, folding, StopWords.NONE, THREADS);
+    }
+
+    /**
+     * Counts the input with Unicode case folding, resuming from the
+     * checkpoint, and checks how the checkpoint was used.
+     *
+     * @param expected
+     *            how the checkpoint is expected to be used
+     * @return the counts of the whole input
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    private Map<String, Long> count(Checkpoint.Outcome expected)
+            throws IOException {
+        Checkpoint result = this.count(CaseFolding.UNICODE);
+        assertEquals(expected, result.outcome());
+        return TestCorpus.map(result.counts());
+    }
+
+    /**
+     * Counting with a new checkpoint, then again after text is appended,
+     * gives the counts of the whole file each time.
+     *
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    @Test
+    void testAppendedText() throws IOException {
+        String first = TestCorpus.random(5, WORDS);
+        /* The first part ends inside a word, which the second part goes on */
+        String second = "tail " + TestCorpus.random(6, WORDS);
+        Files.writeString(this.file, first + "unfini",
+                StandardCharsets.UTF_8);
+
+        assertEquals(TestCorpus.map(TestCorpus.count(first + "unfini")),
+                this.count(Checkpoint.Outcome.CREATED));
+        assertTrue(Files.exists(this.checkpoint));
+
+        Files.writeString(this.file, "shed" + second, StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+        String whole = first + "unfinished" + second;
+
+        assertEquals(TestCorpus.map(TestCorpus.count(whole)),
+                this.count(Checkpoint.Outcome.RESUMED));
+        assertEquals(TestCorpus.map(TestCorpus.count(whole)),
+                this.count(Checkpoint.Outcome.RESUMED));
+    }
+
+    /**
+     * Counting resumes from the words saved in the checkpoint rather than
+     * from the input: a checkpoint whose counts were altered in place, with
+     * its header intact, keeps the altered counts.
+     *
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    @Test
+    void testResumesFromSavedCounts() throws IOException {
+        Files.writeString(this.file, "bee bee wasp ", StandardCharsets.UTF_8);
+        this.count(Checkpoint.Outcome.CREATED);
+        byte[] saved = Files.readAllBytes(this.checkpoint);
+        String text = new String(saved, StandardCharsets.ISO_8859_1)
+                .replace("wasp", "moth");
+        Files.writeString(this.checkpoint, text, StandardCharsets.ISO_8859_1);
+        Files.writeString(this.file, "bee ", StandardCharsets.UTF_8,
+                StandardOpenOption.APPEND);
+
+        assertEquals(Map.of("bee", 3L, "moth", 1L),
+                this.count(Checkpoint.Outcome.RESUMED));
+    }
+
+    /**
+     * A file rewritten since the checkpoint is counted from the start.
+     *
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    @Test
+    void testRewrittenFile() throws IOException {
+        Files.writeString(this.file, TestCorpus.random(7, WORDS),
+                StandardCharsets.UTF_8);
+        this.count(Checkpoint.Outcome.CREATED);
+        String rewritten = TestCorpus.random(8, WORDS);
+        Files.writeString(this.file, rewritten, StandardCharsets.UTF_8);
+
+        assertEquals(TestCorpus.map(TestCorpus.count(rewritten)),
+                this.count(Checkpoint.Outcome.INPUT_CHANGED));
+    }
+
+    /**
+     * A checkpoint taken with another case folding is not resumed from.
+     *
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    @Test
+    void testOtherSettings() throws IOException {
+        String text = "Bee BEE bee ";
+        Files.writeString(this.file, text, StandardCharsets.UTF_8);
+        Checkpoint unfolded = this.count(CaseFolding.NONE);
+
+        assertEquals(Checkpoint.Outcome.CREATED, unfolded.outcome());
+        assertEquals(Map.of("Bee", 1L, "BEE", 1L, "bee", 1L),
+                TestCorpus.map(unfolded.counts()));
+        assertEquals(Map.of("bee", 3L),
+                this.count(Checkpoint.Outcome.OTHER_SETTINGS));
+    }
+
+    /**
+     * A checkpoint of another version and a file that is not a checkpoint
+     * are ignored and replaced by a new checkpoint.
+     *
+     * @param header
+     *            the bytes the checkpoint file holds
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    @ParameterizedTest
+    @ValueSource(strings = {"TCKP\0\0\0\3 counts of an older layout",
+            "not a checkpoint at all"})
+    void testOtherVersion(String header) throws IOException {
+        this.checkReplaced(header, Checkpoint.Outcome.OTHER_VERSION);
+    }
+
+    /**
+     * A checkpoint cut short, down to an empty file, is ignored and replaced
+     * by a new checkpoint.
+     *
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    @Test
+    void testTruncated() throws IOException {
+        final int cut = 10;
+        /* The text checkReplaced counts, so only the cut stops resuming */
+        Files.writeString(this.file, TestCorpus.random(12, WORDS),
+                StandardCharsets.UTF_8);
+        this.count(Checkpoint.Outcome.CREATED);
+        byte[] saved = Files.readAllBytes(this.checkpoint);
+
+        this.checkReplaced(new String(saved, 0, saved.length - cut,
+                StandardCharsets.ISO_8859_1), Checkpoint.Outcome.TRUNCATED);
+        this.checkReplaced("TCKP", Checkpoint.Outcome.TRUNCATED);
+        this.checkReplaced("", Checkpoint.Outcome.TRUNCATED);
+    }
+
+    /**
+     * Checks that a checkpoint holding {@code header} is not resumed from,
+     * for the reason {@code expected}, and is replaced by one that is.
+     *
+     * @param header
+     *            the bytes the checkpoint file holds
+     * @param expected
+     *            why the checkpoint is not resumed from
+     * @throws IOException
+     *             if a file cannot be read or written
+     */
+    private void checkReplaced(String header, Checkpoint.Outcome expected)
+            throws IOException {
+        final int magicLength = 4;
+        String text = TestCorpus.random(12, WORDS);
+        Files.writeString(this.file, text, StandardCharsets.UTF_8);
+        Files.writeString(this.checkpoint, header,
+                StandardCharsets.ISO_8859_1);
+
+        assertEquals(TestCorpus.map(TestCorpus.count(text)),
+                this.count(expected));
+        assertNotNull(expected.reason());
+        byte[] replaced = Files.readAllBytes(this.checkpoint);
+        assertEquals("TCKP", new String(replaced, 0, magicLength,
+                StandardCharsets.ISO_8859_1));
+        assertEquals(TestCorpus.map(TestCorpus.count(text)),
+                this.count(Checkpoint.Outcome.RESUMED));
+    }
+
+}
@@ -0,0 +1,147 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests of {@link CorpusCounter}: the counts of a directory must be the sum
+ * of the counts of its files, and a failure on any file must reach the
+ * caller.
+ */
+final class CorpusCounterTest {
+
+    /**
+     * Number of files in the corpus, more than the queue of a small pool
+     * holds.
+     */
+    private static final int FILES = 40;
+
+    /**
+     * Number of words per file.
+     */
+    private static final int WORDS = 2000;
+
+    /**
+     * Directory of the corpus.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes the corpus, one random text per file, and returns all of its
+     * text.
+     *
+     * @return the text of every file
+     * @throws IOException
+     *             if a file cannot be written
+     */
+    private String writeCorpus() throws IOException {
+        StringBuilder all = new StringBuilder();
+        for (int i = 0; i < FILES; i++) {
+            String text = TestCorpus.random(i, WORDS);
+            Files.writeString(this.directory.resolve("part" + i + ".txt"),
+                    text, StandardCharsets.UTF_8);
+            all.append(text).append(' ');
+        }
+        return all.toString();
+    }
+
+    /**
+     * The corpus counted on any number of threads has the counts of all of
+     * its text.
+     *
+     * @param threads
+     *            the number of worker threads
+     * @throws IOException
+     *             if a file cannot be written or read
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 8})
+    void testCounts(int threads) throws IOException {
+        String all = this.writeCorpus();
+        CorpusCounter counter = new CorpusCounter(TestCorpus.TOKENIZER,
+                CaseFolding.UNICODE, StopWords.NONE, StandardCharsets.UTF_8);
+
+        assertEquals(TestCorpus.map(TestCorpus.count(all)), TestCorpus.map(
+                counter.count(List.of(this.directory.toString()), threads)));
+    }
+
+    /**
+     * An unchecked exception while counting one file is thrown by
+     * {@code count}, whether the file was counted by a pool thread or by
+     * the caller.
+     *
+     * @param threads
+     *            the number of worker threads
+     * @throws IOException
+     *             if a file cannot be written
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 8})
+    void testUncheckedFailure(int threads) throws IOException {
+        this.writeCorpus();
+        Files.writeString(this.directory.resolve("failing.txt"),
+                "words before the failing word", StandardCharsets.UTF_8);
+        TokenFilter failing = new TokenFilter() {
+
+            /**
+             * Returns a sink failing on the word "failing".
+             *
+             * @param next
+             *            the sink receiving the other words
+             * @return the failing sink
+             */
+            @Override
+            public TokenSink filter(TokenSink next) {
+                return (text, offset, length) -> {
+                    if (new String(text, offset, length).equals("failing")) {
+                        throw new IllegalStateException("Counting failed");
+                    }
+                    next.accept(text, offset, length);
+                };
+            }
+
+            /**
+             * Returns a fingerprint of this filter.
+             *
+             * @return the fingerprint
+             */
+            @Override
+            public long fingerprint() {
+                return 0;
+            }
+
+        };
+        CorpusCounter counter = new CorpusCounter(TestCorpus.TOKENIZER,
+                CaseFolding.UNICODE, failing, StandardCharsets.UTF_8);
+
+        IllegalStateException thrown = assertThrows(
+                IllegalStateException.class, () -> counter
+                        .count(List.of(this.directory.toString()), threads));
+        assertEquals("Counting failed", thrown.getMessage());
+    }
+
+    /**
+     * A file that cannot be read is reported as an {@link IOException}.
+     */
+    @Test
+    void testMissingFile() {
+        CorpusCounter counter = new CorpusCounter(TestCorpus.TOKENIZER,
+                CaseFolding.UNICODE, StopWords.NONE, StandardCharsets.UTF_8);
+
+        assertThrows(IOException.class, () -> counter.count(
+                List.of(this.directory.resolve("missing").toString()), 2));
+    }
+
+}
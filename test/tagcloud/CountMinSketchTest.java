@@ -0,0 +1,75 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link CountMinSketch} and of the memory limit on its size.
+ */
+final class CountMinSketchTest {
+
+    /**
+     * The size of a sketch is known before it is created, and estimates are
+     * never below the true counts.
+     */
+    @Test
+    void testEstimates() {
+        final double epsilon = 1e-3;
+        final double delta = 0.01;
+        final int keys = 1000;
+        final int adds = 100000;
+        CountMinSketch sketch = new CountMinSketch(epsilon, delta);
+        long[] counts = new long[keys];
+        Random random = new Random(13);
+        for (int i = 0; i < adds; i++) {
+            int key = Math.min(random.nextInt(keys), random.nextInt(keys));
+            sketch.add(SpanHash.rehash(key, key), 1);
+            counts[key]++;
+        }
+
+        assertEquals(CountMinSketch.bytes(epsilon, delta), sketch.bytes());
+        assertEquals(adds, sketch.total());
+        for (int key = 0; key < keys; key++) {
+            long estimate = sketch.estimate(SpanHash.rehash(key, key));
+            assertTrue(estimate >= counts[key]);
+            assertTrue(estimate <= counts[key] + sketch.errorBound() * 2);
+        }
+    }
+
+    /**
+     * Tight bounds give sizes past the limit, computed without overflowing.
+     */
+    @Test
+    void testSizeOfTightBounds() {
+        final double delta = 0.01;
+        for (double epsilon = 1e-6; epsilon > 1e-12; epsilon /= 10) {
+            assertTrue(CountMinSketch.bytes(epsilon, delta) > 0);
+        }
+        assertTrue(CountMinSketch.bytes(1e-6, delta)
+                <= CountMinSketch.MAX_BYTES);
+        assertTrue(CountMinSketch.bytes(1e-7, delta)
+                > CountMinSketch.MAX_BYTES);
+        assertTrue(CountMinSketch.bytes(1e-9, delta)
+                > CountMinSketch.MAX_BYTES);
+    }
+
+    /**
+     * An error bound needing more than the limit is a usage error.
+     */
+    @Test
+    void testOptionsRejectTightBounds() {
+        assertThrows(IllegalArgumentException.class, () -> TagCloudOptions
+                .parse(new String[] {"-a", "1e-9", "input.txt"}));
+        assertThrows(IllegalArgumentException.class, () -> TagCloudOptions
+                .parse(new String[] {"-a", "1e-6", "-d", "1e-30",
+                    "input.txt"}));
+        assertEquals(1e-6, TagCloudOptions
+                .parse(new String[] {"-a", "1e-6", "input.txt"}).epsilon());
+    }
+
+}
@@ -0,0 +1,117 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link HeavyHitters}: candidates evicted and re-admitted under
+ * churn must stay indexed, and the top words must be the exact top words with
+ * estimates within the error bound.
+ */
+final class HeavyHittersTest {
+
+    /**
+     * Relative error bound of the sketch.
+     */
+    private static final double EPSILON = 1e-4;
+
+    /**
+     * Probability of exceeding the bound.
+     */
+    private static final double DELTA = 0.01;
+
+    /**
+     * Gives {@code word} to {@code hitters} {@code times} times, from the
+     * middle of a larger buffer.
+     *
+     * @param hitters
+     *            the counter
+     * @param word
+     *            the word
+     * @param times
+     *            the number of occurrences
+     */
+    private static void accept(HeavyHitters hitters, String word,
+            long times) {
+        char[] text = ("<" + word + ">").toCharArray();
+        for (long i = 0; i < times; i++) {
+            hitters.accept(text, 1, word.length());
+        }
+    }
+
+    /**
+     * The lowest candidate is evicted only by a word with a higher estimate,
+     * and an evicted word comes back as a new candidate.
+     */
+    @Test
+    void testEviction() {
+        final long three = 3;
+        HeavyHitters hitters = new HeavyHitters(2, EPSILON, DELTA);
+        accept(hitters, "a", three);
+        accept(hitters, "b", 1);
+        accept(hitters, "c", 1);
+
+        assertEquals(Map.of("a", three, "b", 1L),
+                TestCorpus.map(hitters.top(2)));
+
+        accept(hitters, "c", 1);
+
+        assertEquals(Map.of("a", three, "c", 2L),
+                TestCorpus.map(hitters.top(2)));
+
+        accept(hitters, "b", 2);
+
+        assertEquals(2, hitters.size());
+        assertEquals(Map.of("a", three, "b", three),
+                TestCorpus.map(hitters.top(2)));
+    }
+
+    /**
+     * Under a skewed stream of many more distinct words than candidates, the
+     * candidates stay distinct, the top words are the exact top words and
+     * every estimate is within the error bound of its true count.
+     */
+    @Test
+    void testChurn() {
+        final int candidates = 64;
+        final int distinct = 20000;
+        final int words = 200000;
+        final int k = 10;
+        HeavyHitters hitters = new HeavyHitters(candidates, EPSILON, DELTA);
+        Map<String, Long> exact = new HashMap<>();
+        Random random = new Random(15);
+        for (int i = 0; i < words; i++) {
+            /* Log-uniform keys: key n comes about 1 / (n + 1) of the time */
+            int key = (int) Math.exp(random.nextDouble() * Math.log(distinct))
+                    - 1;
+            String word = "w" + key;
+            accept(hitters, word, 1);
+            exact.merge(word, 1L, Long::sum);
+        }
+
+        assertEquals(candidates, hitters.size());
+        assertEquals(words, hitters.total());
+        /* A candidate lost from the index would have been added twice */
+        Map<String, Long> all = TestCorpus.map(hitters.top(candidates));
+        assertEquals(candidates, all.size());
+        for (Map.Entry<String, Long> entry : all.entrySet()) {
+            long count = exact.get(entry.getKey());
+            assertTrue(entry.getValue() >= count, entry.getKey());
+            assertTrue(entry.getValue() <= count + hitters.errorBound(),
+                    entry.getKey());
+        }
+        TopWords expected = new TopWords(k);
+        for (Map.Entry<String, Long> entry : exact.entrySet()) {
+            expected.offer(entry.getKey(), entry.getValue());
+        }
+        assertEquals(TestCorpus.map(expected).keySet(),
+                TestCorpus.map(hitters.top(k)).keySet());
+    }
+
+}
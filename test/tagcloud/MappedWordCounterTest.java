@@ -0,0 +1,147 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests of {@link MappedWordCounter}, which must count the UTF-8 bytes of a
+ * file like the plain scanner counts the decoded text.
+ */
+final class MappedWordCounterTest {
+
+    /**
+     * Separators of the command-line tool plus two outside ASCII.
+     */
+    private static final Tokenizer TOKENIZER = new SeparatorSet(
+            TagCloud.SEPARATORS + "\u00A0\u2014");
+
+    /**
+     * Directory for the input files.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Returns a text of {@code words} random words in which some letters are
+     * replaced by characters of two, three and four UTF-8 bytes, by
+     * uppercase letters and by separators outside ASCII.
+     *
+     * @param seed
+     *            the random seed
+     * @param words
+     *            the number of words
+     * @return the text
+     */
+    private static String multiByte(long seed, int words) {
+        return TestCorpus.random(seed, words).replace("e", "é")
+                .replace("z", "蜂").replace("y", "😀").replace("u", "Ü")
+                .replace("o", "O").replace("-", "\u2014")
+                .replace("!", "\u00A0");
+    }
+
+    /**
+     * Counts {@code bytes} with the table scanner, mapping at most
+     * {@code window} bytes at a time.
+     *
+     * @param bytes
+     *            the content of the file
+     * @param window
+     *            the largest number of bytes mapped at once
+     * @return the words with their counts
+     * @throws IOException
+     *             if the file cannot be written or mapped
+     */
+    private Map<String, Long> count(byte[] bytes, int window)
+            throws IOException {
+        Path file = this.directory.resolve("input.txt");
+        Files.write(file, bytes);
+        WordCounts counts = new WordCounts();
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.READ)) {
+            new MappedWordCounter(TOKENIZER, CaseFolding.UNICODE, counts,
+                    null).countRange(channel, 0, channel.size(), window);
+        }
+        return TestCorpus.map(counts);
+    }
+
+    /**
+     * Returns the plain counts of {@code text}.
+     *
+     * @param text
+     *            the text
+     * @return the words with their counts
+     */
+    private static Map<String, Long> plain(String text) {
+        WordCounts counts = new WordCounts();
+        TestCorpus.scan(text, TOKENIZER, CaseFolding.UNICODE, counts);
+        return TestCorpus.map(counts);
+    }
+
+    /**
+     * Multi-byte characters are decoded and folded, and words split on
+     * separators outside ASCII, however the file is cut into windows.
+     *
+     * @param window
+     *            the largest number of bytes mapped at once
+     * @throws IOException
+     *             if the file cannot be written or mapped
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {64, 101, 4099, Integer.MAX_VALUE})
+    void testWindows(int window) throws IOException {
+        final int words = 20000;
+        String text = multiByte(41, words);
+
+        assertEquals(plain(text),
+                this.count(text.getBytes(StandardCharsets.UTF_8), window));
+    }
+
+    /**
+     * Malformed sequences each decode to one replacement character, as the
+     * JDK decoder does, and never swallow the byte after them.
+     *
+     * @throws IOException
+     *             if the file cannot be written or mapped
+     */
+    @Test
+    void testMalformed() throws IOException {
+        final byte[] bytes = {'a', (byte) 0x80, 'b', ' ', 'c', (byte) 0xE8,
+            (byte) 0xA0, 'd', ' ', (byte) 0xF8, 'e', ' ', 'f', (byte) 0xC3};
+        String decoded = new String(bytes, StandardCharsets.UTF_8);
+
+        assertEquals(Map.of("a\uFFFDb", 1L, "c\uFFFDd", 1L, "\uFFFDe", 1L,
+                "f\uFFFD", 1L), this.count(bytes, Integer.MAX_VALUE));
+        assertEquals(plain(decoded), this.count(bytes, Integer.MAX_VALUE));
+    }
+
+    /**
+     * Counting a buffer directly gives the counts of the range only.
+     */
+    @Test
+    void testBufferRange() {
+        byte[] bytes = "Skip THIS, count these words; not this"
+                .getBytes(StandardCharsets.US_ASCII);
+        int from = "Skip THIS,".length();
+        int to = from + " count these words;".length();
+        WordCounts counts = new WordCounts();
+        new MappedWordCounter(TOKENIZER, CaseFolding.ASCII, counts, null)
+                .count(ByteBuffer.wrap(bytes), from, to);
+
+        assertEquals(Map.of("count", 1L, "these", 1L, "words", 1L),
+                TestCorpus.map(counts));
+    }
+
+}
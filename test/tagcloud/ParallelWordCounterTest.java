@@ -0,0 +1,136 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link ParallelWordCounter}: counting a file split into ranges on
+ * several threads must give the same table as counting it on one.
+ */
+final class ParallelWordCounterTest {
+
+    /**
+     * Number of ranges the file is split into.
+     */
+    private static final int THREADS = 4;
+
+    /**
+     * Bytes of text between two long words, enough for a range of its own.
+     */
+    private static final int PART = 1 << 20;
+
+    /**
+     * Directory for the input file.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Returns {@code PART} bytes of random words, some with multi-byte
+     * characters, ending on a separator.
+     *
+     * @param seed
+     *            the random seed
+     * @return the UTF-8 bytes
+     */
+    private static byte[] part(long seed) {
+        final int words = PART / 4;
+        byte[] text = TestCorpus.random(seed, words).replace("e", "é")
+                .replace("z", "蜂").replace("y", "😀")
+                .getBytes(StandardCharsets.UTF_8);
+        byte[] part = Arrays.copyOf(text, PART);
+        /* Ends on a separator, so the cut never splits a character */
+        int end = PART - 1;
+        while (part[end] != ' ') {
+            part[end] = ' ';
+            end--;
+        }
+        return part;
+    }
+
+    /**
+     * Counts {@code file} on {@code threads} threads.
+     *
+     * @param file
+     *            the input file
+     * @param threads
+     *            the number of threads
+     * @return the counts
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static WordCounts count(Path file, int threads)
+            throws IOException {
+        return ParallelWordCounter.countFile(file, TestCorpus.TOKENIZER,
+                CaseFolding.UNICODE, StopWords.NONE, threads);
+    }
+
+    /**
+     * Every point where the file is split falls inside a word of multi-byte
+     * characters much longer than the probe looking for a separator, so
+     * each range must be moved past it to a separator after one of those
+     * characters. The tables counted on one and on several threads are the
+     * same, and the same as the plain counts of the decoded text.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testSplitInsideLongWords() throws IOException {
+        final int longWordRepeats = 10000;
+        byte[] longWord = "蜂é😀".repeat(longWordRepeats)
+                .getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        for (int k = 0; k < THREADS; k++) {
+            if (k > 0) {
+                /* Split point k lies inside long word k */
+                bytes.write(longWord);
+                bytes.write(' ');
+            }
+            bytes.write(part(k));
+        }
+        Path file = this.directory.resolve("input.txt");
+        Files.write(file, bytes.toByteArray());
+        String text = bytes.toString(StandardCharsets.UTF_8);
+
+        WordCounts sequential = count(file, 1);
+        WordCounts parallel = count(file, THREADS);
+
+        assertEquals(TestCorpus.map(sequential), TestCorpus.map(parallel));
+        assertEquals(TestCorpus.map(TestCorpus.count(text)),
+                TestCorpus.map(parallel));
+        assertEquals(THREADS - 1, parallel.count(new String(longWord,
+                StandardCharsets.UTF_8)));
+    }
+
+    /**
+     * A file without any separator is one word, whatever the number of
+     * threads.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testNoSeparator() throws IOException {
+        String word = "蜂x".repeat(THREADS * PART / 2);
+        Path file = this.directory.resolve("input.txt");
+        Files.writeString(file, word, StandardCharsets.UTF_8);
+
+        WordCounts parallel = count(file, THREADS);
+
+        assertEquals(TestCorpus.map(count(file, 1)),
+                TestCorpus.map(parallel));
+        assertEquals(1, parallel.size());
+        assertEquals(1, parallel.count(word));
+    }
+
+}
@@ -0,0 +1,175 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests of {@link PhraseSink}: every phrase handed on must carry the
+ * {@code String} hash code of its characters, however words came and went,
+ * and no phrase may span the end of a text.
+ */
+final class PhraseSinkTest {
+
+    /**
+     * Directory for the stop word file.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Sink recording the phrases it receives, checking the hash of each.
+     */
+    private static final class Recorder implements TokenSink {
+
+        /**
+         * Phrases received, in order.
+         */
+        private final List<String> phrases = new ArrayList<>();
+
+        /**
+         * Fails: a phrase sink always gives the hash of its phrases.
+         *
+         * @param text
+         *            the buffer holding the phrase
+         * @param offset
+         *            the index of the first character of the phrase
+         * @param length
+         *            the number of characters in the phrase
+         */
+        @Override
+        public void accept(char[] text, int offset, int length) {
+            fail("Phrase passed on without its hash");
+        }
+
+        /**
+         * Records the phrase after checking its hash.
+         *
+         * @param text
+         *            the buffer holding the phrase
+         * @param offset
+         *            the index of the first character of the phrase
+         * @param length
+         *            the number of characters in the phrase
+         * @param hash
+         *            the rolling hash of the phrase
+         */
+        @Override
+        public void accept(char[] text, int offset, int length, int hash) {
+            String phrase = new String(text, offset, length);
+            assertEquals(phrase.hashCode(), hash, phrase);
+            this.phrases.add(phrase);
+        }
+
+    }
+
+    /**
+     * Returns every run of {@code n} consecutive words of {@code words},
+     * joined by single spaces.
+     *
+     * @param words
+     *            the words
+     * @param n
+     *            the number of words in a phrase
+     * @return the phrases, in order
+     */
+    private static List<String> phrases(List<String> words, int n) {
+        List<String> phrases = new ArrayList<>();
+        for (int i = 0; i + n <= words.size(); i++) {
+            phrases.add(String.join(" ", words.subList(i, i + n)));
+        }
+        return phrases;
+    }
+
+    /**
+     * Returns the words of {@code text}, split as the command-line tool
+     * splits them.
+     *
+     * @param text
+     *            the text
+     * @return the words, in order
+     */
+    private static List<String> words(String text) {
+        List<String> words = new ArrayList<>();
+        TestCorpus.scan(text, TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                (chars, offset, length) -> words
+                        .add(new String(chars, offset, length)));
+        return words;
+    }
+
+    /**
+     * Every phrase of a long text, over any number of words, is handed on
+     * with the hash code of its characters.
+     *
+     * @param n
+     *            the number of words in a phrase
+     */
+    @ParameterizedTest
+    @ValueSource(ints = {1, 2, 3, 5})
+    void testRollingHash(int n) {
+        final int words = 20000;
+        String text = TestCorpus.random(21, words);
+        Recorder recorder = new Recorder();
+
+        TestCorpus.scan(text, TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                new PhraseSink(n, StopWords.NONE, recorder));
+
+        assertEquals(phrases(words(text), n), recorder.phrases);
+    }
+
+    /**
+     * After the end of a text the next phrase starts afresh, with the right
+     * hash, even after a phrase that outgrew the buffer.
+     */
+    @Test
+    void testEndTextResets() {
+        final int longWord = 100;
+        String first = "one " + "x".repeat(longWord) + " two";
+        String second = "three four five";
+        Recorder recorder = new Recorder();
+        PhraseSink sink = new PhraseSink(2, StopWords.NONE, recorder);
+
+        TestCorpus.scan(first, TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                sink);
+        TestCorpus.scan(second, TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                sink);
+
+        List<String> expected = new ArrayList<>(phrases(words(first), 2));
+        expected.addAll(phrases(words(second), 2));
+        assertEquals(expected, recorder.phrases);
+    }
+
+    /**
+     * A phrase starting or ending with a stop word is dropped, one with a
+     * stop word inside is kept.
+     *
+     * @throws IOException
+     *             if the stop word file cannot be written or read
+     */
+    @Test
+    void testStopWords() throws IOException {
+        final int n = 3;
+        Path file = this.directory.resolve("stopwords.txt");
+        Files.writeString(file, "of the", StandardCharsets.UTF_8);
+        StopWords stopWords = StopWords.read(file, TestCorpus.TOKENIZER,
+                CaseFolding.UNICODE);
+        Recorder recorder = new Recorder();
+
+        TestCorpus.scan("out of memory of the heap", TestCorpus.TOKENIZER,
+                CaseFolding.UNICODE, new PhraseSink(n, stopWords, recorder));
+
+        assertEquals(List.of("out of memory"), recorder.phrases);
+    }
+
+}
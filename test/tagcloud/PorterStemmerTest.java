@@ -0,0 +1,136 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+/**
+ * Tests of {@link PorterStemmer} and of the cache of {@link StemmingSink}.
+ */
+final class PorterStemmerTest {
+
+    /**
+     * Returns the stem of {@code word}.
+     *
+     * @param word
+     *            the word, of lowercase ASCII letters
+     * @return its stem
+     */
+    private static String stem(String word) {
+        char[] chars = word.toCharArray();
+        return new String(chars, 0,
+                new PorterStemmer().stem(chars, chars.length));
+    }
+
+    /**
+     * Words are stemmed as in the examples of Porter's paper and of his
+     * reference vocabulary.
+     *
+     * @param word
+     *            the word
+     * @param expected
+     *            its stem
+     */
+    @ParameterizedTest
+    @CsvSource({"caresses, caress", "ponies, poni", "ties, ti",
+            "caress, caress", "cats, cat", "feed, feed", "agreed, agre",
+            "plastered, plaster", "bled, bled", "motoring, motor",
+            "sing, sing", "conflated, conflat", "troubled, troubl",
+            "sized, size", "hopping, hop", "tanned, tan", "falling, fall",
+            "hissing, hiss", "fizzed, fizz", "failing, fail", "filing, file",
+            "happy, happi", "sky, sky", "relational, relat",
+            "conditional, condit", "rational, ration", "valenci, valenc",
+            "digitizer, digit", "conformabli, conform",
+            "radicalli, radic", "differentli, differ", "vileli, vile",
+            "analogousli, analog", "vietnamization, vietnam",
+            "predication, predic", "operator, oper", "feudalism, feudal",
+            "decisiveness, decis", "hopefulness, hope",
+            "callousness, callous", "formaliti, formal",
+            "sensitiviti, sensit", "sensibiliti, sensibl",
+            "triplicate, triplic", "formative, form", "formalize, formal",
+            "electriciti, electr", "electrical, electr", "hopeful, hope",
+            "goodness, good", "revival, reviv", "allowance, allow",
+            "inference, infer", "airliner, airlin", "gyroscopic, gyroscop",
+            "adjustable, adjust", "defensible, defens",
+            "irritant, irrit", "replacement, replac",
+            "adjustment, adjust", "dependent, depend", "adoption, adopt",
+            "homologou, homolog", "communism, commun",
+            "activate, activ", "angulariti, angular",
+            "homologous, homolog", "effective, effect",
+            "bowdlerize, bowdler", "probate, probat", "rate, rate",
+            "cease, ceas", "controll, control", "roll, roll",
+            "bees, bee", "connected, connect", "connecting, connect",
+            "is, is", "a, a"})
+    void testStem(String word, String expected) {
+        assertEquals(expected, stem(word));
+    }
+
+    /**
+     * Counting through a {@link StemmingSink} gives the plain counts of the
+     * stems, whether the cache hits, misses or is bypassed.
+     */
+    @Test
+    void testSinkMatchesDirectStemming() {
+        final int words = 100000;
+        String text = TestCorpus.random(10, words)
+                + " internationalizations Bees 42 beeés";
+
+        WordCounts stemmed = new WordCounts();
+        TestCorpus.scan(text, TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                Stemming.PORTER.filter(stemmed));
+        WordCounts expected = new WordCounts();
+        for (Map.Entry<String, Long> entry : TestCorpus
+                .map(TestCorpus.count(text)).entrySet()) {
+            String word = entry.getKey();
+            boolean letters = word.chars()
+                    .allMatch(c -> PorterStemmer.isLetter((char) c));
+            expected.add(letters ? stem(word) : word, entry.getValue());
+        }
+
+        assertEquals(TestCorpus.map(expected), TestCorpus.map(stemmed));
+    }
+
+    /**
+     * Under a vocabulary much larger than the cache, with words on both sides
+     * of the longest cached length, every word is passed on as its own stem
+     * however often its slot was taken by another word.
+     */
+    @Test
+    void testCacheReplacement() {
+        final int vocabulary = 20000;
+        final int words = 200000;
+        final int maxLength = 20;
+        final String letters = "aeiostnrlcygz";
+        Random random = new Random(24);
+        List<String> known = new ArrayList<>();
+        for (int i = 0; i < vocabulary; i++) {
+            StringBuilder word = new StringBuilder();
+            int length = 1 + random.nextInt(maxLength);
+            for (int k = 0; k < length; k++) {
+                word.append(letters.charAt(random.nextInt(letters.length())));
+            }
+            known.add(word.toString());
+        }
+        List<String> passed = new ArrayList<>();
+        StemmingSink sink = new StemmingSink((text, offset, length) -> passed
+                .add(new String(text, offset, length)));
+        List<String> expected = new ArrayList<>();
+
+        for (int i = 0; i < words; i++) {
+            String word = known.get(random.nextInt(vocabulary));
+            char[] chars = ("(" + word + ")").toCharArray();
+            sink.accept(chars, 1, word.length());
+            expected.add(stem(word));
+        }
+
+        assertEquals(expected, passed);
+    }
+
+}
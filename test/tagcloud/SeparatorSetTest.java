@@ -0,0 +1,61 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link SeparatorSet}, whose bit table must hold exactly the
+ * characters it was built from.
+ */
+final class SeparatorSetTest {
+
+    /**
+     * Every {@code char} value is a separator iff it is one of the listed
+     * characters, including the first and last bit of a table word and
+     * characters outside ASCII.
+     */
+    @Test
+    void testListedCharacters() {
+        String listed = TagCloud.SEPARATORS + "\u0000?@\u00A0\u2014\uFFFF";
+        SeparatorSet set = new SeparatorSet(listed);
+
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            assertEquals(listed.indexOf(c) >= 0, set.isSeparator((char) c),
+                    "U+" + Integer.toHexString(c));
+        }
+    }
+
+    /**
+     * A set built from a predicate holds the characters satisfying it.
+     */
+    @Test
+    void testPredicate() {
+        SeparatorSet set = new SeparatorSet(
+                c -> !Character.isLetterOrDigit(c));
+
+        for (int c = Character.MIN_VALUE; c <= Character.MAX_VALUE; c++) {
+            assertEquals(!Character.isLetterOrDigit(c),
+                    set.isSeparator((char) c),
+                    "U+" + Integer.toHexString(c));
+        }
+    }
+
+    /**
+     * Sets of the same characters have the same fingerprint, whatever their
+     * order, and other sets a different one.
+     */
+    @Test
+    void testFingerprint() {
+        assertEquals(new SeparatorSet(" ,.").fingerprint(),
+                new SeparatorSet(".., ").fingerprint());
+        assertEquals(new SeparatorSet(" ").fingerprint(),
+                new SeparatorSet(c -> c == ' ').fingerprint());
+        assertNotEquals(new SeparatorSet(" ,.").fingerprint(),
+                new SeparatorSet(" ,").fingerprint());
+        assertNotEquals(new SeparatorSet("").fingerprint(),
+                new SeparatorSet("\uFFFF").fingerprint());
+    }
+
+}
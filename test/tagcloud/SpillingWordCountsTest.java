@@ -0,0 +1,150 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link SpillingWordCounts}, whose merged runs must add up to the
+ * plain counts.
+ */
+final class SpillingWordCountsTest {
+
+    /**
+     * Directory for the runs.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Counts {@code text} within {@code budget} bytes and selects every word.
+     *
+     * @param text
+     *            the text
+     * @param budget
+     *            the memory budget in bytes
+     * @param expected
+     *            the plain counts of {@code text}
+     * @return the number of runs spilled
+     * @throws IOException
+     *             if a run cannot be written or read
+     */
+    private int countAndCompare(String text, long budget, WordCounts expected)
+            throws IOException {
+        int spills;
+        try (SpillingWordCounts counts = new SpillingWordCounts(budget,
+                this.directory)) {
+            TestCorpus.scan(text, TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                    counts);
+            spills = counts.spills();
+            TopWords top = new TopWords(expected.size());
+
+            assertEquals(expected.total(), counts.total());
+            assertEquals(expected.size(), counts.select(top));
+            assertEquals(TestCorpus.map(expected), TestCorpus.map(top));
+        }
+        try (Stream<Path> left = Files.list(this.directory)) {
+            assertEquals(0, left.count());
+        }
+        return spills;
+    }
+
+    /**
+     * Without any spill the table is selected from directly.
+     *
+     * @throws IOException
+     *             if a run cannot be written or read
+     */
+    @Test
+    void testWithoutSpill() throws IOException {
+        final int words = 2000;
+        String text = TestCorpus.random(3, words);
+
+        assertEquals(0, this.countAndCompare(text, Long.MAX_VALUE,
+                TestCorpus.count(text)));
+    }
+
+    /**
+     * Many small runs, more than can be merged at once, add up to the plain
+     * counts.
+     *
+     * @throws IOException
+     *             if a run cannot be written or read
+     */
+    @Test
+    void testManyRuns() throws IOException {
+        final int words = 200000;
+        final long budget = 4096;
+        final int maxFanIn = 64;
+        String text = TestCorpus.random(4, words);
+
+        assertTrue(this.countAndCompare(text, budget,
+                TestCorpus.count(text)) > maxFanIn);
+    }
+
+    /**
+     * The top words of a spilled count are the top words of the plain
+     * counts, ties included.
+     *
+     * @throws IOException
+     *             if a run cannot be written or read
+     */
+    @Test
+    void testTopAcrossRuns() throws IOException {
+        final int words = 50000;
+        final long budget = 4096;
+        final int k = 40;
+        String text = TestCorpus.random(5, words);
+        WordCounts plain = TestCorpus.count(text);
+        TopWords expected = new TopWords(k);
+        for (int slot = 0; slot < plain.capacity(); slot++) {
+            if (plain.keyLength(slot) != 0) {
+                expected.offer(plain.keyAt(slot), plain.countAt(slot));
+            }
+        }
+
+        try (SpillingWordCounts counts = new SpillingWordCounts(budget,
+                this.directory)) {
+            TestCorpus.scan(text, TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                    counts);
+            TopWords top = new TopWords(k);
+
+            assertTrue(counts.spills() > 1);
+            assertEquals(plain.size(), counts.select(top));
+            assertEquals(TestCorpus.map(expected), TestCorpus.map(top));
+        }
+    }
+
+    /**
+     * Closing without selecting deletes the runs already spilled.
+     *
+     * @throws IOException
+     *             if a run cannot be written or deleted
+     */
+    @Test
+    void testCloseDeletesRuns() throws IOException {
+        final int words = 20000;
+        final long budget = 4096;
+        SpillingWordCounts counts = new SpillingWordCounts(budget,
+                this.directory);
+        TestCorpus.scan(TestCorpus.random(6, words), TestCorpus.TOKENIZER,
+                CaseFolding.UNICODE, counts);
+        try (Stream<Path> runs = Files.list(this.directory)) {
+            assertEquals(counts.spills(), runs.count());
+        }
+
+        counts.close();
+
+        try (Stream<Path> left = Files.list(this.directory)) {
+            assertEquals(0, left.count());
+        }
+    }
+
+}
@@ -0,0 +1,160 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of {@link StopWords}, whose perfect hash must find exactly the words
+ * of the list.
+ */
+final class StopWordsTest {
+
+    /**
+     * Directory for the stop word files.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Writes {@code lines} to a stop word file and reads it.
+     *
+     * @param lines
+     *            the lines of the file
+     * @return the stop words
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    private StopWords read(List<String> lines) throws IOException {
+        Path file = this.directory.resolve("stopwords.txt");
+        Files.write(file, lines, StandardCharsets.UTF_8);
+        return StopWords.read(file, TestCorpus.TOKENIZER, CaseFolding.UNICODE);
+    }
+
+    /**
+     * Every listed word is found, folded, and comments are skipped.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testListedWords() throws IOException {
+        StopWords stopWords = this.read(
+                List.of("# articles", "The", "a an", "", "Straße"));
+
+        assertEquals(4, stopWords.size());
+        assertTrue(stopWords.contains("the"));
+        assertTrue(stopWords.contains("a"));
+        assertTrue(stopWords.contains("an"));
+        assertTrue(stopWords.contains("straße"));
+        assertFalse(stopWords.contains("#"));
+        assertFalse(stopWords.contains("articles"));
+        assertFalse(stopWords.contains("then"));
+        assertFalse(stopWords.contains(""));
+    }
+
+    /**
+     * A large list is placed without collisions: every word is found and no
+     * other word is.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testLargeList() throws IOException {
+        final int listed = 5000;
+        Random random = new Random(1);
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < listed; i++) {
+            lines.add("w" + Integer.toString(random.nextInt(Integer.MAX_VALUE),
+                    Character.MAX_RADIX));
+        }
+        StopWords stopWords = this.read(lines);
+
+        for (String word : lines) {
+            assertTrue(stopWords.contains(word), word);
+        }
+        for (int i = 0; i < listed; i++) {
+            String other = "x" + Integer.toString(i, Character.MAX_RADIX);
+            assertFalse(stopWords.contains(other), other);
+        }
+    }
+
+    /**
+     * Filtering a text leaves the plain counts minus the stop words.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testFilterMatchesPlainCounts() throws IOException {
+        final int words = 20000;
+        String text = TestCorpus.random(2, words);
+        StopWords stopWords = this.read(List.of("a", "be", "it", "size"));
+
+        WordCounts filtered = new WordCounts();
+        TestCorpus.scan(text, TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                stopWords.filter(filtered));
+        Map<String, Long> expected = TestCorpus.map(TestCorpus.count(text));
+        expected.keySet().removeIf(stopWords::contains);
+
+        assertEquals(expected, TestCorpus.map(filtered));
+    }
+
+    /**
+     * A word is found inside a larger buffer only for its exact span, and a
+     * span of another length with the same characters is not.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testSpans() throws IOException {
+        final int theStart = 4;
+        final int theLength = 3;
+        StopWords stopWords = this.read(List.of("the", "then"));
+        char[] text = "and then the end".toCharArray();
+
+        assertTrue(stopWords.contains(text, theStart, theLength + 1));
+        assertTrue(stopWords.contains(text, theStart, theLength));
+        assertFalse(stopWords.contains(text, theStart + 1, theLength));
+        assertFalse(stopWords.contains(text, 0, theLength));
+    }
+
+    /**
+     * The fingerprint depends on the words only, not on their order or on
+     * repeats, and an empty list filters nothing.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testFingerprint() throws IOException {
+        final int distinct = 3;
+        long forward = this.read(List.of("a", "be", "it")).fingerprint();
+        StopWords backward = this.read(List.of("it it", "be", "a"));
+
+        assertEquals(distinct, backward.size());
+        assertEquals(forward, backward.fingerprint());
+        assertNotEquals(forward,
+                this.read(List.of("a", "be", "its")).fingerprint());
+        TokenSink sink = (text, offset, length) -> {
+        };
+        assertSame(sink, StopWords.NONE.filter(sink));
+    }
+
+}
@@ -0,0 +1,136 @@
+package tagcloud;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Texts and counts shared by the tests: random corpora, and the plain
+ * {@link WordScanner} into {@link WordCounts} path that every other way of
+ * counting is checked against.
+ */
+final class TestCorpus {
+
+    /**
+     * Letters random words are made of; few, so words repeat.
+     */
+    private static final String LETTERS = "abcdeilnorstuyz";
+
+    /**
+     * Length of the longest random word.
+     */
+    private static final int MAX_LENGTH = 9;
+
+    /**
+     * Separators between random words.
+     */
+    private static final String SEPARATORS = " \n, . ! ? - \"";
+
+    /**
+     * Tokenizer of the command-line tool.
+     */
+    static final Tokenizer TOKENIZER = new SeparatorSet(TagCloud.SEPARATORS);
+
+    /**
+     * No-argument constructor.
+     */
+    private TestCorpus() {
+    }
+
+    /**
+     * Returns a text of {@code words} random lowercase words, the same for
+     * the same {@code seed}, with short words far more frequent than long
+     * ones.
+     *
+     * @param seed
+     *            the random seed
+     * @param words
+     *            the number of words
+     * @return the text
+     */
+    static String random(long seed, int words) {
+        Random random = new Random(seed);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < words; i++) {
+            int length = 1 + Math.min(random.nextInt(MAX_LENGTH),
+                    random.nextInt(MAX_LENGTH));
+            for (int k = 0; k < length; k++) {
+                text.append(LETTERS.charAt(random.nextInt(LETTERS.length())));
+            }
+            text.append(SEPARATORS.charAt(random.nextInt(SEPARATORS.length())));
+        }
+        return text.toString();
+    }
+
+    /**
+     * Passes every word of {@code text}, split by {@code tokenizer} and
+     * folded by {@code folding}, to {@code sink}, then ends the text.
+     *
+     * @param text
+     *            the text
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @param folding
+     *            the case folding applied to each word
+     * @param sink
+     *            the sink receiving the words
+     * @updates sink
+     */
+    static void scan(String text, Tokenizer tokenizer, CaseFolding folding,
+            TokenSink sink) {
+        char[] chars = text.toCharArray();
+        WordScanner scanner = new WordScanner(tokenizer, folding);
+        scanner.reset(chars, 0, chars.length);
+        while (scanner.next()) {
+            sink.accept(chars, scanner.start(), scanner.length());
+        }
+        sink.endText();
+    }
+
+    /**
+     * Counts the words of {@code text} the plain way, with the tokenizer of
+     * the command-line tool and Unicode case folding.
+     *
+     * @param text
+     *            the text
+     * @return the counts
+     */
+    static WordCounts count(String text) {
+        WordCounts counts = new WordCounts();
+        scan(text, TOKENIZER, CaseFolding.UNICODE, counts);
+        return counts;
+    }
+
+    /**
+     * Returns the words of {@code counts} with their counts.
+     *
+     * @param counts
+     *            the counts
+     * @return map from every word to its count
+     */
+    static Map<String, Long> map(WordCounts counts) {
+        Map<String, Long> map = new HashMap<>();
+        for (int slot = 0; slot < counts.capacity(); slot++) {
+            if (counts.keyLength(slot) != 0) {
+                map.put(counts.keyAt(slot), counts.countAt(slot));
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Returns the words of {@code top} with their counts.
+     *
+     * @param top
+     *            the selected words
+     * @return map from every selected word to its count
+     */
+    static Map<String, Long> map(TopWords top) {
+        Map<String, Long> map = new HashMap<>();
+        for (Map.Entry<String, Long> entry : top.entries()) {
+            map.put(entry.getKey(), entry.getValue());
+        }
+        return map;
+    }
+
+}
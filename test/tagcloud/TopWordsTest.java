@@ -0,0 +1,107 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link TopWords}, which must keep the same words as sorting all of
+ * them by decreasing count and then alphabetically.
+ */
+final class TopWordsTest {
+
+    /**
+     * Rank order: decreasing count, ties in alphabetical order.
+     */
+    private static final Comparator<Entry<String, Long>> RANK = Comparator
+            .comparing(Entry<String, Long>::getValue).reversed()
+            .thenComparing(Entry::getKey);
+
+    /**
+     * Every size of selection keeps the first words of the full ranking,
+     * with ties at the cut broken alphabetically whatever the offer order.
+     */
+    @Test
+    void testTiesAtTheCut() {
+        final int words = 500;
+        final int maxCount = 5;
+        final int step = 7;
+        Random random = new Random(31);
+        List<Entry<String, Long>> offered = new ArrayList<>();
+        for (int i = 0; i < words; i++) {
+            offered.add(Map.entry("w" + i, 1L + random.nextInt(maxCount)));
+        }
+        List<Entry<String, Long>> ranked = new ArrayList<>(offered);
+        ranked.sort(RANK);
+
+        for (int k = 0; k <= words; k += step) {
+            TopWords top = new TopWords(k);
+            for (Entry<String, Long> entry : offered) {
+                top.offer(entry.getKey(), entry.getValue());
+            }
+            List<Entry<String, Long>> kept = top.entries();
+            kept.sort(RANK);
+
+            assertEquals(ranked.subList(0, k), kept);
+            assertEquals(k, top.size());
+            if (k > 0) {
+                assertEquals(ranked.get(k - 1).getValue(), top.minCount());
+            }
+        }
+    }
+
+    /**
+     * A word tied with the lowest kept one is only kept if it comes first
+     * alphabetically, and {@link TopWords#accepts} never rules out a word
+     * that would be kept.
+     */
+    @Test
+    void testAccepts() {
+        TopWords top = new TopWords(2);
+        assertTrue(top.accepts(0));
+        top.offer("m", 2);
+        top.offer("n", 3);
+
+        assertFalse(top.accepts(1));
+        assertTrue(top.accepts(2));
+        top.offer("z", 2);
+        assertEquals(Map.of("m", 2L, "n", 3L), TestCorpus.map(top));
+        top.offer("a", 2);
+        assertEquals(Map.of("a", 2L, "n", 3L), TestCorpus.map(top));
+
+        TopWords none = new TopWords(0);
+        assertFalse(none.accepts(Long.MAX_VALUE));
+        none.offer("a", 1);
+        assertEquals(0, none.size());
+    }
+
+    /**
+     * The words selected from a table are those of the full ranking, in
+     * alphabetical order.
+     */
+    @Test
+    void testSelectFromTable() {
+        final int words = 50000;
+        final int selected = 100;
+        WordCounts counts = TestCorpus.count(TestCorpus.random(32, words));
+        List<Entry<String, Long>> ranked = new ArrayList<>(
+                TestCorpus.map(counts).entrySet());
+        ranked.sort(RANK);
+        List<Entry<String, Long>> expected = new ArrayList<>(
+                ranked.subList(0, selected));
+        expected.sort(Entry.comparingByKey());
+
+        assertEquals(expected, TagCloud.sortAlphabetically(
+                TagCloud.selectTop(counts, selected)));
+    }
+
+}
@@ -0,0 +1,167 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Tests of the vectorized {@link SeparatorScanner}: a
+ * {@link MappedWordCounter} using it must count exactly what the byte by
+ * byte scan and the plain path count, and only be used when asked for.
+ * Tests using it are skipped when the Vector API is not available.
+ */
+final class VectorSeparatorScannerTest {
+
+    /**
+     * Directory for the input files.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * The vectorized scanner.
+     */
+    private SeparatorScanner vector;
+
+    /**
+     * Loads the vectorized scanner, if available.
+     */
+    @BeforeEach
+    void setUp() {
+        this.vector = SeparatorScanner.vectorized(TestCorpus.TOKENIZER);
+    }
+
+    /**
+     * Counts {@code file} with a {@link MappedWordCounter}.
+     *
+     * @param file
+     *            the file
+     * @param scanner
+     *            the vectorized scanner, or {@code null} to scan byte by
+     *            byte
+     * @return the counts
+     * @throws IOException
+     *             if the file cannot be read
+     */
+    private static Map<String, Long> count(Path file, SeparatorScanner scanner)
+            throws IOException {
+        WordCounts counts = new WordCounts();
+        new MappedWordCounter(TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                counts, scanner).countFile(file);
+        return TestCorpus.map(counts);
+    }
+
+    /**
+     * Checks that {@code text} is counted the same with and without the
+     * vectorized scanner, and as the plain path counts it.
+     *
+     * @param text
+     *            the text
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    private void check(String text) throws IOException {
+        assumeTrue(this.vector != null, "Vector API not available");
+        Path file = this.directory.resolve("input.txt");
+        Files.writeString(file, text, StandardCharsets.UTF_8);
+
+        Map<String, Long> expected = TestCorpus.map(TestCorpus.count(text));
+        assertEquals(expected, count(file, null));
+        assertEquals(expected, count(file, this.vector));
+    }
+
+    /**
+     * A random text of short ASCII words is counted the same.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testRandomText() throws IOException {
+        final int words = 100000;
+        this.check(TestCorpus.random(11, words));
+    }
+
+    /**
+     * Texts of every length around a block, with words crossing blocks and
+     * separators at block edges, are counted the same.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testBlockEdges() throws IOException {
+        final int blocks = 3;
+        for (int length = 1; length <= blocks * SeparatorScanner.BLOCK;
+                length++) {
+            StringBuilder text = new StringBuilder();
+            for (int i = 0; i < length; i++) {
+                text.append(i % (length / 2 + 1) == 0 ? ' ' : 'a');
+            }
+            this.check(text.toString());
+        }
+        this.check("x".repeat(blocks * SeparatorScanner.BLOCK + 1));
+    }
+
+    /**
+     * Mixed case and words with non-ASCII characters, split across blocks,
+     * are folded and counted the same.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testNonAscii() throws IOException {
+        final int copies = 100;
+        this.check("Bee bEE, Ünïcödé Straße 蜜蜂 naïve café! Déjà-vu\n"
+                .repeat(copies));
+    }
+
+    /**
+     * Ranges of a large file counted on several threads sharing the scanner
+     * add up to the byte by byte counts.
+     *
+     * @throws IOException
+     *             if the file cannot be written or read
+     */
+    @Test
+    void testParallel() throws IOException {
+        assumeTrue(this.vector != null, "Vector API not available");
+        final int words = 1000000;
+        final int threads = 4;
+        Path file = this.directory.resolve("input.txt");
+        Files.writeString(file, TestCorpus.random(12, words),
+                StandardCharsets.UTF_8);
+
+        assertEquals(
+                TestCorpus.map(ParallelWordCounter.countFile(file,
+                        TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                        StopWords.NONE, 1)),
+                TestCorpus.map(ParallelWordCounter.countFile(file,
+                        TestCorpus.TOKENIZER, CaseFolding.UNICODE,
+                        StopWords.NONE, threads, this.vector)));
+    }
+
+    /**
+     * The vectorized scan is off unless {@code -V} is given.
+     */
+    @Test
+    void testOption() {
+        assertFalse(TagCloudOptions.parse(new String[] {"input.txt"})
+                .vectorScan());
+        assertTrue(TagCloudOptions.parse(new String[] {"-V", "input.txt"})
+                .vectorScan());
+    }
+
+}
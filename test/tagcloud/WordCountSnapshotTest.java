@@ -0,0 +1,154 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+/**
+ * Tests of {@link WordCountSnapshot}: a snapshot read back must hold the
+ * counts it was written from, in rank order.
+ */
+final class WordCountSnapshotTest {
+
+    /**
+     * Number of words of the counted text.
+     */
+    private static final int WORDS = 50000;
+
+    /**
+     * Directory for the snapshot.
+     */
+    @TempDir
+    Path directory;
+
+    /**
+     * Returns the counts of a random text plus words whose counts need long
+     * varints and words in other scripts.
+     *
+     * @return the counts
+     */
+    private static WordCounts counts() {
+        final long large = 1L << 40;
+        WordCounts counts = TestCorpus.count(TestCorpus.random(9, WORDS));
+        counts.add("abeille", large);
+        counts.add("ünïcödé", Integer.MAX_VALUE + 1L);
+        counts.add("蜜蜂", 1);
+        return counts;
+    }
+
+    /**
+     * Every word and count of the table is read back, with the source name.
+     *
+     * @param compress
+     *            whether the snapshot is deflated
+     * @throws IOException
+     *             if the snapshot cannot be written or read
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testRoundTrip(boolean compress) throws IOException {
+        WordCounts counts = counts();
+        Path file = this.directory.resolve("counts.snap");
+        WordCountSnapshot.write(counts, "bee movie.txt", file, compress);
+
+        WordCountSnapshot snapshot = WordCountSnapshot.read(file,
+                counts.size());
+
+        assertEquals("bee movie.txt", snapshot.source());
+        assertEquals(counts.size(), snapshot.size());
+        assertEquals(TestCorpus.map(counts),
+                TestCorpus.map(snapshot.top()));
+    }
+
+    /**
+     * Reading {@code n} words gives the first {@code n} in rank order, and
+     * asking for more than there are gives them all.
+     *
+     * @param compress
+     *            whether the snapshot is deflated
+     * @throws IOException
+     *             if the snapshot cannot be written or read
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testTopWords(boolean compress) throws IOException {
+        final int n = 25;
+        WordCounts counts = counts();
+        Path file = this.directory.resolve("counts.snap");
+        WordCountSnapshot.write(counts, "input", file, compress);
+
+        Map<String, Long> expected = new HashMap<>();
+        int[] order = counts.slotsByRank();
+        for (int i = 0; i < n; i++) {
+            expected.put(counts.keyAt(order[i]), counts.countAt(order[i]));
+        }
+
+        assertEquals(expected,
+                TestCorpus.map(WordCountSnapshot.read(file, n).top()));
+        assertEquals(counts.size(), WordCountSnapshot
+                .read(file, counts.size() + 1).top().size());
+    }
+
+    /**
+     * Writing over a snapshot replaces it whole and leaves no temporary file
+     * behind.
+     *
+     * @param compress
+     *            whether the snapshots are deflated
+     * @throws IOException
+     *             if a snapshot cannot be written or read
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testReplace(boolean compress) throws IOException {
+        Path file = this.directory.resolve("counts.snap");
+        WordCountSnapshot.write(counts(), "old", file, compress);
+        WordCounts counts = TestCorpus.count("a new and much smaller text");
+        WordCountSnapshot.write(counts, "new", file, compress);
+
+        WordCountSnapshot snapshot = WordCountSnapshot.read(file,
+                counts.size() + 1);
+
+        assertEquals("new", snapshot.source());
+        assertEquals(TestCorpus.map(counts), TestCorpus.map(snapshot.top()));
+        assertFalse(Files.exists(this.directory.resolve("counts.snap.tmp")));
+    }
+
+    /**
+     * A write that fails leaves the snapshot it was replacing readable and
+     * unchanged.
+     *
+     * @param compress
+     *            whether the snapshots are deflated
+     * @throws IOException
+     *             if the first snapshot cannot be written or read
+     */
+    @ParameterizedTest
+    @ValueSource(booleans = {false, true})
+    void testFailedWriteKeepsSnapshot(boolean compress) throws IOException {
+        WordCounts counts = counts();
+        Path file = this.directory.resolve("counts.snap");
+        WordCountSnapshot.write(counts, "old", file, compress);
+        /* The temporary file cannot be created where a directory is */
+        Files.createDirectory(this.directory.resolve("counts.snap.tmp"));
+
+        assertThrows(IOException.class, () -> WordCountSnapshot
+                .write(TestCorpus.count("other words"), "new", file, compress));
+
+        WordCountSnapshot snapshot = WordCountSnapshot.read(file,
+                counts.size());
+        assertEquals("old", snapshot.source());
+        assertEquals(TestCorpus.map(counts), TestCorpus.map(snapshot.top()));
+    }
+
+}
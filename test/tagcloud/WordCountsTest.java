@@ -0,0 +1,170 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link WordCounts}, which must count like a
+ * {@code HashMap<String, Long>} through growth, probing and merging.
+ */
+final class WordCountsTest {
+
+    /**
+     * Counts every word of {@code text} in a map, splitting on spaces.
+     *
+     * @param text
+     *            the words, separated by single spaces
+     * @return map from every word to its count
+     */
+    private static Map<String, Long> countInMap(String text) {
+        Map<String, Long> counts = new HashMap<>();
+        for (String word : text.split(" ")) {
+            counts.merge(word, 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    /**
+     * Counts every word of {@code text} in a table, splitting on spaces.
+     *
+     * @param text
+     *            the words, separated by single spaces
+     * @param expected
+     *            the number of distinct words the table is sized for
+     * @return the counts
+     */
+    private static WordCounts countInTable(String text, int expected) {
+        WordCounts counts = new WordCounts(expected);
+        char[] chars = text.toCharArray();
+        int start = 0;
+        for (int i = 0; i <= chars.length; i++) {
+            if (i == chars.length || chars[i] == ' ') {
+                counts.increment(chars, start, i - start);
+                start = i + 1;
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * A table sized for two words grows many times and keeps every count.
+     */
+    @Test
+    void testGrowth() {
+        final int words = 100000;
+        String text = TestCorpus.random(21, words).replaceAll("[^a-z]+", " ")
+                .trim();
+        Map<String, Long> expected = countInMap(text);
+        WordCounts counts = countInTable(text, 2);
+
+        assertEquals(expected, TestCorpus.map(counts));
+        assertEquals(expected.size(), counts.size());
+        assertEquals(words, counts.total());
+        assertEquals(0, counts.capacity() & (counts.capacity() - 1));
+        assertTrue(counts.capacity() >= 2 * counts.size());
+        for (Map.Entry<String, Long> entry : expected.entrySet()) {
+            assertEquals(entry.getValue(), counts.count(entry.getKey()));
+        }
+    }
+
+    /**
+     * Words with equal hash codes share a probe sequence and are still told
+     * apart, before and after the table grows.
+     */
+    @Test
+    void testEqualHashCodes() {
+        /* "Aa" and "BB" have the same hash code, so all these words do too */
+        List<String> colliding = List.of("AaAaAa", "AaAaBB", "AaBBAa",
+                "AaBBBB", "BBAaAa", "BBAaBB", "BBBBAa", "BBBBBB");
+        WordCounts counts = new WordCounts(colliding.size() - 1);
+        for (int i = 0; i < colliding.size(); i++) {
+            counts.add(colliding.get(i), i + 1);
+        }
+        int capacity = counts.capacity();
+        for (int i = 0; i < colliding.size(); i++) {
+            counts.increment(colliding.get(i));
+        }
+
+        assertEquals(capacity, counts.capacity());
+        assertEquals(colliding.size(), counts.size());
+        for (int i = 0; i < colliding.size(); i++) {
+            assertEquals(i + 2, counts.count(colliding.get(i)));
+        }
+        assertEquals(0, counts.count("AaAa"));
+        assertEquals(0, counts.count(""));
+    }
+
+    /**
+     * Merging adds the counts of words in both tables and copies the others.
+     */
+    @Test
+    void testAddAll() {
+        final int words = 30000;
+        String first = TestCorpus.random(22, words).replaceAll("[^a-z]+", " ")
+                .trim();
+        String second = TestCorpus.random(23, words)
+                .replaceAll("[^a-z]+", " ").trim();
+        Map<String, Long> expected = countInMap(first);
+        countInMap(second).forEach((word, count) -> expected.merge(word,
+                count, Long::sum));
+        WordCounts merged = countInTable(first, 0);
+        merged.addAll(countInTable(second, 0));
+
+        assertEquals(expected, TestCorpus.map(merged));
+        assertEquals(2L * words, merged.total());
+    }
+
+    /**
+     * A cleared table keeps its slots and counts from zero.
+     */
+    @Test
+    void testClear() {
+        final int words = 5000;
+        String text = TestCorpus.random(24, words).replaceAll("[^a-z]+", " ")
+                .trim();
+        WordCounts counts = countInTable(text, 0);
+        int capacity = counts.capacity();
+        counts.clear();
+
+        assertEquals(0, counts.size());
+        assertEquals(0, counts.total());
+        assertEquals(capacity, counts.capacity());
+
+        counts.increment("again");
+        assertEquals(Map.of("again", 1L), TestCorpus.map(counts));
+    }
+
+    /**
+     * The slots in rank order give the words by decreasing count, ties in
+     * {@code String} order, like sorting the entries of a map.
+     */
+    @Test
+    void testSlotsByRank() {
+        final int words = 50000;
+        String text = TestCorpus.random(25, words).replaceAll("[^a-z]+", " ")
+                .trim();
+        WordCounts counts = countInTable(text, 0);
+        List<Entry<String, Long>> expected = new ArrayList<>(
+                countInMap(text).entrySet());
+        expected.sort(Entry.<String, Long>comparingByValue().reversed()
+                .thenComparing(Entry.comparingByKey()));
+
+        int[] order = counts.slotsByRank();
+
+        assertEquals(expected.size(), order.length);
+        for (int i = 0; i < order.length; i++) {
+            assertEquals(expected.get(i).getKey(), counts.keyAt(order[i]));
+            assertEquals(expected.get(i).getValue(),
+                    counts.countAt(order[i]));
+        }
+    }
+
+}
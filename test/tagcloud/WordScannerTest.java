@@ -0,0 +1,97 @@
+package tagcloud;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Tests of {@link WordScanner}, which must hand out every word of a range as
+ * a span of the buffer.
+ */
+final class WordScannerTest {
+
+    /**
+     * Returns the words {@code scanner} finds in {@code text[from, to)}.
+     *
+     * @param scanner
+     *            the scanner
+     * @param text
+     *            the buffer
+     * @param from
+     *            the first index to scan
+     * @param to
+     *            the end (exclusive) of the range to scan
+     * @return the words, in order
+     */
+    private static List<String> words(WordScanner scanner, char[] text,
+            int from, int to) {
+        List<String> words = new ArrayList<>();
+        scanner.reset(text, from, to);
+        while (scanner.next()) {
+            assertEquals(scanner.end() - scanner.start(), scanner.length());
+            words.add(new String(text, scanner.start(), scanner.length()));
+        }
+        assertFalse(scanner.next());
+        return words;
+    }
+
+    /**
+     * Runs of separators, including ones at both ends, are skipped and each
+     * word is folded in the buffer.
+     */
+    @Test
+    void testSpans() {
+        WordScanner scanner = new WordScanner(TestCorpus.TOKENIZER,
+                CaseFolding.ASCII);
+        char[] text = "  The bee's knees, -- (BEE)!\n".toCharArray();
+
+        assertEquals(List.of("the", "bee", "s", "knees", "bee"),
+                words(scanner, text, 0, text.length));
+        assertEquals("  the bee's knees, -- (bee)!\n", new String(text));
+    }
+
+    /**
+     * Only the given range is scanned, so a word is cut at its ends, and a
+     * range of separators or no characters has no words.
+     */
+    @Test
+    void testRange() {
+        WordScanner scanner = new WordScanner(TestCorpus.TOKENIZER,
+                CaseFolding.NONE);
+        String sentence = "alpha beta gamma";
+        char[] text = sentence.toCharArray();
+        int beta = sentence.indexOf("beta");
+
+        assertEquals(List.of("ta", "ga"), words(scanner, text,
+                sentence.indexOf("ta"), sentence.indexOf("mma")));
+        assertEquals(List.of("beta", "gamma"),
+                words(scanner, text, beta, text.length));
+        assertEquals(List.of(), words(scanner, text, beta - 1, beta));
+        assertEquals(List.of(), words(scanner, text, beta, beta));
+    }
+
+    /**
+     * One scanner reused for every buffer finds the same words as a new
+     * scanner for each.
+     */
+    @Test
+    void testReuse() {
+        WordScanner reused = new WordScanner(TestCorpus.TOKENIZER,
+                CaseFolding.UNICODE);
+        final int texts = 10;
+        final int words = 100;
+        for (int seed = 0; seed < texts; seed++) {
+            char[] text = TestCorpus.random(seed, words).toCharArray();
+            List<String> expected = words(new WordScanner(
+                    TestCorpus.TOKENIZER, CaseFolding.UNICODE), text.clone(),
+                    0, text.length);
+
+            assertEquals(expected, words(reused, text, 0, text.length));
+        }
+    }
+
+}
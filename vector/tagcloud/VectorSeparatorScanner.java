@@ -0,0 +1,131 @@
+package tagcloud;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * {@link SeparatorScanner} classifying 16, 32 or 64 bytes per instruction
+ * with the Vector API, whichever the processor prefers.
+ *
+ * <p>
+ * A byte is tested for membership in the set of ASCII separators with two
+ * 16-entry table lookups, one per nibble: entry {@code lo} of the low table
+ * has bit {@code hi} set for every separator {@code hi * 16 + lo}, and entry
+ * {@code hi} of the high table is the single bit {@code hi} (none for the
+ * bytes of multi-byte UTF-8 sequences, {@code hi >= 8}). The byte is a
+ * separator iff the two entries share a bit. Both lookups are lane
+ * rearrangements, which compile to byte shuffles.
+ * </p>
+ *
+ * <p>
+ * Compile and run with the incubator module:
+ * </p>
+ *
+ * <pre>
+ * javac -d out src/tagcloud/*.java
+ * javac --add-modules jdk.incubator.vector -cp out -d out \
+ *     vector/tagcloud/*.java
+ * java --add-modules jdk.incubator.vector -cp out tagcloud.TagCloud ...
+ * </pre>
+ */
+public final class VectorSeparatorScanner implements SeparatorScanner {
+
+    /**
+     * Vector shape used to classify bytes.
+     */
+    private static final VectorSpecies<Byte> SPECIES =
+            ByteVector.SPECIES_PREFERRED;
+
+    /**
+     * Number of entries of a nibble table.
+     */
+    private static final int NIBBLES = 16;
+
+    /**
+     * Number of bits in a nibble.
+     */
+    private static final int NIBBLE_BITS = 4;
+
+    /**
+     * First byte value that is not ASCII.
+     */
+    private static final int ASCII = 128;
+
+    /**
+     * Low nibble table, repeated across the lanes.
+     */
+    private final ByteVector low;
+
+    /**
+     * High nibble table, repeated across the lanes.
+     */
+    private final ByteVector high;
+
+    /**
+     * Creates a scanner for the ASCII separators of {@code tokenizer}.
+     *
+     * @param tokenizer
+     *            the tokenizer deciding which characters separate words
+     * @throws UnsupportedOperationException
+     *             if the preferred vectors hold fewer than 16 bytes or more
+     *             than {@link SeparatorScanner#BLOCK}
+     */
+    public VectorSeparatorScanner(Tokenizer tokenizer) {
+        assert tokenizer != null : "Violation of: tokenizer is not null";
+
+        if (SPECIES.length() < NIBBLES || SPECIES.length() > BLOCK) {
+            throw new UnsupportedOperationException(
+                    "No byte vectors of 16 to 64 lanes");
+        }
+        byte[] lows = new byte[SPECIES.length()];
+        byte[] highs = new byte[SPECIES.length()];
+        for (int c = 0; c < ASCII; c++) {
+            if (tokenizer.isSeparator((char) c)) {
+                for (int lane = c % NIBBLES; lane < lows.length;
+                        lane += NIBBLES) {
+                    lows[lane] |= (byte) (1 << (c >>> NIBBLE_BITS));
+                }
+            }
+        }
+        for (int lane = 0; lane < highs.length; lane++) {
+            int nibble = lane % NIBBLES;
+            if (nibble < ASCII >>> NIBBLE_BITS) {
+                highs[lane] = (byte) (1 << nibble);
+            }
+        }
+        this.low = ByteVector.fromArray(SPECIES, lows, 0);
+        this.high = ByteVector.fromArray(SPECIES, highs, 0);
+    }
+
+    /**
+     * Returns the separators among bytes {@code [from, from + BLOCK)} of
+     * {@code bytes}, classifying a vector of bytes at a time.
+     *
+     * @param bytes
+     *            the UTF-8 bytes
+     * @param from
+     *            the index of the first byte of the block
+     * @return the separator bits of the block
+     * @requires 0 <= from and from + BLOCK <= limit(bytes)
+     */
+    @Override
+    public long separators(ByteBuffer bytes, int from) {
+        long separators = 0;
+        for (int k = 0; k < BLOCK; k += SPECIES.length()) {
+            ByteVector v = ByteVector.fromByteBuffer(SPECIES, bytes, from + k,
+                    ByteOrder.nativeOrder());
+            ByteVector lows = this.low
+                    .rearrange(v.and((byte) (NIBBLES - 1)).toShuffle());
+            ByteVector highs = this.high.rearrange(
+                    v.lanewise(VectorOperators.LSHR, NIBBLE_BITS).toShuffle());
+            separators |= lows.and(highs).compare(VectorOperators.NE, 0)
+                    .toLong() << k;
+        }
+        return separators;
+    }
+
+}